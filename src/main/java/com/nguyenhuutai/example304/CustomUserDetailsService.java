@@ -1,27 +1,102 @@
 package com.nguyenhuutai.example304;
 
+import com.nguyenhuutai.example304.cache.BoundedCache;
 import com.nguyenhuutai.example304.repository.UserRepository;
 import com.nguyenhuutai.example304.model.User;
 import com.nguyenhuutai.example304.security.services.UserDetailsImpl;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Map;
 
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private UserRepository userRepository;
 
-    public CustomUserDetailsService(UserRepository userRepository) {
+    // username -> UserDetailsImpl đã resolve roles, tránh dồn query users/user_roles lúc đổi ca
+    private final BoundedCache<String, UserDetailsImpl> userCache;
+
+    public CustomUserDetailsService(UserRepository userRepository,
+            @Value("${app.cache.users.max-size:1000}") int maxSize,
+            @Value("${app.cache.users.ttl-seconds:300}") long ttlSeconds) {
         this.userRepository = userRepository;
+        this.userCache = new BoundedCache<>(maxSize, Duration.ofSeconds(ttlSeconds));
     }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        return userCache.get(username, this::loadFromDatabase);
+    }
+
+    private UserDetailsImpl loadFromDatabase(String username) {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("Username not found: " + username));
 
         return UserDetailsImpl.build(user);
     }
-}
\ No newline at end of file
+
+    // DaoAuthenticationProvider gọi sau khi login thành công nếu hash cũ yếu hơn
+    // strength đang cấu hình -> lưu hash mới, lần login sau dùng strength mới
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.findByUsername(user.getUsername()).ifPresent(entity -> {
+            entity.setPassword(newPassword);
+            userRepository.save(entity);
+        });
+        evict(user.getUsername());
+
+        UserDetailsImpl details = (UserDetailsImpl) user;
+        return new UserDetailsImpl(details.getId(), details.getUsername(), details.getEmail(),
+                newPassword, details.getAuthorities());
+    }
+
+    // Gọi khi tạo user mới hoặc đổi roles/mật khẩu
+    public void evict(String username) {
+        userCache.invalidate(username);
+    }
+
+    public void evictAll() {
+        userCache.invalidateAll();
+    }
+
+    // Gọi từ UserCacheEvictionListener khi User/Role đổi trong transaction: xoá ngay, và xoá
+    // lại sau khi transaction kết thúc vì request khác có thể đã nạp lại bản cũ từ DB trước commit
+    public void evictAfterCommit(String username) {
+        evict(username);
+        afterCompletion(() -> evict(username));
+    }
+
+    public void evictAllAfterCommit() {
+        evictAll();
+        afterCompletion(this::evictAll);
+    }
+
+    private static void afterCompletion(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    action.run();
+                }
+            });
+        }
+    }
+
+    public Map<String, Object> cacheStats() {
+        return userCache.stats();
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void purgeExpired() {
+        userCache.purgeExpired();
+    }
+}
@@ -2,8 +2,10 @@ package com.nguyenhuutai.example304;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class Example304Application {
 
 	public static void main(String[] args) {
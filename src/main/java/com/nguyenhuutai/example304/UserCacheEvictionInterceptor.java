@@ -0,0 +1,82 @@
+package com.nguyenhuutai.example304;
+
+import com.nguyenhuutai.example304.model.Role;
+import com.nguyenhuutai.example304.model.User;
+import org.hibernate.Interceptor;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.type.Type;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.Arrays;
+
+// Mọi thay đổi User/Role qua JPA (đăng ký, đổi mật khẩu, đổi roles, xoá user, đổi tên role)
+// làm mới cache UserDetails thay vì đợi hết TTL. Dùng Interceptor thay cho @PostUpdate vì
+// đổi riêng collection roles không bắn callback của entity, và onFlushDirty có username cũ
+public class UserCacheEvictionInterceptor implements Interceptor {
+
+    private final ObjectProvider<CustomUserDetailsService> userDetailsService;
+
+    public UserCacheEvictionInterceptor(ObjectProvider<CustomUserDetailsService> userDetailsService) {
+        this.userDetailsService = userDetailsService;
+    }
+
+    @Override
+    public boolean onFlushDirty(Object entity, Object id, Object[] currentState, Object[] previousState,
+            String[] propertyNames, Type[] types) {
+        if (entity instanceof User user) {
+            evict(user.getUsername());
+            // Đổi username: bản cache nằm dưới tên cũ
+            int index = Arrays.asList(propertyNames).indexOf("username");
+            if (previousState != null && index >= 0 && previousState[index] instanceof String previous) {
+                evict(previous);
+            }
+        } else if (entity instanceof Role) {
+            evictAll();
+        }
+        return false;
+    }
+
+    @Override
+    public void onRemove(Object entity, Object id, Object[] state, String[] propertyNames, Type[] types) {
+        if (entity instanceof User user) {
+            evict(user.getUsername());
+        } else if (entity instanceof Role) {
+            evictAll();
+        }
+    }
+
+    @Override
+    public void onCollectionUpdate(Object collection, Object key) {
+        onRolesChanged(collection);
+    }
+
+    @Override
+    public void onCollectionRecreate(Object collection, Object key) {
+        onRolesChanged(collection);
+    }
+
+    @Override
+    public void onCollectionRemove(Object collection, Object key) {
+        onRolesChanged(collection);
+    }
+
+    private void onRolesChanged(Object collection) {
+        if (collection instanceof PersistentCollection<?> persistent && persistent.getOwner() instanceof User user) {
+            evict(user.getUsername());
+        }
+    }
+
+    private void evict(String username) {
+        CustomUserDetailsService service = userDetailsService.getIfAvailable();
+        if (service != null) {
+            service.evictAfterCommit(username);
+        }
+    }
+
+    private void evictAll() {
+        CustomUserDetailsService service = userDetailsService.getIfAvailable();
+        if (service != null) {
+            service.evictAllAfterCommit();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.nguyenhuutai.example304.config;
+
+import com.nguyenhuutai.example304.security.jwt.JwtUtils;
+import com.nguyenhuutai.example304.security.jwt.TokenRevocationService;
+import io.jsonwebtoken.Claims;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+// Đọc JWT ở header "Authorization" của frame CONNECT và gắn principal cho phiên,
+// để nhân viên nhận được /user/queue/orders. Không có/không hợp lệ token thì vẫn
+// cho kết nối (màn hình bàn, khách) nhưng không có user queue
+@Component
+public class StompAuthChannelInterceptor implements ChannelInterceptor {
+
+    private final JwtUtils jwtUtils;
+    private final TokenRevocationService tokenRevocationService;
+
+    public StompAuthChannelInterceptor(JwtUtils jwtUtils, TokenRevocationService tokenRevocationService) {
+        this.jwtUtils = jwtUtils;
+        this.tokenRevocationService = tokenRevocationService;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() != StompCommand.CONNECT) {
+            return message;
+        }
+
+        String header = accessor.getFirstNativeHeader("Authorization");
+        if (header != null && header.startsWith("Bearer ")) {
+            Claims claims = jwtUtils.parseValidClaims(header.substring(7));
+            if (claims != null && claims.get("id") != null
+                    && !tokenRevocationService.isRevoked(claims.getSubject(), claims.getIssuedAt())) {
+                accessor.setUser(new StompPrincipal(claims.get("id", Long.class), claims.getSubject()));
+            }
+        }
+        return message;
+    }
+}
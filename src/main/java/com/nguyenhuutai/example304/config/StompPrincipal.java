@@ -0,0 +1,24 @@
+package com.nguyenhuutai.example304.config;
+
+import java.security.Principal;
+
+// Principal của phiên STOMP. getName() là user id (không phải username) để
+// WebSocketService gửi /user/{employeeId}/queue/... theo Order.employeeId
+public class StompPrincipal implements Principal {
+
+    private final Long userId;
+    private final String username;
+
+    public StompPrincipal(Long userId, String username) {
+        this.userId = userId;
+        this.username = username;
+    }
+
+    @Override
+    public String getName() {
+        return String.valueOf(userId);
+    }
+
+    public Long getUserId() { return userId; }
+    public String getUsername() { return username; }
+}
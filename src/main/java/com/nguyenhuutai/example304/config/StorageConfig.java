@@ -0,0 +1,40 @@
+package com.nguyenhuutai.example304.config;
+
+import com.nguyenhuutai.example304.storage.BlobStore;
+import com.nguyenhuutai.example304.storage.LocalBlobStore;
+import com.nguyenhuutai.example304.storage.S3BlobStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.Duration;
+
+// app.storage.type=local (mặc định, thư mục file.upload-dir) hoặc s3 (AWS S3 / MinIO,
+// bắt buộc khi chạy nhiều instance sau load balancer)
+@Configuration
+public class StorageConfig {
+
+    @Bean
+    public BlobStore blobStore(@Value("${app.storage.type:local}") String type, Environment env) throws IOException {
+        if ("s3".equalsIgnoreCase(type)) {
+            HttpClient httpClient = HttpClient.newBuilder()
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build();
+            return new S3BlobStore(httpClient,
+                    env.getRequiredProperty("app.storage.s3.endpoint"),
+                    env.getRequiredProperty("app.storage.s3.bucket"),
+                    env.getProperty("app.storage.s3.region", "us-east-1"),
+                    env.getRequiredProperty("app.storage.s3.access-key"),
+                    env.getRequiredProperty("app.storage.s3.secret-key"),
+                    Clock.systemUTC());
+        }
+        if (!"local".equalsIgnoreCase(type)) {
+            throw new IllegalStateException("Unknown app.storage.type: " + type);
+        }
+        return new LocalBlobStore(Paths.get(env.getProperty("file.upload-dir", "./uploads")));
+    }
+}
@@ -0,0 +1,22 @@
+package com.nguyenhuutai.example304.config;
+
+import com.nguyenhuutai.example304.CustomUserDetailsService;
+import com.nguyenhuutai.example304.UserCacheEvictionInterceptor;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Interceptor dùng chung cho SessionFactory; service lấy lười vì nó phụ thuộc repository,
+// tức là phụ thuộc chính EntityManagerFactory đang được dựng
+@Configuration
+public class UserCacheConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer userCacheEvictionCustomizer(
+            ObjectProvider<CustomUserDetailsService> userDetailsService) {
+        return properties -> properties.put(AvailableSettings.INTERCEPTOR,
+                new UserCacheEvictionInterceptor(userDetailsService));
+    }
+}
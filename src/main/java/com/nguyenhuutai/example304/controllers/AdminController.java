@@ -1,13 +1,23 @@
 package com.nguyenhuutai.example304.controllers;
 
+import com.nguyenhuutai.example304.CustomUserDetailsService;
 import com.nguyenhuutai.example304.model.*;
+import com.nguyenhuutai.example304.security.jwt.TokenRevocationService;
 import com.nguyenhuutai.example304.security.services.*;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Optional;
 
@@ -22,15 +32,39 @@ public class AdminController {
     private final PromotionService promotionService;
     private final ReportService reportService;
     private final FileStorageService fileStorageService;
+    private final OrderTotalReconciliationService reconciliationService;
+    private final TokenRevocationService tokenRevocationService;
+    private final CustomUserDetailsService userDetailsService;
+    private final ExportService exportService;
+    private final SalesAnalyticsService salesAnalyticsService;
+    private final WebSocketService webSocketService;
+    private final DomainEventPublisher eventPublisher;
+
+    @Value("${app.export.timeout-ms:1800000}")
+    private long exportTimeoutMs;
 
     public AdminController(ProductService productService, CategoryService categoryService,
                           PromotionService promotionService, ReportService reportService,
-                          FileStorageService fileStorageService) {
+                          FileStorageService fileStorageService,
+                          OrderTotalReconciliationService reconciliationService,
+                          TokenRevocationService tokenRevocationService,
+                          CustomUserDetailsService userDetailsService,
+                          ExportService exportService,
+                          SalesAnalyticsService salesAnalyticsService,
+                          WebSocketService webSocketService,
+                          DomainEventPublisher eventPublisher) {
         this.productService = productService;
         this.categoryService = categoryService;
         this.promotionService = promotionService;
         this.reportService = reportService;
         this.fileStorageService = fileStorageService;
+        this.reconciliationService = reconciliationService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.userDetailsService = userDetailsService;
+        this.exportService = exportService;
+        this.salesAnalyticsService = salesAnalyticsService;
+        this.webSocketService = webSocketService;
+        this.eventPublisher = eventPublisher;
     }
 
     // === PRODUCT MANAGEMENT ===
@@ -140,6 +174,145 @@ public class AdminController {
         );
         return ResponseEntity.ok(report);
     }
+
+    // groupBy: hour | day | week | month; from/to dạng yyyy-MM-dd, tính cả ngày to
+    @GetMapping("/reports/revenue/series")
+    public ResponseEntity<Map<String, Object>> getRevenueSeries(
+            @RequestParam String from,
+            @RequestParam String to,
+            @RequestParam(defaultValue = "day") String groupBy) {
+        Map<String, Object> report = reportService.getRevenueSeries(
+            LocalDate.parse(from), LocalDate.parse(to),
+            RevenueRollupService.GroupBy.valueOf(groupBy.toUpperCase())
+        );
+        return ResponseEntity.ok(report);
+    }
+
+    @PostMapping("/reports/revenue/rollups/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildRevenueRollups(
+            @RequestParam String from,
+            @RequestParam String to) {
+        return ResponseEntity.ok(reportService.rebuildRevenueRollups(LocalDate.parse(from), LocalDate.parse(to)));
+    }
+
+    // === SALES ANALYTICS === (from/to dạng yyyy-MM-dd, tính cả ngày to)
+    @GetMapping("/reports/top-products")
+    public ResponseEntity<List<Map<String, Object>>> getTopProducts(
+            @RequestParam String from,
+            @RequestParam String to,
+            @RequestParam(defaultValue = "quantity") String by,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(salesAnalyticsService.getTopProducts(LocalDate.parse(from), LocalDate.parse(to),
+                SalesAnalyticsService.Metric.valueOf(by.toUpperCase()), limit));
+    }
+
+    @GetMapping("/reports/category-sales")
+    public ResponseEntity<List<Map<String, Object>>> getCategorySales(
+            @RequestParam String from,
+            @RequestParam String to) {
+        return ResponseEntity.ok(salesAnalyticsService.getCategorySales(LocalDate.parse(from), LocalDate.parse(to)));
+    }
+
+    @GetMapping("/reports/hourly-heatmap")
+    public ResponseEntity<Map<String, Object>> getHourlyHeatmap(
+            @RequestParam String from,
+            @RequestParam String to) {
+        return ResponseEntity.ok(salesAnalyticsService.getHourlyHeatmap(LocalDate.parse(from), LocalDate.parse(to)));
+    }
+
+    @PostMapping("/reports/sales/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildSalesAnalytics(
+            @RequestParam String from,
+            @RequestParam String to) {
+        return ResponseEntity.ok(salesAnalyticsService.rebuild(LocalDate.parse(from), LocalDate.parse(to)));
+    }
+
+    // === EXPORTS ===
+    // from/to dạng yyyy-MM-dd (tính cả ngày to), format: csv | ndjson
+    @GetMapping("/exports/bills")
+    public WebAsyncTask<Void> exportBills(
+            @RequestParam String from,
+            @RequestParam String to,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            HttpServletResponse response) {
+        LocalDate fromDate = LocalDate.parse(from);
+        LocalDate toDate = LocalDate.parse(to);
+        ExportService.Format exportFormat = ExportService.Format.valueOf(format.toUpperCase());
+        return exportTask(response, ExportService.fileName("bills", fromDate, toDate, exportFormat, gzip), exportFormat, gzip,
+                out -> exportService.exportBills(fromDate, toDate, exportFormat, gzip, out));
+    }
+
+    @GetMapping("/exports/order-items")
+    public WebAsyncTask<Void> exportOrderItems(
+            @RequestParam String from,
+            @RequestParam String to,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            HttpServletResponse response) {
+        LocalDate fromDate = LocalDate.parse(from);
+        LocalDate toDate = LocalDate.parse(to);
+        ExportService.Format exportFormat = ExportService.Format.valueOf(format.toUpperCase());
+        return exportTask(response, ExportService.fileName("order_items", fromDate, toDate, exportFormat, gzip), exportFormat, gzip,
+                out -> exportService.exportOrderItems(fromDate, toDate, exportFormat, gzip, out));
+    }
+
+    // Export chạy lâu hơn timeout async mặc định (30s) nên đặt timeout riêng cho task này,
+    // các request async khác vẫn giữ timeout mặc định
+    private WebAsyncTask<Void> exportTask(HttpServletResponse response, String fileName, ExportService.Format format,
+            boolean gzip, StreamingResponseBody body) {
+        MediaType contentType = gzip ? MediaType.parseMediaType("application/gzip")
+                : format == ExportService.Format.CSV ? MediaType.parseMediaType("text/csv;charset=UTF-8")
+                : MediaType.parseMediaType("application/x-ndjson");
+        response.setContentType(contentType.toString());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"");
+        return new WebAsyncTask<>(exportTimeoutMs, () -> {
+            body.writeTo(response.getOutputStream());
+            response.flushBuffer();
+            return null;
+        });
+    }
+
+    // === ORDER TOTAL RECONCILIATION ===
+    @PostMapping("/orders/reconcile-totals")
+    public ResponseEntity<Map<String, Object>> reconcileOrderTotals(
+            @RequestParam(required = false) String since,
+            @RequestParam(defaultValue = "false") boolean repair) {
+        LocalDateTime from = since != null ? LocalDateTime.parse(since) : LocalDateTime.now().minusDays(30);
+        return ResponseEntity.ok(reconciliationService.reconcile(from, repair));
+    }
+
+    // === USER SESSIONS ===
+    // Token đã phát cho user này bị từ chối ngay, user phải đăng nhập lại
+    @PostMapping("/users/{username}/revoke-tokens")
+    public ResponseEntity<?> revokeTokens(@PathVariable String username) {
+        if (!tokenRevocationService.revokeTokensOf(username)) {
+            return ResponseEntity.notFound().build();
+        }
+        userDetailsService.evict(username);
+        return ResponseEntity.ok().build();
+    }
+
+    // === CACHE METRICS ===
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("users", userDetailsService.cacheStats());
+        stats.put("menu", productService.menuCacheStats());
+        stats.put("uploads", fileStorageService.hotCacheStats());
+        return ResponseEntity.ok(stats);
+    }
+
+    @GetMapping("/websocket/stats")
+    public ResponseEntity<Map<String, Object>> getWebSocketStats() {
+        return ResponseEntity.ok(webSocketService.stats());
+    }
+
+    @GetMapping("/events/stats")
+    public ResponseEntity<Map<String, Object>> getDomainEventStats() {
+        return ResponseEntity.ok(eventPublisher.stats());
+    }
+
     // === GET PRODUCTS ===
 @GetMapping("/products")
 public ResponseEntity<List<Product>> getAllProducts() {
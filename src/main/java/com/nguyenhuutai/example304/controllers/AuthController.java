@@ -1,5 +1,6 @@
 package com.nguyenhuutai.example304.controllers;
 
+import com.nguyenhuutai.example304.CustomUserDetailsService;
 import com.nguyenhuutai.example304.repository.UserRepository;
 import com.nguyenhuutai.example304.repository.RoleRepository;
 import com.nguyenhuutai.example304.dto.LoginDto;
@@ -8,15 +9,15 @@ import com.nguyenhuutai.example304.model.User;
 import com.nguyenhuutai.example304.model.Role;
 import com.nguyenhuutai.example304.model.ERole;
 import com.nguyenhuutai.example304.security.jwt.JwtUtils;
+import com.nguyenhuutai.example304.security.services.PasswordHashingService;
 import com.nguyenhuutai.example304.security.services.UserDetailsImpl;
 import com.nguyenhuutai.example304.payload.response.JwtResponse;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -26,6 +27,9 @@ import org.springframework.web.bind.annotation.RestController;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
 @RestController
@@ -37,21 +41,27 @@ public class AuthController {
     private final PasswordEncoder passwordEncoder;
     private final JwtUtils jwtUtils;
     private final AuthenticationManager authenticationManager; // THÊM
+    private final CustomUserDetailsService userDetailsService;
+    private final PasswordHashingService passwordHashingService;
 
     public AuthController(UserRepository userRepository,
             RoleRepository roleRepository,
             PasswordEncoder passwordEncoder,
             JwtUtils jwtUtils,
-            AuthenticationManager authenticationManager) { // THÊM
+            AuthenticationManager authenticationManager, // THÊM
+            CustomUserDetailsService userDetailsService,
+            PasswordHashingService passwordHashingService) {
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
         this.passwordEncoder = passwordEncoder;
         this.jwtUtils = jwtUtils;
         this.authenticationManager = authenticationManager; // THÊM
+        this.userDetailsService = userDetailsService;
+        this.passwordHashingService = passwordHashingService;
     }
 
     @PostMapping("register")
-    public ResponseEntity<String> register(@RequestBody RegisterDto registerDto) {
+    public CompletableFuture<ResponseEntity<String>> register(@RequestBody RegisterDto registerDto) {
         System.out.println("=== REGISTER ===");
         System.out.println("Username: " + registerDto.getUsername());
         System.out.println("Email: " + registerDto.getEmail());
@@ -59,18 +69,15 @@ public class AuthController {
         System.out.println("Requested Roles: " + registerDto.getRoles());
 
         if (userRepository.existsByUsername(registerDto.getUsername())) {
-            return new ResponseEntity<>("Username is taken!", HttpStatus.BAD_REQUEST);
+            return CompletableFuture.completedFuture(
+                    new ResponseEntity<>("Username is taken!", HttpStatus.BAD_REQUEST));
         }
 
         if (userRepository.existsByEmail(registerDto.getEmail())) {
-            return new ResponseEntity<>("Email is already in use!", HttpStatus.BAD_REQUEST);
+            return CompletableFuture.completedFuture(
+                    new ResponseEntity<>("Email is already in use!", HttpStatus.BAD_REQUEST));
         }
 
-        User user = new User();
-        user.setUsername(registerDto.getUsername());
-        user.setEmail(registerDto.getEmail());
-        user.setPassword(passwordEncoder.encode(registerDto.getPassword()));
-
         Set<Role> roles = new HashSet<>();
         
         // XỬ LÝ ROLE THEO REQUEST
@@ -94,44 +101,68 @@ public class AuthController {
                     System.out.println("Assigning role: " + roleName);
                 } catch (IllegalArgumentException e) {
                     System.out.println("Invalid role requested: " + roleName);
-                    return new ResponseEntity<>("Invalid role: " + roleName, HttpStatus.BAD_REQUEST);
+                    return CompletableFuture.completedFuture(
+                            new ResponseEntity<>("Invalid role: " + roleName, HttpStatus.BAD_REQUEST));
                 }
             }
         }
 
-        user.setRoles(roles);
-        User savedUser = userRepository.save(user);
-
-        System.out.println("User registered successfully with ID: " + savedUser.getId());
-        System.out.println("Assigned roles: " + roles.stream()
-                .map(role -> role.getName().name())
-                .collect(Collectors.toList()));
-        return new ResponseEntity<>("User registered success!", HttpStatus.OK);
+        // Hash trên pool BCrypt riêng, không giữ thread request. Lưu user chạy tiếp trên pool
+        // mặc định (thenApplyAsync) để thread BCrypt không phải chờ DB mà nhận ngay hash kế tiếp
+        try {
+            return passwordHashingService.submit(() -> passwordEncoder.encode(registerDto.getPassword()))
+                    .thenApplyAsync(encodedPassword -> {
+                        User user = new User();
+                        user.setUsername(registerDto.getUsername());
+                        user.setEmail(registerDto.getEmail());
+                        user.setPassword(encodedPassword);
+                        user.setRoles(roles);
+                        User savedUser = userRepository.save(user);
+                        userDetailsService.evict(savedUser.getUsername());
+
+                        System.out.println("User registered successfully with ID: " + savedUser.getId());
+                        System.out.println("Assigned roles: " + roles.stream()
+                                .map(role -> role.getName().name())
+                                .collect(Collectors.toList()));
+                        return new ResponseEntity<>("User registered success!", HttpStatus.OK);
+                    });
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(tooManyRequests());
+        }
     }
 
     @PostMapping("login")
-    public ResponseEntity<?> login(@RequestBody LoginDto loginDto) {
+    public CompletableFuture<ResponseEntity<?>> login(@RequestBody LoginDto loginDto) {
         try {
-            // DÙNG AUTHENTICATION MANAGER
-            Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(loginDto.getUsername(), loginDto.getPassword())
-            );
-            
-            SecurityContextHolder.getContext().setAuthentication(authentication);
-            String jwt = jwtUtils.generateJwtToken(authentication); // Dùng method có Authentication
-            
-            UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
-            List<String> roles = userDetails.getAuthorities().stream()
-                    .map(item -> item.getAuthority())
-                    .collect(Collectors.toList());
-
-            return ResponseEntity.ok(new JwtResponse(jwt, userDetails.getId(), 
-                    userDetails.getUsername(), userDetails.getEmail(), roles));
-
-        } catch (Exception e) {
-            System.out.println("Login error: " + e.getMessage());
-            return new ResponseEntity<>("Invalid username or password! Error: " + e.getMessage(),
-                    HttpStatus.UNAUTHORIZED);
+            // DÙNG AUTHENTICATION MANAGER - BCrypt verify chạy trên pool hashing,
+            // thread Tomcat được trả về ngay trong lúc chờ
+            return passwordHashingService.submit(() -> authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(loginDto.getUsername(), loginDto.getPassword())))
+                    .<ResponseEntity<?>>thenApply(authentication -> {
+                        String jwt = jwtUtils.generateJwtToken(authentication); // Dùng method có Authentication
+
+                        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
+                        List<String> roles = userDetails.getAuthorities().stream()
+                                .map(item -> item.getAuthority())
+                                .collect(Collectors.toList());
+
+                        return ResponseEntity.ok(new JwtResponse(jwt, userDetails.getId(),
+                                userDetails.getUsername(), userDetails.getEmail(), roles));
+                    })
+                    .exceptionally(ex -> {
+                        Throwable e = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                        System.out.println("Login error: " + e.getMessage());
+                        return new ResponseEntity<>("Invalid username or password! Error: " + e.getMessage(),
+                                HttpStatus.UNAUTHORIZED);
+                    });
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(tooManyRequests());
         }
     }
+
+    private <T> ResponseEntity<T> tooManyRequests() {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(passwordHashingService.getRetryAfterSeconds()))
+                .build();
+    }
 }
\ No newline at end of file
@@ -1,10 +1,17 @@
 package com.nguyenhuutai.example304.controllers;
 
 import com.nguyenhuutai.example304.model.*;
+import com.nguyenhuutai.example304.payload.response.ProductSuggestion;
 import com.nguyenhuutai.example304.security.services.*;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/customer")
@@ -14,27 +21,52 @@ public class CustomerController {
     private final OrderService orderService;
     private final ProductService productService;
     private final CoffeeTableService tableService;
-    private final WebSocketService webSocketService;
 
     public CustomerController(OrderService orderService, ProductService productService,
-                            CoffeeTableService tableService, WebSocketService webSocketService) {
+                            CoffeeTableService tableService) {
         this.orderService = orderService;
         this.productService = productService;
         this.tableService = tableService;
-        this.webSocketService = webSocketService;
     }
 
     // === MENU ===
     @GetMapping("/menu")
-    public ResponseEntity<List<Product>> getMenu() {
-        List<Product> products = productService.getAvailableProducts();
-        return ResponseEntity.ok(products);
+    public ResponseEntity<byte[]> getMenu(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return cachedJson(productService.getMenuSnapshot(), ifNoneMatch);
     }
 
     @GetMapping("/categories")
-    public ResponseEntity<List<Category>> getCategories() {
-        List<Category> categories = productService.getAllCategories();
-        return ResponseEntity.ok(categories);
+    public ResponseEntity<byte[]> getCategories(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return cachedJson(productService.getCategoriesSnapshot(), ifNoneMatch);
+    }
+
+    // Trả JSON dựng sẵn; client gửi lại ETag cũ mà menu chưa đổi -> 304, không body
+    private ResponseEntity<byte[]> cachedJson(MenuCacheService.Snapshot snapshot, String ifNoneMatch) {
+        if (snapshot.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(snapshot.getEtag()).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(snapshot.getEtag())
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(snapshot.getJson());
+    }
+
+    // === SEARCH ===
+    @GetMapping("/products/search")
+    public ResponseEntity<List<Product>> searchProducts(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(productService.searchProducts(q, Math.min(limit, 100)));
+    }
+
+    @GetMapping("/products/suggest")
+    public ResponseEntity<List<ProductSuggestion>> suggestProducts(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "8") int limit) {
+        return ResponseEntity.ok(productService.suggestProducts(q, Math.min(limit, 20)));
     }
 
     // === ORDER CREATION ===
@@ -43,17 +75,16 @@ public class CustomerController {
             @RequestParam Long tableId,
             @RequestBody List<OrderItemRequest> items) {
         try {
-            // For customer orders, we use a special employee ID or null
-            Order order = orderService.createOrder(tableId, null);
-            
-            // Add items to order
+            // Gộp các dòng trùng product để chỉ load/trừ kho một lần
+            Map<Long, Integer> quantities = new LinkedHashMap<>();
             for (OrderItemRequest item : items) {
-                orderService.addItemToOrder(order.getId(), item.getProductId(), item.getQuantity());
+                quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
             }
-            
-            // Notify employees via WebSocket
-            webSocketService.notifyNewOrder(order);
-            
+
+            // For customer orders, we use a special employee ID or null
+            // placeOrder đã tự notify employees qua WebSocket
+            Order order = orderService.placeOrder(tableId, null, quantities);
+
             return ResponseEntity.ok(order);
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
@@ -1,10 +1,12 @@
 package com.nguyenhuutai.example304.controllers;
 
 import com.nguyenhuutai.example304.model.*;
+import com.nguyenhuutai.example304.payload.response.OrderPageResponse;
 import com.nguyenhuutai.example304.security.services.*;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -28,9 +30,19 @@ public class EmployeeController {
     // === GET ALL ORDERS ===
     @PreAuthorize("hasRole('EMPLOYEE') or hasRole('MODERATOR') or hasRole('ADMIN')")
     @GetMapping("/orders")
-    public ResponseEntity<List<Order>> getAllOrders() {
-        List<Order> orders = orderService.getAllOrders();
-        return ResponseEntity.ok(orders);
+    public ResponseEntity<OrderPageResponse> getAllOrders(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) Order.OrderStatus status,
+            @RequestParam(required = false) Long tableId,
+            @RequestParam(required = false) Long employeeId,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(defaultValue = "50") int size) {
+        OrderPageResponse page = orderService.getOrders(cursor, status, tableId, employeeId,
+                from != null ? LocalDateTime.parse(from) : null,
+                to != null ? LocalDateTime.parse(to) : null,
+                size);
+        return ResponseEntity.ok(page);
     }
 
     // === CREATE ORDER ===
@@ -40,11 +52,9 @@ public class EmployeeController {
             @RequestParam Long tableId,
             @RequestParam Long employeeId) {
         try {
+            // createOrder đã đánh dấu bàn OCCUPIED và notify
             Order order = orderService.createOrder(tableId, employeeId);
 
-            // ✅ THÊM: Khi tạo order → đánh dấu bàn OCCUPIED
-            tableService.updateTableStatus(tableId, CoffeeTable.TableStatus.OCCUPIED);
-
             return ResponseEntity.ok(order);
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
@@ -66,6 +76,33 @@ public class EmployeeController {
         }
     }
 
+    @PreAuthorize("hasRole('EMPLOYEE') or hasRole('MODERATOR') or hasRole('ADMIN')")
+    @PatchMapping("/orders/{orderId}/items/{itemId}")
+    public ResponseEntity<Order> updateOrderItemQuantity(
+            @PathVariable Long orderId,
+            @PathVariable Long itemId,
+            @RequestParam Integer quantity) {
+        try {
+            Order order = orderService.updateItemQuantity(orderId, itemId, quantity);
+            return ResponseEntity.ok(order);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PreAuthorize("hasRole('EMPLOYEE') or hasRole('MODERATOR') or hasRole('ADMIN')")
+    @DeleteMapping("/orders/{orderId}/items/{itemId}")
+    public ResponseEntity<Order> removeOrderItem(
+            @PathVariable Long orderId,
+            @PathVariable Long itemId) {
+        try {
+            Order order = orderService.removeItemFromOrder(orderId, itemId);
+            return ResponseEntity.ok(order);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     // === UPDATE ORDER STATUS ===
     @PreAuthorize("hasRole('EMPLOYEE') or hasRole('MODERATOR') or hasRole('ADMIN')")
     @PatchMapping("/orders/{orderId}/status")
@@ -80,6 +117,31 @@ public class EmployeeController {
         }
     }
 
+    // === ORDER PROMOTION ===
+    @PreAuthorize("hasRole('EMPLOYEE') or hasRole('MODERATOR') or hasRole('ADMIN')")
+    @PutMapping("/orders/{orderId}/promotion/{promotionId}")
+    public ResponseEntity<Order> applyPromotion(
+            @PathVariable Long orderId,
+            @PathVariable Long promotionId) {
+        try {
+            Order order = orderService.setOrderPromotion(orderId, promotionId);
+            return ResponseEntity.ok(order);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PreAuthorize("hasRole('EMPLOYEE') or hasRole('MODERATOR') or hasRole('ADMIN')")
+    @DeleteMapping("/orders/{orderId}/promotion")
+    public ResponseEntity<Order> removePromotion(@PathVariable Long orderId) {
+        try {
+            Order order = orderService.setOrderPromotion(orderId, null);
+            return ResponseEntity.ok(order);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     // === GET PENDING ORDERS ===
     @PreAuthorize("hasRole('EMPLOYEE') or hasRole('MODERATOR') or hasRole('ADMIN')")
     @GetMapping("/orders/pending")
@@ -0,0 +1,232 @@
+package com.nguyenhuutai.example304.controllers;
+
+import com.nguyenhuutai.example304.security.services.FileStorageService;
+import com.nguyenhuutai.example304.security.services.ImageVariantService;
+import com.nguyenhuutai.example304.storage.BlobStore;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+// Phục vụ ảnh upload thay cho resource handler mặc định:
+// - file tên theo hash: Cache-Control immutable 1 năm, ETag = hash
+// - file cũ (UUID_tên): bắt browser revalidate, ETag theo size + mtime
+// - có Range thì để Spring trả 206 từ Resource; không có thì dùng sendfile của Tomcat
+//   (store local) hoặc stream từ S3; ảnh nhỏ theo hash trả từ hot cache trong RAM
+// - S3 + một Range: tự trả 206 từ ranged GET, không kéo cả object về rồi mới cắt
+// - ?size=thumb|card|full: trả bản resize; chưa sinh xong thì tạm trả ảnh gốc, cache ngắn
+@RestController
+public class UploadController {
+
+    // Tomcat NIO connector bật sendfile thì đặt attribute này = true
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable();
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePublic();
+    private static final CacheControl VARIANT_PENDING = CacheControl.maxAge(Duration.ofMinutes(1)).cachePublic();
+
+    private final FileStorageService fileStorageService;
+
+    public UploadController(FileStorageService fileStorageService) {
+        this.fileStorageService = fileStorageService;
+    }
+
+    @GetMapping("/uploads/{fileName:.+}")
+    public ResponseEntity<Resource> getUpload(@PathVariable String fileName,
+                                              @RequestParam(required = false) String size,
+                                              HttpServletRequest request) throws IOException {
+        Optional<BlobStore.BlobInfo> found = fileStorageService.stat(fileName);
+        if (found.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        CacheControl cacheControl = null;
+        if (size != null) {
+            ImageVariantService.Size variant = ImageVariantService.Size.fromKey(size);
+            if (variant == null) {
+                return ResponseEntity.badRequest().build();
+            }
+            Optional<String> variantName = fileStorageService.findVariant(fileName, variant);
+            if (variantName.isPresent()) {
+                fileName = variantName.get();
+                found = fileStorageService.stat(fileName);
+            } else {
+                // Bản resize chưa có: trả ảnh gốc nhưng không để client cache lâu trên URL này
+                cacheControl = VARIANT_PENDING;
+            }
+        }
+        BlobStore.BlobInfo info = found.orElseThrow();
+
+        boolean immutable = FileStorageService.isContentAddressed(fileName);
+        if (cacheControl == null) {
+            cacheControl = immutable ? IMMUTABLE : REVALIDATE;
+        }
+        String etag = immutable
+                ? "\"" + FileStorageService.hashOf(fileName) + "\""
+                : "\"" + Long.toHexString(info.size()) + "-" + Long.toHexString(info.lastModified()) + "\"";
+        MediaType contentType = MediaTypeFactory.getMediaType(fileName).orElse(MediaType.APPLICATION_OCTET_STREAM);
+
+        if (etagMatches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(cacheControl)
+                    .build();
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .contentType(contentType);
+
+        // Thumbnail nhỏ hay đọc: trả từ RAM
+        byte[] cached = fileStorageService.readCached(fileName, info);
+        if (cached != null) {
+            return response.body(new ByteArrayResource(cached));
+        }
+
+        Path file = fileStorageService.localPath(fileName);
+        if (file == null) {
+            // Store từ xa (S3): stream qua app
+            String range = request.getHeader(HttpHeaders.RANGE);
+            if (range != null) {
+                ResponseEntity<Resource> partial = rangedBlob(fileName, info, range, etag, cacheControl, contentType);
+                if (partial != null) {
+                    return partial;
+                }
+            }
+            // Nhiều Range: Spring cắt trên stream đầy đủ
+            return response.body(new BlobResource(fileStorageService, fileName, info, 0, info.size()));
+        }
+
+        // Zero-copy: Tomcat tự gửi file bằng sendfile sau khi controller trả về, không có body
+        if (request.getHeader(HttpHeaders.RANGE) == null
+                && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, info.size());
+            return response.contentLength(info.size()).build();
+        }
+
+        // Range (206 / 416) do Spring xử lý khi body là Resource
+        return response.body(new FileSystemResource(file));
+    }
+
+    // Variant là JPEG, hoặc PNG nếu ảnh gốc có nền trong suốt
+    // 206 cho đúng một Range (trường hợp của video/ảnh lớn); null nếu có nhiều Range.
+    // Status khác 200 nên Spring không cắt Range thêm lần nữa
+    private ResponseEntity<Resource> rangedBlob(String fileName, BlobStore.BlobInfo info, String rangeHeader,
+                                                String etag, CacheControl cacheControl, MediaType contentType) {
+        long start;
+        long end;
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+            if (ranges.size() != 1) {
+                return null;
+            }
+            start = ranges.get(0).getRangeStart(info.size());
+            end = ranges.get(0).getRangeEnd(info.size());
+        } catch (IllegalArgumentException e) {
+            return rangeNotSatisfiable(info);
+        }
+        if (start >= info.size() || end < start) {
+            return rangeNotSatisfiable(info);
+        }
+        long length = end - start + 1;
+        return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + info.size())
+                .contentType(contentType)
+                .contentLength(length)
+                .body(new BlobResource(fileStorageService, fileName, info, start, length));
+    }
+
+    private static ResponseEntity<Resource> rangeNotSatisfiable(BlobStore.BlobInfo info) {
+        return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                .header(HttpHeaders.CONTENT_RANGE, "bytes */" + info.size())
+                .build();
+    }
+
+    private static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.equals("*") || value.equals(etag) || value.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Resource đọc từ BlobStore (cả file hoặc một đoạn); mỗi lần getInputStream mở stream
+    // mới nên Spring đọc được nhiều lần (vd. tính Range)
+    private static final class BlobResource extends AbstractResource {
+        private final FileStorageService storage;
+        private final String fileName;
+        private final BlobStore.BlobInfo info;
+        private final long start;
+        private final long length;
+
+        private BlobResource(FileStorageService storage, String fileName, BlobStore.BlobInfo info,
+                             long start, long length) {
+            this.storage = storage;
+            this.fileName = fileName;
+            this.info = info;
+            this.start = start;
+            this.length = length;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            if (start == 0 && length == info.size()) {
+                return storage.open(fileName);
+            }
+            return storage.open(fileName, start, length);
+        }
+
+        @Override
+        public long contentLength() {
+            return length;
+        }
+
+        @Override
+        public long lastModified() {
+            return info.lastModified();
+        }
+
+        @Override
+        public String getFilename() {
+            return fileName;
+        }
+
+        @Override
+        public String getDescription() {
+            return "Blob [" + fileName + "]";
+        }
+    }
+}
@@ -1,30 +1,34 @@
 package com.nguyenhuutai.example304.controllers;
 
-import com.nguyenhuutai.example304.model.Order;
-import com.nguyenhuutai.example304.security.services.OrderService;
+import com.nguyenhuutai.example304.payload.request.SyncRequest;
+import com.nguyenhuutai.example304.payload.response.SyncResponse;
+import com.nguyenhuutai.example304.security.services.OrderSyncService;
 import org.springframework.messaging.handler.annotation.MessageMapping;
-import org.springframework.messaging.handler.annotation.SendTo;
+import org.springframework.messaging.simp.annotation.SendToUser;
 import org.springframework.stereotype.Controller;
-import java.util.List;
 
 @Controller
 public class WebSocketController {
 
-    private final OrderService orderService;
+    private final OrderSyncService orderSyncService;
 
-    public WebSocketController(OrderService orderService) {
-        this.orderService = orderService;
+    public WebSocketController(OrderSyncService orderSyncService) {
+        this.orderSyncService = orderSyncService;
     }
 
+    // Trước đây trả toàn bộ order PENDING (entity đầy đủ) lên /topic/orders cho mọi client
+    // mỗi lần có tablet kết nối lại; giờ chỉ trả snapshot gọn cho đúng phiên yêu cầu
     @MessageMapping("/orders.subscribe")
-    @SendTo("/topic/orders")
-    public List<Order> subscribeToOrders() {
-        return orderService.getPendingOrders();
+    @SendToUser(destinations = "/queue/sync", broadcast = false)
+    public SyncResponse subscribeToOrders() {
+        return orderSyncService.snapshot();
     }
 
-    @MessageMapping("/order.update")
-    @SendTo("/topic/order-updates")
-    public Order updateOrder(Order order) {
-        return order;
+    // Client nghe các topic chung gửi {"lastSeq": n} sau khi kết nối lại, nhận phần bị lỡ
+    // hoặc snapshot
+    @MessageMapping("/orders.sync")
+    @SendToUser(destinations = "/queue/sync", broadcast = false)
+    public SyncResponse sync(SyncRequest request) {
+        return orderSyncService.sync(request != null ? request.getLastSeq() : null);
     }
-}
\ No newline at end of file
+}
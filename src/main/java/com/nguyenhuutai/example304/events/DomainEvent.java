@@ -0,0 +1,16 @@
+package com.nguyenhuutai.example304.events;
+
+// Event nghiệp vụ ghi lại trong transaction, DomainEventPublisher phát ra sau commit.
+// Chỉ mang dữ liệu chụp lại lúc ghi, không giữ entity (listener chạy ở thread khác)
+public abstract class DomainEvent {
+
+    private final long recordedAtNanos = System.nanoTime();
+
+    public long getRecordedAtNanos() {
+        return recordedAtNanos;
+    }
+
+    public String getType() {
+        return getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,51 @@
+package com.nguyenhuutai.example304.events;
+
+import com.nguyenhuutai.example304.model.Order;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Set;
+
+public class OrderChangedEvent extends DomainEvent {
+
+    private final boolean created;
+    private final Long orderId;
+    private final Long tableId;
+    private final Long employeeId;
+    private final Order.OrderStatus status;
+    private final BigDecimal totalAmount;
+    private final LocalDateTime updatedAt;
+    // Category của các món vừa thêm/sửa/xoá (rỗng nếu chỉ đổi trạng thái)
+    private final Set<Long> categoryIds;
+
+    private OrderChangedEvent(Order order, boolean created, Set<Long> categoryIds) {
+        this.created = created;
+        this.orderId = order.getId();
+        this.tableId = order.getTable() != null ? order.getTable().getId() : null;
+        this.employeeId = order.getEmployeeId();
+        this.status = order.getStatus();
+        this.totalAmount = order.getTotalAmount();
+        this.updatedAt = order.getUpdatedAt() != null ? order.getUpdatedAt() : LocalDateTime.now();
+        this.categoryIds = categoryIds;
+    }
+
+    public static OrderChangedEvent created(Order order, Set<Long> categoryIds) {
+        return new OrderChangedEvent(order, true, Set.copyOf(categoryIds));
+    }
+
+    public static OrderChangedEvent updated(Order order) {
+        return new OrderChangedEvent(order, false, Set.of());
+    }
+
+    public static OrderChangedEvent updated(Order order, Set<Long> categoryIds) {
+        return new OrderChangedEvent(order, false, Set.copyOf(categoryIds));
+    }
+
+    public boolean isCreated() { return created; }
+    public Long getOrderId() { return orderId; }
+    public Long getTableId() { return tableId; }
+    public Long getEmployeeId() { return employeeId; }
+    public Order.OrderStatus getStatus() { return status; }
+    public BigDecimal getTotalAmount() { return totalAmount; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public Set<Long> getCategoryIds() { return categoryIds; }
+}
@@ -0,0 +1,15 @@
+package com.nguyenhuutai.example304.events;
+
+public class TableStatusChangedEvent extends DomainEvent {
+
+    private final Long tableId;
+    private final String status;
+
+    public TableStatusChangedEvent(Long tableId, String status) {
+        this.tableId = tableId;
+        this.status = status;
+    }
+
+    public Long getTableId() { return tableId; }
+    public String getStatus() { return status; }
+}
@@ -4,9 +4,11 @@ import jakarta.persistence.*;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @Entity
-@Table(name = "categories")
+@Table(name = "categories", indexes = @Index(name = "idx_categories_image_url", columnList = "image_url"))
 public class Category {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -21,6 +23,10 @@ public class Category {
     @Column(name = "image_url", length = 255)
     private String imageUrl;
 
+    // Ảnh đã resize: "thumb=/uploads/..-thumb.jpg,card=...", ImageVariantService ghi sau khi upload
+    @Column(name = "image_variants", length = 512)
+    private String imageVariants;
+
     @CreationTimestamp
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
@@ -44,7 +50,26 @@ public class Category {
     public String getDescription() { return description; }
     public void setDescription(String description) { this.description = description; }
     public String getImageUrl() { return imageUrl; }
-    public void setImageUrl(String imageUrl) { this.imageUrl = imageUrl; }
+    public void setImageUrl(String imageUrl) {
+        // Ảnh mới thì bỏ danh sách variant của ảnh cũ
+        if (imageUrl != null && !imageUrl.equals(this.imageUrl)) {
+            this.imageVariants = null;
+        }
+        this.imageUrl = imageUrl;
+    }
+    // size -> url; client chọn thumb/card/full thay vì tải ảnh gốc
+    public Map<String, String> getImageVariants() {
+        Map<String, String> variants = new LinkedHashMap<>();
+        if (imageVariants != null) {
+            for (String entry : imageVariants.split(",")) {
+                int eq = entry.indexOf('=');
+                if (eq > 0) {
+                    variants.put(entry.substring(0, eq), entry.substring(eq + 1));
+                }
+            }
+        }
+        return variants;
+    }
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
     public LocalDateTime getUpdatedAt() { return updatedAt; }
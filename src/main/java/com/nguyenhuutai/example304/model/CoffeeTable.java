@@ -1,12 +1,14 @@
 package com.nguyenhuutai.example304.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "tables")
+@Table(name = "tables", indexes = @Index(name = "idx_tables_status", columnList = "status"))
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class CoffeeTable {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
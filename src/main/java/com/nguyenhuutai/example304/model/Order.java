@@ -1,5 +1,6 @@
 package com.nguyenhuutai.example304.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
@@ -7,13 +8,21 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "orders")
+// Index tạo trong db/migration/V3__hot_query_indexes.sql
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_status_created", columnList = "status, created_at"),
+        @Index(name = "idx_orders_created_at", columnList = "created_at"),
+        @Index(name = "idx_orders_table_status", columnList = "table_id, status"),
+        @Index(name = "idx_orders_employee", columnList = "employee_id")
+})
+// Quan hệ LAZY trả về proxy: bỏ field nội bộ của proxy khi serialize JSON
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Order {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @TimeOrderedId
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "table_id")
     private CoffeeTable table;
 
@@ -24,10 +33,14 @@ public class Order {
     @Column(name = "status")
     private OrderStatus status;
 
+    // Tổng tiền món trước giảm giá, cộng dồn mỗi lần thêm/sửa/xoá món
+    @Column(name = "subtotal_amount", precision = 10, scale = 2)
+    private BigDecimal subtotalAmount;
+
     @Column(name = "total_amount", precision = 10, scale = 2)
     private BigDecimal totalAmount;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "promotion_id")
     private Promotion promotion;
 
@@ -54,6 +67,7 @@ public class Order {
         this.table = table;
         this.employeeId = employeeId;
         this.status = OrderStatus.PENDING;
+        this.subtotalAmount = BigDecimal.ZERO;
         this.totalAmount = BigDecimal.ZERO;
     }
 
@@ -90,6 +104,14 @@ public class Order {
         this.status = status;
     }
 
+    public BigDecimal getSubtotalAmount() {
+        return subtotalAmount;
+    }
+
+    public void setSubtotalAmount(BigDecimal subtotalAmount) {
+        this.subtotalAmount = subtotalAmount;
+    }
+
     public BigDecimal getTotalAmount() {
         return totalAmount;
     }
@@ -1,13 +1,20 @@
 package com.nguyenhuutai.example304.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        @Index(name = "idx_products_archive", columnList = "archive"),
+        @Index(name = "idx_products_image_url", columnList = "image_url")
+})
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Product {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -29,6 +36,10 @@ public class Product {
     @Column(name = "image_url", length = 255)
     private String imageUrl;
 
+    // Ảnh đã resize: "thumb=/uploads/..-thumb.jpg,card=...", ImageVariantService ghi sau khi upload
+    @Column(name = "image_variants", length = 512)
+    private String imageVariants;
+
     @Column(name = "stock_quantity")
     private Integer stockQuantity;
 
@@ -64,7 +75,26 @@ public class Product {
     public Category getCategory() { return category; }
     public void setCategory(Category category) { this.category = category; }
     public String getImageUrl() { return imageUrl; }
-    public void setImageUrl(String imageUrl) { this.imageUrl = imageUrl; }
+    public void setImageUrl(String imageUrl) {
+        // Ảnh mới thì bỏ danh sách variant của ảnh cũ
+        if (imageUrl != null && !imageUrl.equals(this.imageUrl)) {
+            this.imageVariants = null;
+        }
+        this.imageUrl = imageUrl;
+    }
+    // size -> url; client chọn thumb/card/full thay vì tải ảnh gốc
+    public Map<String, String> getImageVariants() {
+        Map<String, String> variants = new LinkedHashMap<>();
+        if (imageVariants != null) {
+            for (String entry : imageVariants.split(",")) {
+                int eq = entry.indexOf('=');
+                if (eq > 0) {
+                    variants.put(entry.substring(0, eq), entry.substring(eq + 1));
+                }
+            }
+        }
+        return variants;
+    }
     public Integer getStockQuantity() { return stockQuantity; }
     public void setStockQuantity(Integer stockQuantity) { this.stockQuantity = stockQuantity; }
     public Boolean getArchive() { return archive; }
@@ -1,5 +1,6 @@
 package com.nguyenhuutai.example304.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
@@ -8,7 +9,9 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "promotions")
+@Table(name = "promotions",
+        indexes = @Index(name = "idx_promotions_active_dates", columnList = "is_active, start_date, end_date"))
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Promotion {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -3,7 +3,8 @@ package com.nguyenhuutai.example304.model;
 import jakarta.persistence.*;
 
 @Entity
-@Table(name = "promotion_products")
+@Table(name = "promotion_products",
+        uniqueConstraints = @UniqueConstraint(name = "uk_promotion_product", columnNames = {"promotion_id", "product_id"}))
 public class PromotionProduct {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
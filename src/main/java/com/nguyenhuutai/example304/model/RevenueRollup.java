@@ -0,0 +1,57 @@
+package com.nguyenhuutai.example304.model;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Doanh thu cộng dồn theo giờ/ngày và phương thức thanh toán, ghi kèm khi bill
+// COMPLETED (upsert) và dựng lại từ bảng bills bằng job backfill
+@Entity
+@Table(name = "revenue_rollups",
+        uniqueConstraints = @UniqueConstraint(name = "uk_revenue_rollup_bucket",
+                columnNames = {"granularity", "bucket_start", "payment_method"}))
+public class RevenueRollup {
+    // Bill không có phương thức thanh toán vẫn phải có key để upsert (NULL không unique)
+    public static final String UNSPECIFIED_METHOD = "UNSPECIFIED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "granularity", nullable = false, length = 8)
+    private Granularity granularity;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(name = "payment_method", nullable = false, length = 16)
+    private String paymentMethod;
+
+    @Column(name = "revenue", precision = 14, scale = 2, nullable = false)
+    private BigDecimal revenue = BigDecimal.ZERO;
+
+    @Column(name = "bill_count", nullable = false)
+    private long billCount;
+
+    public enum Granularity {
+        HOUR, DAY
+    }
+
+    // Constructors
+    public RevenueRollup() {}
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public Granularity getGranularity() { return granularity; }
+    public void setGranularity(Granularity granularity) { this.granularity = granularity; }
+    public LocalDateTime getBucketStart() { return bucketStart; }
+    public void setBucketStart(LocalDateTime bucketStart) { this.bucketStart = bucketStart; }
+    public String getPaymentMethod() { return paymentMethod; }
+    public void setPaymentMethod(String paymentMethod) { this.paymentMethod = paymentMethod; }
+    public BigDecimal getRevenue() { return revenue; }
+    public void setRevenue(BigDecimal revenue) { this.revenue = revenue; }
+    public long getBillCount() { return billCount; }
+    public void setBillCount(long billCount) { this.billCount = billCount; }
+}
@@ -0,0 +1,43 @@
+package com.nguyenhuutai.example304.model;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Số lượng / doanh thu theo (ngày, giờ trong ngày) để dựng heatmap thứ × giờ
+@Entity
+@Table(name = "sales_hourly",
+        uniqueConstraints = @UniqueConstraint(name = "uk_sales_hourly",
+                columnNames = {"sales_date", "hour_of_day"}))
+public class SalesHourly {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "sales_date", nullable = false)
+    private LocalDate salesDate;
+
+    @Column(name = "hour_of_day", nullable = false)
+    private int hourOfDay;
+
+    @Column(name = "quantity", nullable = false)
+    private long quantity;
+
+    @Column(name = "revenue", precision = 14, scale = 2, nullable = false)
+    private BigDecimal revenue = BigDecimal.ZERO;
+
+    // Constructors
+    public SalesHourly() {}
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public LocalDate getSalesDate() { return salesDate; }
+    public void setSalesDate(LocalDate salesDate) { this.salesDate = salesDate; }
+    public int getHourOfDay() { return hourOfDay; }
+    public void setHourOfDay(int hourOfDay) { this.hourOfDay = hourOfDay; }
+    public long getQuantity() { return quantity; }
+    public void setQuantity(long quantity) { this.quantity = quantity; }
+    public BigDecimal getRevenue() { return revenue; }
+    public void setRevenue(BigDecimal revenue) { this.revenue = revenue; }
+}
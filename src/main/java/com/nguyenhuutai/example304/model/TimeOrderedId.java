@@ -0,0 +1,16 @@
+package com.nguyenhuutai.example304.model;
+
+import org.hibernate.annotations.IdGeneratorType;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Id sinh trong app thay cho AUTO_INCREMENT: Hibernate biết id trước khi INSERT nên
+// gom được nhiều INSERT thành một batch (IDENTITY bắt buộc INSERT từng dòng ngay lúc persist).
+// Dùng cho bảng ghi nhiều: orders, order_items, bills, payments
+@IdGeneratorType(TimeOrderedIdGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface TimeOrderedId {
+}
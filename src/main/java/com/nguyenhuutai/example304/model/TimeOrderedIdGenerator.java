@@ -0,0 +1,88 @@
+package com.nguyenhuutai.example304.model;
+
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.AnnotationBasedGenerator;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+import org.hibernate.generator.GeneratorCreationContext;
+import java.lang.reflect.Member;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Id 53 bit (vừa Number.MAX_SAFE_INTEGER của JavaScript nên frontend đọc JSON không mất số):
+//   41 bit mili giây từ 2024-01-01 (~69 năm) | 4 bit node | 8 bit sequence (256 id / ms / node)
+// Tăng dần theo thời gian nên INSERT luôn nối vào cuối index khoá chính như AUTO_INCREMENT.
+// Id cũ sinh bởi AUTO_INCREMENT nhỏ hơn rất nhiều nên không trùng.
+// Node (0-15) phải khác nhau giữa các instance: đặt bằng spring.jpa.properties.app.id.node (biến môi
+// trường APP_ID_NODE). Không đặt thì không khởi động - không đoán từ hostname, vì hai máy
+// khác nhau có thể ra cùng số (ip-10-0-1-12, ip-10-0-2-12) rồi cấp trùng khoá chính
+public class TimeOrderedIdGenerator implements BeforeExecutionGenerator, AnnotationBasedGenerator<TimeOrderedId> {
+
+    public static final String NODE_SETTING = "app.id.node";
+
+    static final long EPOCH_MILLIS = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    static final int NODE_BITS = 4;
+    static final int SEQUENCE_BITS = 8;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    static final long MAX_NODE = (1L << NODE_BITS) - 1;
+
+    private long node;
+    // (mili giây << SEQUENCE_BITS) | sequence của id cuối cùng đã cấp
+    private final AtomicLong last = new AtomicLong();
+
+    // Hibernate tạo generator qua bean container của Spring nên chỉ để constructor rỗng,
+    // cấu hình đọc trong initialize()
+    @Override
+    public void initialize(TimeOrderedId annotation, Member member, GeneratorCreationContext context) {
+        Object setting = context.getServiceRegistry().requireService(ConfigurationService.class)
+                .getSettings().get(NODE_SETTING);
+        this.node = nodeFromSetting(setting == null ? null : setting.toString());
+    }
+
+    static long nodeFromSetting(String setting) {
+        if (setting == null || setting.isBlank()) {
+            throw new IllegalStateException(NODE_SETTING + " is not set; set APP_ID_NODE (0-" + MAX_NODE
+                    + ") to a different value on each instance");
+        }
+        return parseNode(setting);
+    }
+
+    static TimeOrderedIdGenerator forNode(long node) {
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator();
+        generator.node = parseNode(String.valueOf(node));
+        return generator;
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue,
+            EventType eventType) {
+        return next(System.currentTimeMillis());
+    }
+
+    // Hết 256 sequence trong 1 ms hoặc đồng hồ lùi lại thì mượn mili giây kế tiếp
+    // thay vì chờ, nên id vẫn tăng dần và không trùng trong một lần chạy.
+    // Mốc last chỉ nằm trong RAM: đồng hồ bị chỉnh lùi rồi restart (hoặc restart nhanh hơn
+    // số ms đã mượn) thì có thể cấp lại id đã dùng -> INSERT lỗi trùng khoá chính
+    long next(long nowMillis) {
+        long now = (nowMillis - EPOCH_MILLIS) << SEQUENCE_BITS;
+        long state = last.updateAndGet(previous -> now > previous ? now : previous + 1);
+        long millis = state >>> SEQUENCE_BITS;
+        return (millis << (NODE_BITS + SEQUENCE_BITS)) | (node << SEQUENCE_BITS) | (state & SEQUENCE_MASK);
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+
+    private static long parseNode(String value) {
+        long node = Long.parseLong(value.trim());
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalArgumentException(NODE_SETTING + " must be between 0 and " + MAX_NODE);
+        }
+        return node;
+    }
+}
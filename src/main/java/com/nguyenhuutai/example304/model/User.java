@@ -32,6 +32,10 @@ public class User {
     @Size(max = 120)
     private String password;
 
+    // Epoch giây: token có iat nhỏ hơn mốc này bị từ chối (TokenRevocationService)
+    @Column(name = "tokens_valid_after")
+    private Long tokensValidAfter;
+
     @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(name = "user_roles",
         joinColumns = @JoinColumn(name = "user_id"),
@@ -79,6 +83,14 @@ public class User {
         this.password = password;
     }
 
+    public Long getTokensValidAfter() {
+        return tokensValidAfter;
+    }
+
+    public void setTokensValidAfter(Long tokensValidAfter) {
+        this.tokensValidAfter = tokensValidAfter;
+    }
+
     public Set<Role> getRoles() {
         return roles;
     }
@@ -0,0 +1,15 @@
+package com.nguyenhuutai.example304.payload.request;
+
+public class SyncRequest {
+    // seq cuối cùng client đã nhận trên các topic chung; null = chưa có gì, cần snapshot.
+    // Client chỉ nghe topic theo bàn / quầy không có seq liên tục nên luôn gửi null
+    private Long lastSeq;
+
+    public Long getLastSeq() {
+        return lastSeq;
+    }
+
+    public void setLastSeq(Long lastSeq) {
+        this.lastSeq = lastSeq;
+    }
+}
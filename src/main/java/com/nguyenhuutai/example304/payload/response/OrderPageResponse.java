@@ -0,0 +1,22 @@
+package com.nguyenhuutai.example304.payload.response;
+
+import java.util.List;
+
+public class OrderPageResponse {
+    private List<OrderSummary> items;
+    // id của order cuối trang; gửi lại qua ?cursor= để lấy trang tiếp, null = hết dữ liệu
+    private Long nextCursor;
+
+    public OrderPageResponse(List<OrderSummary> items, Long nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<OrderSummary> getItems() {
+        return items;
+    }
+
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+}
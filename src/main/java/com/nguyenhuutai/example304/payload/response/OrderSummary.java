@@ -0,0 +1,62 @@
+package com.nguyenhuutai.example304.payload.response;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import com.nguyenhuutai.example304.model.Order;
+
+// Bản rút gọn của Order cho danh sách: không kéo theo entity table/promotion
+public class OrderSummary {
+    private Long id;
+    private Long tableId;
+    private String tableName;
+    private Long employeeId;
+    private Order.OrderStatus status;
+    private BigDecimal totalAmount;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    public OrderSummary(Long id, Long tableId, String tableName, Long employeeId, Order.OrderStatus status,
+            BigDecimal totalAmount, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.id = id;
+        this.tableId = tableId;
+        this.tableName = tableName;
+        this.employeeId = employeeId;
+        this.status = status;
+        this.totalAmount = totalAmount;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getTableId() {
+        return tableId;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public Long getEmployeeId() {
+        return employeeId;
+    }
+
+    public Order.OrderStatus getStatus() {
+        return status;
+    }
+
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+}
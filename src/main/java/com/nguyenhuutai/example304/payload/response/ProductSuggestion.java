@@ -0,0 +1,19 @@
+package com.nguyenhuutai.example304.payload.response;
+
+public class ProductSuggestion {
+    private Long id;
+    private String name;
+
+    public ProductSuggestion(Long id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,73 @@
+package com.nguyenhuutai.example304.payload.response;
+
+import java.util.List;
+
+// Trả lời /app/orders.sync: DELTA = chỉ các message bị lỡ (seq > lastSeq của client);
+// SNAPSHOT = trạng thái hiện tại của order đang phục vụ + bàn, tính tới lastSeq
+public class SyncResponse {
+    public enum Mode {
+        DELTA, SNAPSHOT
+    }
+
+    private Mode mode;
+    // client lưu lại và gửi lên ở lần sync sau
+    private long lastSeq;
+    private List<Object> events;
+    private List<OrderSummary> orders;
+    private List<TableState> tables;
+
+    public static SyncResponse delta(long lastSeq, List<Object> events) {
+        SyncResponse response = new SyncResponse();
+        response.mode = Mode.DELTA;
+        response.lastSeq = lastSeq;
+        response.events = events;
+        return response;
+    }
+
+    public static SyncResponse snapshot(long lastSeq, List<OrderSummary> orders, List<TableState> tables) {
+        SyncResponse response = new SyncResponse();
+        response.mode = Mode.SNAPSHOT;
+        response.lastSeq = lastSeq;
+        response.orders = orders;
+        response.tables = tables;
+        return response;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public long getLastSeq() {
+        return lastSeq;
+    }
+
+    public List<Object> getEvents() {
+        return events;
+    }
+
+    public List<OrderSummary> getOrders() {
+        return orders;
+    }
+
+    public List<TableState> getTables() {
+        return tables;
+    }
+
+    public static class TableState {
+        private Long tableId;
+        private String status;
+
+        public TableState(Long tableId, String status) {
+            this.tableId = tableId;
+            this.status = status;
+        }
+
+        public Long getTableId() {
+            return tableId;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+    }
+}
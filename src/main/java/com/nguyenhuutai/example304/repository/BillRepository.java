@@ -1,21 +1,47 @@
 package com.nguyenhuutai.example304.repository;
 
 import com.nguyenhuutai.example304.model.Bill;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.stereotype.Repository;
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface BillRepository extends JpaRepository<Bill, Long> {
+    // order là LAZY; bill thường đi kèm order + bàn nên join sẵn
+    @EntityGraph(attributePaths = {"order", "order.table"})
     Optional<Bill> findByOrderId(Long orderId);
+    @EntityGraph(attributePaths = {"order", "order.table"})
     List<Bill> findByPaymentStatus(Bill.PaymentStatus paymentStatus);
     
+    @EntityGraph(attributePaths = {"order", "order.table"})
     @Query("SELECT b FROM Bill b WHERE b.issuedAt BETWEEN :startDate AND :endDate")
     List<Bill> findByIssuedAtBetween(LocalDateTime startDate, LocalDateTime endDate);
+
+    @Query("SELECT COUNT(b) FROM Bill b WHERE b.issuedAt BETWEEN :startDate AND :endDate")
+    long countByIssuedAtBetween(LocalDateTime startDate, LocalDateTime endDate);
+
+    @Query("SELECT MIN(b.issuedAt) FROM Bill b")
+    LocalDateTime findFirstIssuedAt();
     
     @Query("SELECT SUM(b.totalAmount) FROM Bill b WHERE b.paymentStatus = 'COMPLETED' AND b.issuedAt BETWEEN :startDate AND :endDate")
     Double getTotalRevenueByDateRange(LocalDateTime startDate, LocalDateTime endDate);
-}
\ No newline at end of file
+
+    @Query("SELECT COALESCE(SUM(b.totalAmount), 0) FROM Bill b WHERE b.paymentStatus = 'COMPLETED' AND b.issuedAt BETWEEN :startDate AND :endDate")
+    BigDecimal sumCompletedRevenue(LocalDateTime startDate, LocalDateTime endDate);
+
+    // Export: đọc tuần tự bằng cursor, fetch size MIN_VALUE để MySQL Connector/J stream từng dòng
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("SELECT b.id, o.id, b.totalAmount, b.paymentMethod, b.paymentStatus, b.issuedAt, b.notes "
+            + "FROM Bill b LEFT JOIN b.order o "
+            + "WHERE b.issuedAt >= :from AND b.issuedAt < :to ORDER BY b.id")
+    Stream<Object[]> streamForExport(LocalDateTime from, LocalDateTime to);
+}
@@ -2,10 +2,23 @@ package com.nguyenhuutai.example304.repository;
 
 import com.nguyenhuutai.example304.model.Category;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 
 @Repository
 public interface CategoryRepository extends JpaRepository<Category, Long> {
     List<Category> findByNameContainingIgnoreCase(String name);
-}
\ No newline at end of file
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Category c SET c.imageVariants = :imageVariants WHERE c.imageUrl = :imageUrl")
+    int updateImageVariants(String imageUrl, String imageVariants);
+
+    @Query("SELECT DISTINCT c.imageUrl FROM Category c WHERE c.imageUrl IS NOT NULL AND c.imageVariants IS NULL")
+    List<String> findImageUrlsWithoutVariants();
+
+    long countByImageUrl(String imageUrl);
+}
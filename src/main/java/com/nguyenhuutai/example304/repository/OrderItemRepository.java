@@ -3,22 +3,52 @@ package com.nguyenhuutai.example304.repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.nguyenhuutai.example304.model.OrderItem;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
+    // Món của 1 order kèm product (và category của product) trong cùng câu SELECT
+    @EntityGraph(attributePaths = {"product", "product.category"})
     List<OrderItem> findByOrderId(Long orderId);
 
+    @EntityGraph(attributePaths = {"product", "product.category"})
     @Query("SELECT oi FROM OrderItem oi WHERE oi.order.id = :orderId")
     List<OrderItem> findOrderItemsByOrderId(Long orderId);
 
     @Query("SELECT SUM(oi.subtotal) FROM OrderItem oi WHERE oi.order.id = :orderId")
-    Double getTotalAmountByOrderId(Long orderId);
+    BigDecimal getTotalAmountByOrderId(Long orderId);
+
+    // Đối soát: subtotal đang lưu trên order vs SUM thực tế của order_items
+    @Query("SELECT o.id, o.subtotalAmount, COALESCE(SUM(oi.subtotal), 0) FROM Order o "
+            + "LEFT JOIN OrderItem oi ON oi.order = o "
+            + "WHERE o.createdAt >= :since GROUP BY o.id, o.subtotalAmount")
+    List<Object[]> compareSubtotalsSince(LocalDateTime since);
+
+    @Query("SELECT oi.product.id, SUM(oi.quantity) FROM OrderItem oi WHERE oi.order.id = :orderId GROUP BY oi.product.id")
+    List<Object[]> sumQuantitiesByProductForOrder(Long orderId);
+
+    @Query("SELECT oi.product.id, SUM(oi.quantity), SUM(oi.subtotal) FROM OrderItem oi "
+            + "WHERE oi.order.id = :orderId GROUP BY oi.product.id")
+    List<Object[]> sumSalesByProductForOrder(Long orderId);
+
+    // Export dòng order theo ngày tạo order, stream từng dòng như BillRepository.streamForExport
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("SELECT oi.id, o.id, o.createdAt, o.status, t.tableName, p.id, p.name, oi.quantity, oi.price, oi.subtotal "
+            + "FROM OrderItem oi JOIN oi.order o LEFT JOIN o.table t LEFT JOIN oi.product p "
+            + "WHERE o.createdAt >= :from AND o.createdAt < :to ORDER BY oi.id")
+    Stream<Object[]> streamForExport(LocalDateTime from, LocalDateTime to);
 
     @Modifying
     @Transactional
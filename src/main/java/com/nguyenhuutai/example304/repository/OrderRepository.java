@@ -1,20 +1,75 @@
 package com.nguyenhuutai.example304.repository;
 
 import com.nguyenhuutai.example304.model.Order;
+import com.nguyenhuutai.example304.payload.response.OrderSummary;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import jakarta.persistence.LockModeType;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
+    // table/promotion là LAZY: đọc danh sách entity thì join luôn trong 1 câu, tránh N+1
+    @EntityGraph(attributePaths = {"table", "promotion"})
     List<Order> findByStatus(Order.OrderStatus status);
+    @EntityGraph(attributePaths = {"table", "promotion"})
     List<Order> findByTableId(Long tableId);
     List<Order> findByEmployeeId(Long employeeId);
+
+    // SELECT ... FOR UPDATE: giữ khoá dòng order tới hết transaction
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.id = :id")
+    Optional<Order> findByIdForUpdate(@Param("id") Long id);
     
     @Query("SELECT o FROM Order o WHERE o.createdAt BETWEEN :startDate AND :endDate")
     List<Order> findByCreatedAtBetween(LocalDateTime startDate, LocalDateTime endDate);
+
+    long countByCreatedAtBetween(LocalDateTime startDate, LocalDateTime endDate);
+
+    @Query("SELECT o.status, COUNT(o) FROM Order o GROUP BY o.status")
+    List<Object[]> countGroupedByStatus();
+
+    @Query("SELECT MIN(o.createdAt) FROM Order o")
+    LocalDateTime findFirstCreatedAt();
     
+    @EntityGraph(attributePaths = {"table", "promotion"})
     List<Order> findByTableIdAndStatus(Long tableId, Order.OrderStatus status);
+
+    // Snapshot cho client WebSocket: các order còn đang phục vụ.
+    // Liệt kê IN thay vì NOT IN (PAID, CANCELLED) để dùng được index status
+    @Query("SELECT new com.nguyenhuutai.example304.payload.response.OrderSummary("
+            + "o.id, t.id, t.tableName, o.employeeId, o.status, o.totalAmount, o.createdAt, o.updatedAt) "
+            + "FROM Order o LEFT JOIN o.table t "
+            + "WHERE o.status IN (com.nguyenhuutai.example304.model.Order.OrderStatus.PENDING, "
+            + "com.nguyenhuutai.example304.model.Order.OrderStatus.CONFIRMED, "
+            + "com.nguyenhuutai.example304.model.Order.OrderStatus.PREPARING, "
+            + "com.nguyenhuutai.example304.model.Order.OrderStatus.SERVED) "
+            + "ORDER BY o.id")
+    List<OrderSummary> findActiveSummaries();
+
+    // Keyset pagination theo id giảm dần: trang sau lấy id < cursor, không OFFSET scan
+    @Query("SELECT new com.nguyenhuutai.example304.payload.response.OrderSummary("
+            + "o.id, t.id, t.tableName, o.employeeId, o.status, o.totalAmount, o.createdAt, o.updatedAt) "
+            + "FROM Order o LEFT JOIN o.table t "
+            + "WHERE (:cursor IS NULL OR o.id < :cursor) "
+            + "AND (:status IS NULL OR o.status = :status) "
+            + "AND (:tableId IS NULL OR t.id = :tableId) "
+            + "AND (:employeeId IS NULL OR o.employeeId = :employeeId) "
+            + "AND (:createdFrom IS NULL OR o.createdAt >= :createdFrom) "
+            + "AND (:createdTo IS NULL OR o.createdAt < :createdTo) "
+            + "ORDER BY o.id DESC")
+    List<OrderSummary> findSummaries(@Param("cursor") Long cursor,
+                                     @Param("status") Order.OrderStatus status,
+                                     @Param("tableId") Long tableId,
+                                     @Param("employeeId") Long employeeId,
+                                     @Param("createdFrom") LocalDateTime createdFrom,
+                                     @Param("createdTo") LocalDateTime createdTo,
+                                     Pageable pageable);
 }
\ No newline at end of file
@@ -2,7 +2,12 @@ package com.nguyenhuutai.example304.repository;
 
 import com.nguyenhuutai.example304.model.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -11,4 +16,28 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     List<Product> findByArchiveFalse();
     List<Product> findByNameContainingIgnoreCase(String name);
     List<Product> findByStockQuantityLessThan(Integer quantity);
-}
\ No newline at end of file
+
+    // Trừ kho có điều kiện trong 1 câu UPDATE -> không oversell, không lost update
+    @Modifying
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity - :quantity WHERE p.id = :id AND p.stockQuantity >= :quantity")
+    int decrementStock(@Param("id") Long id, @Param("quantity") Integer quantity);
+
+    @Modifying
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity + :quantity WHERE p.id = :id")
+    int incrementStock(@Param("id") Long id, @Param("quantity") Integer quantity);
+
+    // [id, stockQuantity] - chỉ đọc số tồn, không load cả entity
+    @Query("SELECT p.id, p.stockQuantity FROM Product p WHERE p.id IN :ids")
+    List<Object[]> findStockByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Nhiều product có thể dùng chung một ảnh (upload trùng nội dung)
+    @Modifying
+    @Transactional
+    @Query("UPDATE Product p SET p.imageVariants = :imageVariants WHERE p.imageUrl = :imageUrl")
+    int updateImageVariants(String imageUrl, String imageVariants);
+
+    @Query("SELECT DISTINCT p.imageUrl FROM Product p WHERE p.imageUrl IS NOT NULL AND p.imageVariants IS NULL")
+    List<String> findImageUrlsWithoutVariants();
+
+    long countByImageUrl(String imageUrl);
+}
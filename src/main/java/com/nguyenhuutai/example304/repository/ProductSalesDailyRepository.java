@@ -0,0 +1,47 @@
+package com.nguyenhuutai.example304.repository;
+
+import com.nguyenhuutai.example304.model.ProductSalesDaily;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ProductSalesDailyRepository extends JpaRepository<ProductSalesDaily, Long> {
+
+    @Modifying
+    @Query(value = "INSERT INTO product_sales_daily (sales_date, product_id, quantity, revenue) "
+            + "VALUES (:salesDate, :productId, :quantity, :revenue) "
+            + "ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity), revenue = revenue + VALUES(revenue)",
+            nativeQuery = true)
+    void upsert(LocalDate salesDate, Long productId, long quantity, BigDecimal revenue);
+
+    // Mỗi product 1 dòng cho cả khoảng ngày: số dòng bị chặn bởi số món trong menu
+    @Query("SELECT d.productId, SUM(d.quantity), SUM(d.revenue) FROM ProductSalesDaily d "
+            + "WHERE d.salesDate BETWEEN :from AND :to GROUP BY d.productId")
+    List<Object[]> sumByProduct(LocalDate from, LocalDate to);
+
+    @Query("SELECT c.id, c.name, SUM(d.quantity), SUM(d.revenue) FROM ProductSalesDaily d "
+            + "JOIN Product p ON p.id = d.productId LEFT JOIN p.category c "
+            + "WHERE d.salesDate BETWEEN :from AND :to GROUP BY c.id, c.name")
+    List<Object[]> sumByCategory(LocalDate from, LocalDate to);
+
+    @Modifying
+    @Query("DELETE FROM ProductSalesDaily d WHERE d.salesDate BETWEEN :from AND :to")
+    int deleteRange(LocalDate from, LocalDate to);
+
+    // Backfill từ order_items, bỏ order đã huỷ
+    @Modifying
+    @Query(value = "INSERT INTO product_sales_daily (sales_date, product_id, quantity, revenue) "
+            + "SELECT DATE(o.created_at), oi.product_id, SUM(oi.quantity), SUM(COALESCE(oi.subtotal, 0)) "
+            + "FROM order_items oi JOIN orders o ON o.id = oi.order_id "
+            + "WHERE o.status <> 'CANCELLED' AND oi.product_id IS NOT NULL "
+            + "AND o.created_at >= :from AND o.created_at < :to "
+            + "GROUP BY DATE(o.created_at), oi.product_id",
+            nativeQuery = true)
+    int backfill(LocalDateTime from, LocalDateTime to);
+}
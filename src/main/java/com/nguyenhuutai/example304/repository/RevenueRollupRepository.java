@@ -0,0 +1,54 @@
+package com.nguyenhuutai.example304.repository;
+
+import com.nguyenhuutai.example304.model.RevenueRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface RevenueRollupRepository extends JpaRepository<RevenueRollup, Long> {
+
+    // Bỏ dòng đã về 0 (bill COMPLETED rồi bị chuyển lại) để báo cáo giống hệt bản backfill
+    @Query("SELECT r FROM RevenueRollup r WHERE r.granularity = :granularity AND r.billCount <> 0 " +
+            "AND r.bucketStart >= :from AND r.bucketStart < :to ORDER BY r.bucketStart")
+    List<RevenueRollup> findBuckets(RevenueRollup.Granularity granularity, LocalDateTime from, LocalDateTime to);
+
+    // Cộng dồn tại chỗ, không đọc-rồi-ghi nên hai bill cùng giờ không đè nhau
+    @Modifying
+    @Query(value = "INSERT INTO revenue_rollups (granularity, bucket_start, payment_method, revenue, bill_count) " +
+            "VALUES (:granularity, :bucketStart, :paymentMethod, :revenue, :billCount) " +
+            "ON DUPLICATE KEY UPDATE revenue = revenue + VALUES(revenue), bill_count = bill_count + VALUES(bill_count)",
+            nativeQuery = true)
+    void upsert(String granularity, LocalDateTime bucketStart, String paymentMethod, BigDecimal revenue, long billCount);
+
+    @Modifying
+    @Query("DELETE FROM RevenueRollup r WHERE r.bucketStart >= :from AND r.bucketStart < :to")
+    int deleteRange(LocalDateTime from, LocalDateTime to);
+
+    // Backfill: gom bills COMPLETED theo giờ / theo ngày ngay trong MySQL.
+    // Đầu giờ tính bằng TIMESTAMPADD + CAST thay vì DATE_FORMAT, payment_method ép sang chuỗi
+    // trước COALESCE (cột enum không nhận 'UNSPECIFIED') để chạy được cả trên H2 lúc test
+    @Modifying
+    @Query(value = "INSERT INTO revenue_rollups (granularity, bucket_start, payment_method, revenue, bill_count) " +
+            "SELECT 'HOUR', TIMESTAMPADD(HOUR, HOUR(b.issued_at), CAST(b.issued_at AS DATE)), COALESCE(CAST(b.payment_method AS CHAR(16)), 'UNSPECIFIED'), " +
+            "SUM(b.total_amount), COUNT(*) FROM bills b " +
+            "WHERE b.payment_status = 'COMPLETED' AND b.total_amount IS NOT NULL " +
+            "AND b.issued_at >= :from AND b.issued_at < :to " +
+            "GROUP BY TIMESTAMPADD(HOUR, HOUR(b.issued_at), CAST(b.issued_at AS DATE)), COALESCE(CAST(b.payment_method AS CHAR(16)), 'UNSPECIFIED')",
+            nativeQuery = true)
+    int backfillHours(LocalDateTime from, LocalDateTime to);
+
+    @Modifying
+    @Query(value = "INSERT INTO revenue_rollups (granularity, bucket_start, payment_method, revenue, bill_count) " +
+            "SELECT 'DAY', r.bucket_day, r.payment_method, SUM(r.revenue), SUM(r.bill_count) FROM " +
+            "(SELECT DATE(h.bucket_start) AS bucket_day, h.payment_method, h.revenue, h.bill_count " +
+            "FROM revenue_rollups h WHERE h.granularity = 'HOUR' " +
+            "AND h.bucket_start >= :from AND h.bucket_start < :to) r " +
+            "GROUP BY r.bucket_day, r.payment_method",
+            nativeQuery = true)
+    int backfillDaysFromHours(LocalDateTime from, LocalDateTime to);
+}
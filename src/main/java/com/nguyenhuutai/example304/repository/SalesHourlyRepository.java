@@ -0,0 +1,40 @@
+package com.nguyenhuutai.example304.repository;
+
+import com.nguyenhuutai.example304.model.SalesHourly;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface SalesHourlyRepository extends JpaRepository<SalesHourly, Long> {
+
+    @Modifying
+    @Query(value = "INSERT INTO sales_hourly (sales_date, hour_of_day, quantity, revenue) "
+            + "VALUES (:salesDate, :hourOfDay, :quantity, :revenue) "
+            + "ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity), revenue = revenue + VALUES(revenue)",
+            nativeQuery = true)
+    void upsert(LocalDate salesDate, int hourOfDay, long quantity, BigDecimal revenue);
+
+    @Query("SELECT h FROM SalesHourly h WHERE h.salesDate BETWEEN :from AND :to")
+    List<SalesHourly> findRange(LocalDate from, LocalDate to);
+
+    @Modifying
+    @Query("DELETE FROM SalesHourly h WHERE h.salesDate BETWEEN :from AND :to")
+    int deleteRange(LocalDate from, LocalDate to);
+
+    // Cùng điều kiện với ProductSalesDailyRepository.backfill và recordLine (bỏ dòng không có product)
+    @Modifying
+    @Query(value = "INSERT INTO sales_hourly (sales_date, hour_of_day, quantity, revenue) "
+            + "SELECT DATE(o.created_at), HOUR(o.created_at), SUM(oi.quantity), SUM(COALESCE(oi.subtotal, 0)) "
+            + "FROM order_items oi JOIN orders o ON o.id = oi.order_id "
+            + "WHERE o.status <> 'CANCELLED' AND oi.product_id IS NOT NULL "
+            + "AND o.created_at >= :from AND o.created_at < :to "
+            + "GROUP BY DATE(o.created_at), HOUR(o.created_at)",
+            nativeQuery = true)
+    int backfill(LocalDateTime from, LocalDateTime to);
+}
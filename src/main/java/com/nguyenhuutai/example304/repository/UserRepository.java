@@ -2,6 +2,7 @@ package com.nguyenhuutai.example304.repository;
 
 import java.util.Optional;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -9,6 +10,8 @@ import com.nguyenhuutai.example304.model.User;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
+    // Lấy luôn roles trong cùng query để build UserDetailsImpl ngoài session
+    @EntityGraph(attributePaths = "roles")
     Optional<User> findByUsername(String username);
 
     Boolean existsByUsername(String username);
@@ -1,6 +1,7 @@
 package com.nguyenhuutai.example304.security;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -9,14 +10,18 @@ import org.springframework.security.authentication.dao.DaoAuthenticationProvider
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import com.nguyenhuutai.example304.security.jwt.AuthTokenFilter;
+
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
@@ -24,6 +29,13 @@ public class SecurityConfig {
     @Autowired
     private UserDetailsService userDetailsService;
 
+    @Autowired
+    private UserDetailsPasswordService userDetailsPasswordService;
+
+    // Tăng strength -> hash cũ được băm lại lúc user login thành công
+    @Value("${app.security.bcrypt-strength:10}")
+    private int bcryptStrength;
+
     public static final String ADMIN = "admin";
     public static final String USER = "user";
 
@@ -35,6 +47,9 @@ public class SecurityConfig {
                 .authenticationProvider(authenticationProvider())
                 .authorizeHttpRequests((auth2) -> auth2
                         .requestMatchers("/api/auth/**").permitAll()
+                        // Phải đứng trước các rule permitAll theo method bên dưới:
+                        // API admin (revoke token, export, sửa tổng order, ...) chỉ cho ROLE_ADMIN
+                        .requestMatchers("/api/admin/**").hasRole("ADMIN")
                         .requestMatchers("/api/test/**").permitAll()
                         .requestMatchers("/api/some-path-here/**").permitAll()
                         .requestMatchers(HttpMethod.GET).permitAll()
@@ -45,10 +60,16 @@ public class SecurityConfig {
                         .requestMatchers("/api/employee/tables/*/status").permitAll()
                         .requestMatchers(HttpMethod.POST).permitAll()
                         .anyRequest().authenticated())
-                .csrf(c -> c.disable()); // ✅ Tắt CSRF để React gọi API PUT dễ hơn
+                .csrf(c -> c.disable()) // ✅ Tắt CSRF để React gọi API PUT dễ hơn
+                .addFilterBefore(authenticationJwtTokenFilter(), UsernamePasswordAuthenticationFilter.class);
         return http.build();
     }
 
+    @Bean
+    public AuthTokenFilter authenticationJwtTokenFilter() {
+        return new AuthTokenFilter();
+    }
+
     // ✅ Cấu hình CORS cho phép React (localhost:3000) truy cập
     @Bean
     public CorsConfigurationSource corsConfigurationSource() {
@@ -68,12 +89,13 @@ public class SecurityConfig {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
         authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setUserDetailsPasswordService(userDetailsPasswordService);
         return authProvider;
     }
 
     @Bean
     PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BCryptPasswordEncoder(bcryptStrength);
     }
 
     @Bean
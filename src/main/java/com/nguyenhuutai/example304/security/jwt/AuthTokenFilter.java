@@ -1,6 +1,8 @@
 package com.nguyenhuutai.example304.security.jwt;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
 
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -10,15 +12,19 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import com.nguyenhuutai.example304.CustomUserDetailsService; // Sửa import này
+import com.nguyenhuutai.example304.security.services.UserDetailsImpl;
+import io.jsonwebtoken.Claims;
 
 public class AuthTokenFilter extends OncePerRequestFilter {
     @Autowired
@@ -27,6 +33,13 @@ public class AuthTokenFilter extends OncePerRequestFilter {
     @Autowired
     private CustomUserDetailsService userDetailsService; // Sửa từ UserDetailsServiceImpl thành CustomUserDetailsService
 
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    // true: dựng principal từ claims, không query users/user_roles mỗi request
+    @Value("${app.jwt.stateless-auth:true}")
+    private boolean statelessAuth;
+
     private static final Logger logger = LoggerFactory.getLogger(AuthTokenFilter.class);
 
     @Override
@@ -34,10 +47,15 @@ public class AuthTokenFilter extends OncePerRequestFilter {
             throws ServletException, IOException {
         try {
             String jwt = parseJwt(request);
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String username = jwtUtils.getUserNameFromJwtToken(jwt);
+            Claims claims = jwt != null ? jwtUtils.parseValidClaims(jwt) : null;
+            if (claims != null) {
+                String username = claims.getSubject();
+                if (tokenRevocationService.isRevoked(username, claims.getIssuedAt())) {
+                    filterChain.doFilter(request, response);
+                    return;
+                }
 
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                UserDetails userDetails = buildUserDetails(claims);
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
                         userDetails,
                         null,
@@ -54,6 +72,20 @@ public class AuthTokenFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    private UserDetails buildUserDetails(Claims claims) {
+        Long id = claims.get("id", Long.class);
+        // Token phát hành trước khi có claim "id" vẫn phải tra DB
+        if (!statelessAuth || id == null) {
+            return userDetailsService.loadUserByUsername(claims.getSubject());
+        }
+
+        List<?> authorityNames = claims.get("authorities", List.class);
+        Collection<? extends GrantedAuthority> authorities = authorityNames == null
+                ? List.of()
+                : AuthorityUtils.createAuthorityList(authorityNames.stream().map(String::valueOf).toList());
+        return new UserDetailsImpl(id, claims.getSubject(), null, null, authorities);
+    }
+
     private String parseJwt(HttpServletRequest request) {
         String headerAuth = request.getHeader("Authorization");
 
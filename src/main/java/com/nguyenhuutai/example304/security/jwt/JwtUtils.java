@@ -10,6 +10,8 @@
     import org.springframework.security.core.Authentication;
     import org.springframework.stereotype.Component;
 
+    import jakarta.annotation.PostConstruct;
+
     import com.nguyenhuutai.example304.security.services.UserDetailsImpl;
     import io.jsonwebtoken.*;
     import io.jsonwebtoken.io.Decoders;
@@ -25,11 +27,22 @@
         @Value("${bezkoder.app.jwtExpirationMs}")
         private int jwtExpirationMs;
 
+        // Key và parser chỉ dựng 1 lần; JwtParser của jjwt immutable nên dùng chung giữa các thread
+        private Key signingKey;
+        private JwtParser jwtParser;
+
+        @PostConstruct
+        void init() {
+            signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+            jwtParser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        }
+
         public String generateJwtToken(Authentication authentication) {
             UserDetailsImpl userPrincipal = (UserDetailsImpl) authentication.getPrincipal();
 
             return Jwts.builder()
                     .setSubject((userPrincipal.getUsername()))
+                    .claim("id", userPrincipal.getId())
                     .claim("authorities", userPrincipal.getAuthorities().stream()
                             .map(item -> item.getAuthority())
                             .collect(Collectors.toList())) // THÊM AUTHORITIES
@@ -42,18 +55,22 @@
         // XÓA METHOD generateJwtToken(String username) VÌ KHÔNG CÓ AUTHORITIES
 
         private Key key() {
-            return Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+            return signingKey;
         }
 
         public String getUserNameFromJwtToken(String token) {
-            return Jwts.parserBuilder().setSigningKey(key()).build()
-                    .parseClaimsJws(token).getBody().getSubject();
+            return jwtParser.parseClaimsJws(token).getBody().getSubject();
         }
 
         public boolean validateJwtToken(String authToken) {
+            return parseValidClaims(authToken) != null;
+        }
+
+        // Verify chữ ký + hạn dùng và trả claims (subject, authorities) trong 1 lần parse.
+        // Trả null nếu token không hợp lệ
+        public Claims parseValidClaims(String authToken) {
             try {
-                Jwts.parserBuilder().setSigningKey(key()).build().parse(authToken);
-                return true;
+                return jwtParser.parseClaimsJws(authToken).getBody();
             } catch (MalformedJwtException e) {
                 logger.error("Invalid JWT token: {}", e.getMessage());
             } catch (ExpiredJwtException e) {
@@ -62,7 +79,9 @@
                 logger.error("JWT token is unsupported: {}", e.getMessage());
             } catch (IllegalArgumentException e) {
                 logger.error("JWT claims string is empty: {}", e.getMessage());
+            } catch (JwtException e) {
+                logger.error("Invalid JWT signature: {}", e.getMessage());
             }
-            return false;
+            return null;
         }
     }
\ No newline at end of file
@@ -0,0 +1,52 @@
+package com.nguyenhuutai.example304.security.jwt;
+
+import java.util.Date;
+
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.nguyenhuutai.example304.CustomUserDetailsService;
+import com.nguyenhuutai.example304.model.User;
+import com.nguyenhuutai.example304.repository.UserRepository;
+import com.nguyenhuutai.example304.security.services.UserDetailsImpl;
+
+// Thu hồi token theo user: mốc "tokens_valid_after" (epoch giây) lưu ở bảng users nên
+// không mất khi restart và mọi instance đều thấy; mỗi request đọc mốc qua cache UserDetails
+// (instance khác thấy mốc mới chậm nhất sau TTL của cache). iat của JWT chỉ chính xác tới
+// giây nên so sánh theo giây: token có iat nhỏ hơn mốc bị từ chối, token đăng nhập lại
+// ngay trong giây thu hồi vẫn dùng được
+@Component
+public class TokenRevocationService {
+
+    private final UserRepository userRepository;
+    private final CustomUserDetailsService userDetailsService;
+
+    public TokenRevocationService(UserRepository userRepository, CustomUserDetailsService userDetailsService) {
+        this.userRepository = userRepository;
+        this.userDetailsService = userDetailsService;
+    }
+
+    // false nếu không có user này
+    @Transactional
+    public boolean revokeTokensOf(String username) {
+        User user = userRepository.findByUsername(username).orElse(null);
+        if (user == null) {
+            return false;
+        }
+        // Sửa User qua JPA: UserCacheEvictionInterceptor xoá bản cache sau commit
+        user.setTokensValidAfter(System.currentTimeMillis() / 1000);
+        return true;
+    }
+
+    public boolean isRevoked(String username, Date issuedAt) {
+        Long validAfter;
+        try {
+            validAfter = ((UserDetailsImpl) userDetailsService.loadUserByUsername(username)).getTokensValidAfter();
+        } catch (UsernameNotFoundException e) {
+            // User đã bị xoá
+            return true;
+        }
+        return validAfter != null && (issuedAt == null || issuedAt.getTime() / 1000 < validAfter);
+    }
+}
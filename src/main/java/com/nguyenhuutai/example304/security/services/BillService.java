@@ -1,10 +1,13 @@
 package com.nguyenhuutai.example304.security.services;
 
+import com.nguyenhuutai.example304.events.OrderChangedEvent;
 import com.nguyenhuutai.example304.model.Bill;
 import com.nguyenhuutai.example304.model.Order;
 import com.nguyenhuutai.example304.repository.BillRepository;
 import com.nguyenhuutai.example304.repository.OrderRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Optional;
 
@@ -13,12 +16,21 @@ public class BillService {
 
     private final BillRepository billRepository;
     private final OrderRepository orderRepository;
+    private final DashboardMetricsService dashboardMetrics;
+    private final RevenueRollupService revenueRollupService;
+    private final DomainEventPublisher eventPublisher;
 
-    public BillService(BillRepository billRepository, OrderRepository orderRepository) {
+    public BillService(BillRepository billRepository, OrderRepository orderRepository,
+            DashboardMetricsService dashboardMetrics, RevenueRollupService revenueRollupService,
+            DomainEventPublisher eventPublisher) {
         this.billRepository = billRepository;
         this.orderRepository = orderRepository;
+        this.dashboardMetrics = dashboardMetrics;
+        this.revenueRollupService = revenueRollupService;
+        this.eventPublisher = eventPublisher;
     }
 
+    @Transactional
     public Bill createBill(Long orderId, Bill.PaymentMethod paymentMethod) {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
@@ -29,17 +41,32 @@ public class BillService {
         bill.setIssuedAt(LocalDateTime.now());
 
         // Update order status to PAID
+        dashboardMetrics.onOrderStatusChanged(order.getStatus(), Order.OrderStatus.PAID);
         order.setStatus(Order.OrderStatus.PAID);
         orderRepository.save(order);
+        eventPublisher.publish(OrderChangedEvent.updated(order));
 
-        return billRepository.save(bill);
+        Bill savedBill = billRepository.save(bill);
+        dashboardMetrics.onRevenue(savedBill.getTotalAmount(), savedBill.getIssuedAt());
+        revenueRollupService.record(savedBill, 1);
+        return savedBill;
     }
 
+    @Transactional
     public Bill updatePaymentStatus(Long billId, Bill.PaymentStatus paymentStatus) {
         Bill bill = billRepository.findById(billId)
                 .orElseThrow(() -> new RuntimeException("Bill not found"));
+        boolean wasCompleted = bill.getPaymentStatus() == Bill.PaymentStatus.COMPLETED;
+        boolean isCompleted = paymentStatus == Bill.PaymentStatus.COMPLETED;
         bill.setPaymentStatus(paymentStatus);
-        return billRepository.save(bill);
+        Bill savedBill = billRepository.save(bill);
+
+        if (wasCompleted != isCompleted && savedBill.getTotalAmount() != null) {
+            BigDecimal amount = savedBill.getTotalAmount();
+            dashboardMetrics.onRevenue(isCompleted ? amount : amount.negate(), savedBill.getIssuedAt());
+            revenueRollupService.record(savedBill, isCompleted ? 1 : -1);
+        }
+        return savedBill;
     }
 
     public Bill getBillByOrderId(Long orderId) {
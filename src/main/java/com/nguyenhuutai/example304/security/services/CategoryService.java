@@ -10,9 +10,19 @@ import java.util.Optional;
 public class CategoryService {
 
     private final CategoryRepository categoryRepository;
+    private final MenuCacheService menuCacheService;
+    private final ProductSearchIndex searchIndex;
+    private final ImageVariantService imageVariantService;
+    private final ImageReferenceService imageReferenceService;
 
-    public CategoryService(CategoryRepository categoryRepository) {
+    public CategoryService(CategoryRepository categoryRepository, MenuCacheService menuCacheService,
+            ProductSearchIndex searchIndex, ImageVariantService imageVariantService,
+            ImageReferenceService imageReferenceService) {
         this.categoryRepository = categoryRepository;
+        this.menuCacheService = menuCacheService;
+        this.searchIndex = searchIndex;
+        this.imageVariantService = imageVariantService;
+        this.imageReferenceService = imageReferenceService;
     }
 
     public Category createCategory(String name, String description, String imageUrl) {
@@ -21,7 +31,12 @@ public class CategoryService {
         category.setDescription(description);
         category.setImageUrl(imageUrl);
 
-        return categoryRepository.save(category);
+        Category saved = categoryRepository.save(category);
+        menuCacheService.invalidateCategories();
+        if (imageUrl != null) {
+            imageVariantService.generateAsync(imageUrl);
+        }
+        return saved;
     }
 
     public Category updateCategory(Long id, String name, String description, String imageUrl) {
@@ -30,16 +45,30 @@ public class CategoryService {
 
         category.setName(name);
         category.setDescription(description);
+        String oldImageUrl = category.getImageUrl();
         if (imageUrl != null) {
             category.setImageUrl(imageUrl);
         }
 
-        return categoryRepository.save(category);
+        Category saved = categoryRepository.save(category);
+        menuCacheService.invalidateCategories();
+        // Tên danh mục nằm trong index của từng món
+        searchIndex.rebuild();
+        if (imageUrl != null) {
+            imageVariantService.generateAsync(imageUrl);
+            if (!imageUrl.equals(oldImageUrl)) {
+                imageReferenceService.release(oldImageUrl);
+            }
+        }
+        return saved;
     }
 
     public boolean deleteCategory(Long id) {
-        if (categoryRepository.existsById(id)) {
+        Optional<Category> category = categoryRepository.findById(id);
+        if (category.isPresent()) {
             categoryRepository.deleteById(id);
+            menuCacheService.invalidateCategories();
+            imageReferenceService.release(category.get().getImageUrl());
             return true;
         }
         return false;
@@ -1,5 +1,6 @@
 package com.nguyenhuutai.example304.security.services;
 
+import com.nguyenhuutai.example304.events.TableStatusChangedEvent;
 import com.nguyenhuutai.example304.model.CoffeeTable;
 import com.nguyenhuutai.example304.repository.CoffeeTableRepository;
 import org.springframework.stereotype.Service;
@@ -9,9 +10,11 @@ import java.util.List;
 public class CoffeeTableService {
 
     private final CoffeeTableRepository tableRepository;
+    private final DomainEventPublisher eventPublisher;
 
-    public CoffeeTableService(CoffeeTableRepository tableRepository) {
+    public CoffeeTableService(CoffeeTableRepository tableRepository, DomainEventPublisher eventPublisher) {
         this.tableRepository = tableRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     public List<CoffeeTable> getAllTables() {
@@ -26,7 +29,10 @@ public class CoffeeTableService {
         CoffeeTable table = tableRepository.findById(tableId)
                 .orElseThrow(() -> new RuntimeException("Table not found"));
         table.setStatus(status);
-        return tableRepository.save(table);
+        CoffeeTable savedTable = tableRepository.save(table);
+        // Trùng trạng thái đã gửi thì WebSocketService tự bỏ qua
+        eventPublisher.publish(new TableStatusChangedEvent(tableId, status.name()));
+        return savedTable;
     }
 
     // ✅ Thêm hàm này để tạo bàn mới
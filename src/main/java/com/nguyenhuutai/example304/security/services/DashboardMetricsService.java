@@ -0,0 +1,174 @@
+package com.nguyenhuutai.example304.security.services;
+
+import com.nguyenhuutai.example304.model.Order;
+import com.nguyenhuutai.example304.repository.BillRepository;
+import com.nguyenhuutai.example304.repository.OrderRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Số liệu dashboard giữ sẵn trong bộ nhớ, cập nhật từ OrderService/BillService sau
+// mỗi commit; dashboard tự refresh vài giây/lần chỉ đọc RAM. Đối soát với
+// COUNT/SUM lúc khởi động và định kỳ để sửa lệch (restart, ghi ngoài app...)
+@Service
+public class DashboardMetricsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DashboardMetricsService.class);
+
+    private final OrderRepository orderRepository;
+    private final BillRepository billRepository;
+
+    private LocalDate day = LocalDate.now();
+    private long todayOrders;
+    private BigDecimal todayRevenue = BigDecimal.ZERO;
+    private final Map<Order.OrderStatus, Long> ordersByStatus = new EnumMap<>(Order.OrderStatus.class);
+
+    public DashboardMetricsService(OrderRepository orderRepository, BillRepository billRepository) {
+        this.orderRepository = orderRepository;
+        this.billRepository = billRepository;
+    }
+
+    public void onOrderCreated(Order order) {
+        Order.OrderStatus status = order.getStatus();
+        AfterCommit.run(() -> {
+            synchronized (this) {
+                rollDay();
+                todayOrders++;
+                ordersByStatus.merge(status, 1L, Long::sum);
+            }
+        });
+    }
+
+    public void onOrderStatusChanged(Order.OrderStatus from, Order.OrderStatus to) {
+        if (from == to) {
+            return;
+        }
+        AfterCommit.run(() -> {
+            synchronized (this) {
+                if (from != null) {
+                    ordersByStatus.merge(from, -1L, Long::sum);
+                }
+                ordersByStatus.merge(to, 1L, Long::sum);
+            }
+        });
+    }
+
+    public void onOrderDeleted(Order order) {
+        Order.OrderStatus status = order.getStatus();
+        LocalDateTime createdAt = order.getCreatedAt();
+        AfterCommit.run(() -> {
+            synchronized (this) {
+                rollDay();
+                if (status != null) {
+                    ordersByStatus.merge(status, -1L, Long::sum);
+                }
+                if (createdAt != null && createdAt.toLocalDate().equals(day)) {
+                    todayOrders--;
+                }
+            }
+        });
+    }
+
+    // amount âm khi bill đã COMPLETED bị chuyển sang trạng thái khác
+    public void onRevenue(BigDecimal amount, LocalDateTime issuedAt) {
+        if (amount == null || issuedAt == null) {
+            return;
+        }
+        AfterCommit.run(() -> {
+            synchronized (this) {
+                rollDay();
+                if (issuedAt.toLocalDate().equals(day)) {
+                    todayRevenue = todayRevenue.add(amount);
+                }
+            }
+        });
+    }
+
+    public synchronized Map<String, Object> snapshot() {
+        rollDay();
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("todayRevenue", todayRevenue);
+        report.put("todayOrders", todayOrders);
+        report.put("pendingOrders", ordersByStatus.getOrDefault(Order.OrderStatus.PENDING, 0L));
+        report.put("ordersByStatus", new EnumMap<>(ordersByStatus));
+        return report;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.dashboard.reconcile-interval-ms:300000}",
+            initialDelayString = "${app.dashboard.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        // Ghi lại số đang có trước khi query: sự kiện commit trong lúc COUNT/SUM chạy
+        // (query có thể đã không thấy) vẫn được cộng lên trên kết quả DB thay vì mất.
+        // Commit lọt giữa lúc chụp và lúc query có thể bị tính 2 lần - lần đối soát sau sửa
+        LocalDate today;
+        long baseOrders;
+        BigDecimal baseRevenue;
+        Map<Order.OrderStatus, Long> baseStatuses;
+        synchronized (this) {
+            rollDay();
+            today = day;
+            baseOrders = todayOrders;
+            baseRevenue = todayRevenue;
+            baseStatuses = new EnumMap<>(ordersByStatus);
+        }
+        LocalDateTime start = today.atStartOfDay();
+        LocalDateTime end = start.plusDays(1).minusNanos(1);
+
+        long orders = orderRepository.countByCreatedAtBetween(start, end);
+        BigDecimal revenue = billRepository.sumCompletedRevenue(start, end);
+        Map<Order.OrderStatus, Long> statuses = new EnumMap<>(Order.OrderStatus.class);
+        for (Object[] row : orderRepository.countGroupedByStatus()) {
+            if (row[0] != null) {
+                statuses.put((Order.OrderStatus) row[0], (Long) row[1]);
+            }
+        }
+
+        synchronized (this) {
+            for (Order.OrderStatus status : Order.OrderStatus.values()) {
+                long delta = ordersByStatus.getOrDefault(status, 0L) - baseStatuses.getOrDefault(status, 0L);
+                if (delta != 0) {
+                    statuses.merge(status, delta, Long::sum);
+                }
+            }
+            if (!ordersByStatus.equals(statuses)) {
+                logger.info("Dashboard status counts drift corrected: {} -> {}", ordersByStatus, statuses);
+            }
+            ordersByStatus.clear();
+            ordersByStatus.putAll(statuses);
+
+            rollDay();
+            // Qua nửa đêm trong lúc query: số liệu vừa đếm là của hôm qua, bỏ
+            if (!day.equals(today)) {
+                return;
+            }
+            orders += todayOrders - baseOrders;
+            revenue = revenue.add(todayRevenue.subtract(baseRevenue));
+            if (todayOrders != orders || todayRevenue.compareTo(revenue) != 0) {
+                logger.info("Dashboard metrics drift corrected: orders {} -> {}, revenue {} -> {}",
+                        todayOrders, orders, todayRevenue, revenue);
+            }
+            todayOrders = orders;
+            todayRevenue = revenue;
+        }
+    }
+
+    // Qua ngày mới thì số liệu "hôm nay" bắt đầu lại từ 0
+    private void rollDay() {
+        LocalDate today = LocalDate.now();
+        if (!today.equals(day)) {
+            day = today;
+            todayOrders = 0;
+            todayRevenue = BigDecimal.ZERO;
+        }
+    }
+}
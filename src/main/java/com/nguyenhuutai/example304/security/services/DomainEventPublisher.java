@@ -0,0 +1,149 @@
+package com.nguyenhuutai.example304.security.services;
+
+import com.nguyenhuutai.example304.events.DomainEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Service ghi event trong transaction; event chỉ được phát sau khi commit và chạy
+// @EventListener trên thread riêng, nên serialize/broadcast không kéo dài transaction.
+// Một thread dispatch duy nhất lấy event theo đúng thứ tự vào hàng đợi. Hàng đợi có
+// giới hạn: đầy thì BLOCK (thread vừa commit chờ tối đa offer-timeout cho có chỗ,
+// tạo backpressure mà không vượt hàng event cũ) rồi mới bỏ, hoặc DROP (bỏ ngay, chỉ đếm)
+@Service
+public class DomainEventPublisher {
+
+    private static final Logger logger = LoggerFactory.getLogger(DomainEventPublisher.class);
+
+    public enum OverflowPolicy {
+        BLOCK, DROP
+    }
+
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final BlockingQueue<DomainEvent> queue;
+    private final OverflowPolicy overflowPolicy;
+    private final long offerTimeoutMs;
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong blocked = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final Map<String, TypeStats> statsByType = new ConcurrentHashMap<>();
+
+    public DomainEventPublisher(ApplicationEventPublisher applicationEventPublisher,
+            @Value("${app.events.queue-capacity:1000}") int queueCapacity,
+            @Value("${app.events.overflow-policy:BLOCK}") OverflowPolicy overflowPolicy,
+            @Value("${app.events.offer-timeout-ms:1000}") long offerTimeoutMs) {
+        this.applicationEventPublisher = applicationEventPublisher;
+        this.overflowPolicy = overflowPolicy;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.dispatcher = new Thread(this::drain, "domain-events");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    // Gọi trong transaction; rollback thì event bị bỏ
+    public void publish(DomainEvent event) {
+        AfterCommit.run(() -> dispatch(event));
+    }
+
+    private void dispatch(DomainEvent event) {
+        if (running && queue.offer(event)) {
+            return;
+        }
+        if (running && overflowPolicy == OverflowPolicy.BLOCK) {
+            blocked.incrementAndGet();
+            try {
+                if (queue.offer(event, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        dropped.incrementAndGet();
+        logger.warn("Domain event queue full, dropped {}", event.getType());
+    }
+
+    // Lúc shutdown vẫn phát nốt event đã vào hàng đợi
+    private void drain() {
+        while (running || !queue.isEmpty()) {
+            try {
+                DomainEvent event = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (event != null) {
+                    deliver(event);
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void deliver(DomainEvent event) {
+        try {
+            applicationEventPublisher.publishEvent(event);
+        } catch (Exception e) {
+            failures.incrementAndGet();
+            logger.warn("Domain event listener failed for {}", event.getType(), e);
+        } finally {
+            statsByType.computeIfAbsent(event.getType(), k -> new TypeStats())
+                    .record(System.nanoTime() - event.getRecordedAtNanos());
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> types = new TreeMap<>();
+        statsByType.forEach((type, s) -> types.put(type, s.toMap()));
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("overflowPolicy", overflowPolicy);
+        stats.put("queueSize", queue.size());
+        stats.put("queueRemainingCapacity", queue.remainingCapacity());
+        stats.put("dropped", dropped.get());
+        stats.put("blocked", blocked.get());
+        stats.put("listenerFailures", failures.get());
+        stats.put("latencyByType", types);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        dispatcher.join(5000);
+    }
+
+    // Độ trễ tính từ lúc ghi event đến khi mọi listener chạy xong
+    private static class TypeStats {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos) {
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        Map<String, Object> toMap() {
+            long n = count.get();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("count", n);
+            map.put("avgLatencyMs", n > 0 ? totalNanos.get() / n / 1_000_000.0 : 0.0);
+            map.put("maxLatencyMs", maxNanos.get() / 1_000_000.0);
+            return map;
+        }
+    }
+}
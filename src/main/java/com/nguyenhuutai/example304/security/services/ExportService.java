@@ -0,0 +1,160 @@
+package com.nguyenhuutai.example304.security.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nguyenhuutai.example304.repository.BillRepository;
+import com.nguyenhuutai.example304.repository.OrderItemRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+// Xuất bills / order lines cho kế toán: đọc bằng cursor (Stream) và ghi thẳng ra
+// output stream của response, bộ nhớ không phụ thuộc số dòng
+@Service
+public class ExportService {
+
+    private static final String[] BILL_COLUMNS = {
+            "billId", "orderId", "totalAmount", "paymentMethod", "paymentStatus", "issuedAt", "notes" };
+    private static final String[] ORDER_ITEM_COLUMNS = {
+            "orderItemId", "orderId", "orderCreatedAt", "orderStatus", "tableName",
+            "productId", "productName", "quantity", "price", "subtotal" };
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Cứ mỗi N dòng thì flush và dọn persistence context
+    private static final int FLUSH_EVERY = 1000;
+
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    private final BillRepository billRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    public ExportService(BillRepository billRepository, OrderItemRepository orderItemRepository,
+            EntityManager entityManager, ObjectMapper objectMapper) {
+        this.billRepository = billRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+    }
+
+    // Khoảng [from, to] tính cả ngày to
+    @Transactional(readOnly = true)
+    public void exportBills(LocalDate from, LocalDate to, Format format, boolean gzip, OutputStream out)
+            throws IOException {
+        try (Stream<Object[]> rows = billRepository.streamForExport(from.atStartOfDay(), to.plusDays(1).atStartOfDay())) {
+            write(rows, BILL_COLUMNS, format, gzip, out);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void exportOrderItems(LocalDate from, LocalDate to, Format format, boolean gzip, OutputStream out)
+            throws IOException {
+        try (Stream<Object[]> rows = orderItemRepository.streamForExport(from.atStartOfDay(), to.plusDays(1).atStartOfDay())) {
+            write(rows, ORDER_ITEM_COLUMNS, format, gzip, out);
+        }
+    }
+
+    public static String fileName(String name, LocalDate from, LocalDate to, Format format, boolean gzip) {
+        return name + "_" + from + "_" + to + (format == Format.CSV ? ".csv" : ".ndjson") + (gzip ? ".gz" : "");
+    }
+
+    private void write(Stream<Object[]> rows, String[] columns, Format format, boolean gzip, OutputStream out)
+            throws IOException {
+        OutputStream target = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : out;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), BUFFER_SIZE);
+        if (format == Format.CSV) {
+            writeCsv(rows.iterator(), columns, writer);
+        } else {
+            writeNdjson(rows.iterator(), columns, writer);
+        }
+        writer.flush();
+        if (gzip) {
+            ((GZIPOutputStream) target).finish();
+        }
+    }
+
+    private void writeCsv(Iterator<Object[]> rows, String[] columns, Writer writer) throws IOException {
+        // BOM để Excel mở đúng tiếng Việt
+        writer.write('\uFEFF');
+        writer.write(String.join(",", columns));
+        writer.write("\r\n");
+        long count = 0;
+        while (rows.hasNext()) {
+            Object[] row = rows.next();
+            for (int i = 0; i < row.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(csvValue(row[i]));
+            }
+            writer.write("\r\n");
+            afterRow(++count, writer);
+        }
+    }
+
+    private void writeNdjson(Iterator<Object[]> rows, String[] columns, Writer writer) throws IOException {
+        JsonGenerator json = objectMapper.getFactory().createGenerator(writer);
+        // Không để generator đóng writer/output stream của response
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        // flush() chỉ đẩy buffer của generator xuống writer, writer tự flush theo lô
+        json.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+        long count = 0;
+        while (rows.hasNext()) {
+            Object[] row = rows.next();
+            json.writeStartObject();
+            for (int i = 0; i < row.length; i++) {
+                Object value = row[i];
+                if (value == null) {
+                    json.writeNullField(columns[i]);
+                } else if (value instanceof Number || value instanceof Boolean) {
+                    json.writeObjectField(columns[i], value);
+                } else {
+                    json.writeStringField(columns[i], value.toString());
+                }
+            }
+            json.writeEndObject();
+            json.writeRaw('\n');
+            json.flush();
+            afterRow(++count, writer);
+        }
+        json.close();
+    }
+
+    // Hàng scalar không vào persistence context, nhưng clear định kỳ để chắc chắn
+    // session không phình ra (vd. entity do Hibernate tự load kèm)
+    private void afterRow(long count, Writer writer) throws IOException {
+        if (count % FLUSH_EVERY == 0) {
+            writer.flush();
+            entityManager.clear();
+        }
+    }
+
+    static String csvValue(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        // Ô chữ (ghi chú, tên bàn, ...) mở đầu bằng = + - @ tab CR bị Excel / Sheets hiểu là
+        // công thức: thêm ' để giữ nguyên là chữ. Cột số (kể cả số âm) giữ nguyên để còn tính được
+        if (!(value instanceof Number) && !text.isEmpty() && "=+-@\t\r".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+        return text;
+    }
+}
@@ -1,51 +1,314 @@
 package com.nguyenhuutai.example304.security.services;
 
+import com.nguyenhuutai.example304.cache.BoundedCache;
+import com.nguyenhuutai.example304.storage.BlobStore;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.UUID;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 @Service
 public class FileStorageService {
 
-    @Value("${file.upload-dir}")
-    private String uploadDir;
+    private static final int HASH_LENGTH = 32;
+    private static final String URL_PREFIX = "/uploads/";
 
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final BlockingQueue<ByteBuffer> BUFFER_POOL = new ArrayBlockingQueue<>(16);
+    private static final int STAT_CACHE_ENTRIES = 4096;
+    // Ngắn hơn hot cache: instance khác xoá file thì bản cache ở đây chỉ sai tối đa chừng này
+    private static final Duration STAT_CACHE_TTL = Duration.ofMinutes(10);
+
+    private final BlobStore blobStore;
+    private final long maxBytes;
+    // Ảnh nhỏ hay đọc (thumbnail trên menu) giữ trong RAM, khỏi đọc đĩa / gọi S3 mỗi request.
+    // Chỉ cache file theo hash: nội dung không đổi nên không bao giờ stale
+    private final BoundedCache<String, byte[]> hotCache;
+    private final long hotCacheMaxObjectBytes;
+    // Size/mtime của file theo hash và tên bản resize đã tìm thấy: với S3 mỗi stat là một HEAD,
+    // request ?size= còn thử từng đuôi. Chỉ cache kết quả có file (bản resize sinh sau vẫn thấy ngay)
+    private final BoundedCache<String, BlobStore.BlobInfo> statCache =
+            new BoundedCache<>(STAT_CACHE_ENTRIES, STAT_CACHE_TTL);
+    private final BoundedCache<String, String> variantCache =
+            new BoundedCache<>(STAT_CACHE_ENTRIES, STAT_CACHE_TTL);
+    // Upload và xoá cùng một key trên instance này chạy lần lượt (khoá theo stripe của tên file).
+    // Giữa các instance thì dựa vào lastModified của blob, xem lastStoredAt
+    private final Object[] keyLocks = new Object[64];
+
+    public FileStorageService(BlobStore blobStore,
+                              @Value("${app.upload.max-bytes:10485760}") long maxBytes,
+                              @Value("${app.storage.hot-cache.entries:512}") int hotCacheEntries,
+                              @Value("${app.storage.hot-cache.max-object-bytes:65536}") long hotCacheMaxObjectBytes) {
+        this.blobStore = blobStore;
+        this.maxBytes = maxBytes;
+        this.hotCache = new BoundedCache<>(hotCacheEntries, Duration.ofHours(6));
+        this.hotCacheMaxObjectBytes = hotCacheMaxObjectBytes;
+        for (int i = 0; i < keyLocks.length; i++) {
+            keyLocks[i] = new Object();
+        }
+    }
+
+    // Tên file = SHA-256 nội dung (32 ký tự hex đầu) + đuôi: cùng nội dung -> cùng URL,
+    // nội dung đổi -> URL đổi, nên UploadController cho browser cache vĩnh viễn (immutable).
+    // Cùng ảnh upload nhiều lần chỉ lưu một file; ImageReferenceService lo việc xoá
     public String storeFile(MultipartFile file) throws IOException {
         if (file.isEmpty()) {
             return null;
         }
+        if (file.getSize() > maxBytes) {
+            throw new MaxUploadSizeExceededException(maxBytes);
+        }
+
+        // Ghi ra file tạm, vừa ghi vừa tính hash
+        Path tempFile = blobStore.createTempFile();
+        String hash;
+        try (InputStream in = file.getInputStream()) {
+            hash = copyAndHash(in, tempFile);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+
+        String fileName = hash.substring(0, HASH_LENGTH) + "." + extensionOf(file.getOriginalFilename());
+        // Đã có file cùng nội dung thì store chỉ làm mới lastModified (mọi instance đều thấy):
+        // lần xoá chạy sau đó biết file vừa được upload lại; lần xoá chạy trước thì put ghi lại file
+        synchronized (keyLock(fileName)) {
+            blobStore.put(fileName, tempFile);
+            statCache.invalidate(fileName);
+        }
+        return URL_PREFIX + fileName;
+    }
+
+    // === ĐỌC / GHI THEO TÊN FILE TRONG URL /uploads/{fileName} ===
+
+    // Rỗng nếu không tồn tại hoặc tên không hợp lệ (../, có dấu /)
+    public Optional<BlobStore.BlobInfo> stat(String fileName) throws IOException {
+        if (!BlobStore.isValidKey(fileName)) {
+            return Optional.empty();
+        }
+        if (!isContentAddressed(fileName)) {
+            return blobStore.stat(fileName);
+        }
+        BlobStore.BlobInfo cached = statCache.get(fileName);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<BlobStore.BlobInfo> info = blobStore.stat(fileName);
+        info.ifPresent(found -> statCache.put(fileName, found));
+        return info;
+    }
+
+    // Tên bản resize đã sinh của file (thử lần lượt các đuôi); rỗng nếu chưa có
+    public Optional<String> findVariant(String fileName, ImageVariantService.Size size) throws IOException {
+        String key = fileName + "|" + size.key();
+        String cached = variantCache.get(key);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        for (String extension : ImageVariantService.VARIANT_EXTENSIONS) {
+            String variantName = variantFileName(fileName, size.key(), extension);
+            if (stat(variantName).isPresent()) {
+                if (isContentAddressed(fileName)) {
+                    variantCache.put(key, variantName);
+                }
+                return Optional.of(variantName);
+            }
+        }
+        return Optional.empty();
+    }
+
+    public InputStream open(String fileName) throws IOException {
+        return blobStore.open(fileName);
+    }
+
+    // Đoạn [start, start + length) của file, cho request Range trên store từ xa
+    public InputStream open(String fileName, long start, long length) throws IOException {
+        return blobStore.open(fileName, start, length);
+    }
 
-        // Tạo thư mục nếu chưa tồn tại
-        Path uploadPath = Paths.get(uploadDir);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
+    // File local để sendfile; null nếu store không ở trên đĩa
+    public Path localPath(String fileName) throws IOException {
+        return blobStore.localPath(fileName);
+    }
+
+    // Nội dung file nhỏ theo hash từ hot cache; null nếu file không thuộc loại được cache
+    public byte[] readCached(String fileName, BlobStore.BlobInfo info) {
+        if (!isContentAddressed(fileName) || info.size() > hotCacheMaxObjectBytes) {
+            return null;
         }
+        return hotCache.get(fileName, key -> {
+            try (InputStream in = blobStore.open(key)) {
+                return in.readAllBytes();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    public Path createTempFile() throws IOException {
+        return blobStore.createTempFile();
+    }
 
-        // Tạo tên file unique
-        String fileName = UUID.randomUUID().toString() + "_" + file.getOriginalFilename();
-        Path filePath = uploadPath.resolve(fileName);
+    // Ghi file đã sinh sẵn (vd. bản resize) vào store; file tạm bị move/xoá
+    public void storeGenerated(String fileName, Path tempFile) throws IOException {
+        blobStore.put(fileName, tempFile);
+    }
 
-        // Lưu file
-        Files.copy(file.getInputStream(), filePath);
+    public Map<String, Object> hotCacheStats() {
+        return hotCache.stats();
+    }
+
+    // File đặt tên theo hash thì nội dung không bao giờ đổi; file cũ (UUID_tên) thì có thể
+    public static boolean isContentAddressed(String fileName) {
+        return BlobStore.isContentAddressed(fileName);
+    }
+
+    // Phần hash trong tên file, dùng làm strong ETag
+    public static String hashOf(String fileName) {
+        return fileName.substring(0, fileName.indexOf('.'));
+    }
+
+    // Tên file bản resize: <tên gốc bỏ đuôi>-<size>.<đuôi>
+    public static String variantFileName(String fileName, String size, String extension) {
+        return baseNameOf(fileName) + "-" + size + "." + extension;
+    }
+
+    static String baseNameOf(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot > 0 ? fileName.substring(0, dot) : fileName;
+    }
+
+    static String extensionOf(String originalName) {
+        if (originalName != null) {
+            int dot = originalName.lastIndexOf('.');
+            if (dot >= 0) {
+                String ext = originalName.substring(dot + 1).toLowerCase(Locale.ROOT);
+                if (ext.matches("[a-z0-9]{1,5}")) {
+                    return ext;
+                }
+            }
+        }
+        return "bin";
+    }
+
+    // Copy qua channel với direct buffer cố định (không tạo byte[] mới cho mỗi lần đọc
+    // như Files.copy), cập nhật SHA-256 trên chính buffer đó và dừng ngay khi vượt maxBytes
+    String copyAndHash(InputStream in, Path target) throws IOException {
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = acquireBuffer();
+        long total = 0;
+        try (ReadableByteChannel source = Channels.newChannel(in);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (source.read(buffer) >= 0) {
+                buffer.flip();
+                total += buffer.remaining();
+                if (total > maxBytes) {
+                    throw new MaxUploadSizeExceededException(maxBytes);
+                }
+                digest.update(buffer.duplicate());
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                buffer.clear();
+            }
+        } finally {
+            releaseBuffer(buffer);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // Direct buffer cấp phát tốn kém và chỉ được giải phóng khi GC, nên giữ lại tối đa vài cái
+    private static ByteBuffer acquireBuffer() {
+        ByteBuffer buffer = BUFFER_POOL.poll();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    private static void releaseBuffer(ByteBuffer buffer) {
+        buffer.clear();
+        BUFFER_POOL.offer(buffer);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Lần ghi gần nhất của file trong URL theo chính store (đọc thẳng, không qua statCache),
+    // nên thấy cả lần upload lại trên instance khác; 0 nếu không có file
+    public long lastStoredAt(String fileUrl) throws IOException {
+        if (fileUrl == null || !fileUrl.startsWith(URL_PREFIX)) {
+            return 0L;
+        }
+        String fileName = fileUrl.substring(URL_PREFIX.length());
+        if (!BlobStore.isValidKey(fileName)) {
+            return 0L;
+        }
+        return blobStore.stat(fileName).map(BlobStore.BlobInfo::lastModified).orElse(0L);
+    }
+
+    // Xoá như deleteFile nếu sau mốc since không có ai upload lại đúng file này.
+    // Instance khác upload lại đúng giữa lúc stat và lúc xoá thì vẫn mất file: cửa sổ chỉ là
+    // một request tới store, còn product mới thường lưu sau upload vài giây
+    public boolean deleteFileIfNotStoredSince(String fileUrl, long since) throws IOException {
+        String fileName = fileUrl != null && fileUrl.startsWith(URL_PREFIX) ? fileUrl.substring(URL_PREFIX.length()) : "";
+        synchronized (keyLock(fileName)) {
+            if (lastStoredAt(fileUrl) > since) {
+                return false;
+            }
+            return deleteFile(fileUrl);
+        }
+    }
 
-        return "/uploads/" + fileName;
+    private Object keyLock(String fileName) {
+        return keyLocks[Math.floorMod(fileName.hashCode(), keyLocks.length)];
     }
 
     public boolean deleteFile(String fileUrl) {
         try {
-            if (fileUrl != null && fileUrl.startsWith("/uploads/")) {
-                String fileName = fileUrl.substring("/uploads/".length());
-                Path filePath = Paths.get(uploadDir).resolve(fileName);
-                return Files.deleteIfExists(filePath);
+            if (fileUrl != null && fileUrl.startsWith(URL_PREFIX)) {
+                String fileName = fileUrl.substring(URL_PREFIX.length());
+                if (!BlobStore.isValidKey(fileName)) {
+                    return false;
+                }
+                // Xoá luôn các bản resize (<tên>-thumb.jpg, ...)
+                for (ImageVariantService.Size size : ImageVariantService.Size.values()) {
+                    for (String extension : ImageVariantService.VARIANT_EXTENSIONS) {
+                        String variant = variantFileName(fileName, size.key(), extension);
+                        blobStore.delete(variant);
+                        hotCache.invalidate(variant);
+                        statCache.invalidate(variant);
+                    }
+                    variantCache.invalidate(fileName + "|" + size.key());
+                }
+                hotCache.invalidate(fileName);
+                statCache.invalidate(fileName);
+                return blobStore.delete(fileName);
             }
             return false;
         } catch (IOException e) {
             return false;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,87 @@
+package com.nguyenhuutai.example304.security.services;
+
+import com.nguyenhuutai.example304.repository.CategoryRepository;
+import com.nguyenhuutai.example304.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Ảnh upload được lưu theo hash nên nhiều product/category có thể dùng chung một file.
+// Đếm tham chiếu ngay trên DB (product + category) và chỉ xoá file khi không còn ai dùng.
+// Upload và lưu product là 2 request: file vừa upload lại (trùng nội dung) có thể chưa có
+// ai tham chiếu, nên file được upload trong grace period gần nhất thì hẹn xoá lại sau.
+// Mốc upload là lastModified của blob (upload lại làm mới nó) nên đúng cả khi nhiều instance
+// dùng chung S3
+@Service
+public class ImageReferenceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageReferenceService.class);
+
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final FileStorageService fileStorageService;
+    private final long graceMs;
+    private final ScheduledExecutorService scheduler;
+
+    public ImageReferenceService(ProductRepository productRepository, CategoryRepository categoryRepository,
+            FileStorageService fileStorageService,
+            @Value("${app.upload.release-grace-ms:600000}") long graceMs) {
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.fileStorageService = fileStorageService;
+        this.graceMs = graceMs;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "image-release");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Gọi sau khi bỏ tham chiếu tới imageUrl (xoá hoặc đổi ảnh); chạy sau commit
+    // để không xoá file khi transaction rollback
+    public void release(String imageUrl) {
+        if (imageUrl == null) {
+            return;
+        }
+        AfterCommit.run(() -> deleteIfUnreferenced(imageUrl));
+    }
+
+    void deleteIfUnreferenced(String imageUrl) {
+        if (countReferences(imageUrl) > 0) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            long idleAt = fileStorageService.lastStoredAt(imageUrl) + graceMs;
+            if (idleAt > now) {
+                scheduler.schedule(() -> deleteIfUnreferenced(imageUrl), idleAt - now, TimeUnit.MILLISECONDS);
+                return;
+            }
+            if (fileStorageService.deleteFileIfNotStoredSince(imageUrl, now - graceMs)) {
+                logger.info("Deleted unreferenced upload {}", imageUrl);
+            } else if (fileStorageService.lastStoredAt(imageUrl) > now - graceMs) {
+                // Vừa có người upload lại giữa lúc đếm và lúc xoá
+                scheduler.schedule(() -> deleteIfUnreferenced(imageUrl), graceMs, TimeUnit.MILLISECONDS);
+            }
+        } catch (IOException e) {
+            // Store lỗi: bỏ lần xoá này, file mồ côi chỉ tốn chỗ
+            logger.warn("Could not release upload {}: {}", imageUrl, e.getMessage());
+        }
+    }
+
+    public long countReferences(String imageUrl) {
+        return productRepository.countByImageUrl(imageUrl) + categoryRepository.countByImageUrl(imageUrl);
+    }
+
+    // Lần xoá đang hẹn bị bỏ khi tắt app: file mồ côi chỉ tốn chỗ, không làm hỏng ảnh đang dùng
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,255 @@
+package com.nguyenhuutai.example304.security.services;
+
+import com.nguyenhuutai.example304.repository.CategoryRepository;
+import com.nguyenhuutai.example304.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Sinh ảnh thu nhỏ (thumb/card/full) cho ảnh product/category trên executor riêng,
+// sau khi transaction lưu ảnh commit. Chỉ dùng ImageIO của JDK: ảnh có alpha ra PNG,
+// còn lại ra JPEG nén lại. Xong thì ghi danh sách variant vào DB và làm mới cache menu
+@Service
+public class ImageVariantService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageVariantService.class);
+
+    // Chặn ảnh "bom giải nén" (header khai kích thước khổng lồ)
+    private static final long MAX_PIXELS = 50_000_000L;
+    private static final float JPEG_QUALITY = 0.82f;
+    // Đuôi file có thể có của variant, theo thứ tự ưu tiên khi tìm
+    public static final List<String> VARIANT_EXTENSIONS = List.of("jpg", "png");
+
+    public enum Size {
+        THUMB(160), CARD(480), FULL(1280);
+
+        private final int width;
+
+        Size(int width) {
+            this.width = width;
+        }
+
+        public int getWidth() { return width; }
+
+        public String key() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+
+        public static Size fromKey(String key) {
+            for (Size size : values()) {
+                if (size.key().equalsIgnoreCase(key)) {
+                    return size;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final FileStorageService fileStorageService;
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final MenuCacheService menuCacheService;
+    private final ThreadPoolExecutor executor;
+    // Ảnh đang chờ/đang xử lý, tránh xếp hàng trùng
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    public ImageVariantService(FileStorageService fileStorageService, ProductRepository productRepository,
+            CategoryRepository categoryRepository, MenuCacheService menuCacheService,
+            @Value("${app.images.variant-queue-capacity:200}") int queueCapacity) {
+        this.fileStorageService = fileStorageService;
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.menuCacheService = menuCacheService;
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-variants");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    // Gọi trong transaction lưu product/category; chạy sau commit
+    public void generateAsync(String imageUrl) {
+        if (imageUrl == null || !imageUrl.startsWith("/uploads/")) {
+            return;
+        }
+        AfterCommit.run(() -> submit(imageUrl));
+    }
+
+    // Ảnh upload trước khi có tính năng này (hoặc job bị mất khi restart)
+    @EventListener(ApplicationReadyEvent.class)
+    public void generateMissing() {
+        Set<String> urls = new LinkedHashSet<>(productRepository.findImageUrlsWithoutVariants());
+        urls.addAll(categoryRepository.findImageUrlsWithoutVariants());
+        urls.forEach(this::generateAsync);
+    }
+
+    private void submit(String imageUrl) {
+        if (!inFlight.add(imageUrl)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(imageUrl);
+                } catch (Exception e) {
+                    logger.warn("Image variant generation failed for {}", imageUrl, e);
+                } finally {
+                    inFlight.remove(imageUrl);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(imageUrl);
+            logger.warn("Image variant queue full, skipped {} (retried on next startup)", imageUrl);
+        }
+    }
+
+    void generate(String imageUrl) throws IOException {
+        String fileName = imageUrl.substring("/uploads/".length());
+        if (fileStorageService.stat(fileName).isEmpty()) {
+            return;
+        }
+
+        BufferedImage source;
+        try (InputStream in = fileStorageService.open(fileName)) {
+            source = read(in);
+        }
+        if (source == null) {
+            // Không phải ảnh ImageIO đọc được (vd. webp, heic): giữ nguyên ảnh gốc
+            return;
+        }
+        boolean alpha = source.getColorModel().hasAlpha();
+        String extension = alpha ? "png" : "jpg";
+
+        StringJoiner variants = new StringJoiner(",");
+        for (Size size : Size.values()) {
+            String variantName = FileStorageService.variantFileName(fileName, size.key(), extension);
+            // Tên gốc theo hash nên variant đã có là đúng nội dung, không cần sinh lại
+            if (fileStorageService.stat(variantName).isEmpty()) {
+                Path temp = fileStorageService.createTempFile();
+                try {
+                    write(resize(source, size.getWidth(), alpha), extension, temp);
+                    fileStorageService.storeGenerated(variantName, temp);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+            }
+            variants.add(size.key() + "=/uploads/" + variantName);
+        }
+
+        productRepository.updateImageVariants(imageUrl, variants.toString());
+        categoryRepository.updateImageVariants(imageUrl, variants.toString());
+        menuCacheService.invalidateMenu();
+        menuCacheService.invalidateCategories();
+    }
+
+    private static BufferedImage read(InputStream source) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(source)) {
+            Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : null;
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > MAX_PIXELS) {
+                    throw new IOException("Image too large: " + reader.getWidth(0) + "x" + reader.getHeight(0));
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Thu nhỏ theo chiều rộng, giữ tỉ lệ; giảm một nửa mỗi bước cho ảnh mịn hơn
+    // (bilinear một lần từ 4000px xuống 160px sẽ bị răng cưa). Không phóng to ảnh nhỏ
+    static BufferedImage resize(BufferedImage source, int targetWidth, boolean alpha) {
+        int type = alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int finalWidth = Math.min(targetWidth, width);
+        int finalHeight = Math.max(1, (int) Math.round((double) height * finalWidth / width));
+
+        BufferedImage current = source;
+        do {
+            int nextWidth = Math.max(finalWidth, width / 2);
+            int nextHeight = nextWidth == finalWidth ? finalHeight : Math.max(finalHeight, height / 2);
+            BufferedImage next = new BufferedImage(nextWidth, nextHeight, type);
+            Graphics2D g = next.createGraphics();
+            try {
+                if (!alpha) {
+                    // JPEG không có alpha: nền trắng thay vì đen
+                    g.setColor(Color.WHITE);
+                    g.fillRect(0, 0, nextWidth, nextHeight);
+                }
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, nextWidth, nextHeight, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+            width = nextWidth;
+            height = nextHeight;
+        } while (width > finalWidth);
+        return current;
+    }
+
+    // Ghi ra file tạm của store; store move vào chỗ nên UploadController không đọc phải file ghi dở
+    private static void write(BufferedImage image, String extension, Path temp) throws IOException {
+        if ("jpg".equals(extension)) {
+            ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            try (ImageOutputStream out = ImageIO.createImageOutputStream(temp.toFile())) {
+                writer.setOutput(out);
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+        } else {
+            ImageIO.write(image, extension, temp.toFile());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
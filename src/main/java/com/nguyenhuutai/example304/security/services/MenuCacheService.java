@@ -0,0 +1,195 @@
+package com.nguyenhuutai.example304.security.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nguyenhuutai.example304.model.Product;
+import com.nguyenhuutai.example304.repository.CategoryRepository;
+import com.nguyenhuutai.example304.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Giữ sẵn JSON của menu/categories kèm ETag. Menu chỉ đổi vài lần/ngày nên
+// khách load trang không phải query + serialize lại; đổi kho chỉ đọc lại số tồn
+// của các món vừa đổi rồi serialize lại, không load lại cả menu.
+// Invalidate chỉ chạy trên instance vừa sửa: snapshot có TTL ngắn để các instance khác
+// (dùng chung DB) thấy món / giá / tồn kho mới sau tối đa chừng đó
+@Service
+public class MenuCacheService {
+
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final ObjectMapper objectMapper;
+
+    private final Object lock = new Object();
+    private Map<Long, Product> menuProducts;
+    private volatile Snapshot menuSnapshot;
+    private volatile Snapshot categoriesSnapshot;
+    private final long ttlNanos;
+    // Mốc System.nanoTime() snapshot hết hạn, tính từ lúc dựng lại từ DB
+    private volatile long menuExpiresAt;
+    private volatile long categoriesExpiresAt;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong rebuilds = new AtomicLong();
+    private final AtomicLong stockRefreshes = new AtomicLong();
+
+    public MenuCacheService(ProductRepository productRepository, CategoryRepository categoryRepository,
+            ObjectMapper objectMapper, @Value("${app.cache.menu.ttl-seconds:30}") long ttlSeconds) {
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.objectMapper = objectMapper;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+    }
+
+    public Snapshot getMenu() {
+        Snapshot snapshot = menuSnapshot;
+        if (snapshot != null && !expired(menuExpiresAt)) {
+            hits.incrementAndGet();
+            return snapshot;
+        }
+        misses.incrementAndGet();
+        synchronized (lock) {
+            if (menuSnapshot == null || expired(menuExpiresAt)) {
+                Map<Long, Product> products = new LinkedHashMap<>();
+                for (Product product : productRepository.findByArchiveFalse()) {
+                    products.put(product.getId(), product);
+                }
+                menuProducts = products;
+                menuSnapshot = serialize(new ArrayList<>(products.values()));
+                menuExpiresAt = System.nanoTime() + ttlNanos;
+                rebuilds.incrementAndGet();
+            }
+            return menuSnapshot;
+        }
+    }
+
+    public Snapshot getCategories() {
+        Snapshot snapshot = categoriesSnapshot;
+        if (snapshot != null && !expired(categoriesExpiresAt)) {
+            hits.incrementAndGet();
+            return snapshot;
+        }
+        misses.incrementAndGet();
+        synchronized (lock) {
+            if (categoriesSnapshot == null || expired(categoriesExpiresAt)) {
+                categoriesSnapshot = serialize(categoryRepository.findAll());
+                categoriesExpiresAt = System.nanoTime() + ttlNanos;
+                rebuilds.incrementAndGet();
+            }
+            return categoriesSnapshot;
+        }
+    }
+
+    public void invalidateMenu() {
+        synchronized (lock) {
+            menuProducts = null;
+            menuSnapshot = null;
+        }
+    }
+
+    public void invalidateCategories() {
+        synchronized (lock) {
+            categoriesSnapshot = null;
+            // Product trong menu nhúng category nên cũng phải dựng lại
+            menuProducts = null;
+            menuSnapshot = null;
+        }
+    }
+
+    // Đọc lại số tồn từ DB sau commit rồi ghi đè (không cộng delta): bản menu vừa
+    // dựng lại sau commit đã có số mới, cộng thêm delta sẽ trừ kho 2 lần. Đọc trong lock
+    // để 2 lần refresh chồng nhau không ghi số cũ đè lên số mới hơn
+    public void onStockChanged(Collection<Long> productIds) {
+        AfterCommit.run(() -> refreshStock(productIds));
+    }
+
+    private void refreshStock(Collection<Long> productIds) {
+        synchronized (lock) {
+            if (menuProducts == null) {
+                return;
+            }
+            List<Long> cached = productIds.stream().filter(menuProducts::containsKey).toList();
+            if (cached.isEmpty()) {
+                return;
+            }
+            boolean changed = false;
+            for (Object[] row : productRepository.findStockByIdIn(cached)) {
+                Product product = menuProducts.get((Long) row[0]);
+                Integer stock = (Integer) row[1];
+                if (!Objects.equals(product.getStockQuantity(), stock)) {
+                    product.setStockQuantity(stock);
+                    changed = true;
+                }
+            }
+            if (changed) {
+                menuSnapshot = serialize(new ArrayList<>(menuProducts.values()));
+                stockRefreshes.incrementAndGet();
+            }
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", hitCount);
+        stats.put("misses", misses.get());
+        stats.put("hitRate", total == 0 ? 0.0 : (double) hitCount / total);
+        stats.put("rebuilds", rebuilds.get());
+        stats.put("stockRefreshes", stockRefreshes.get());
+        return stats;
+    }
+
+    private static boolean expired(long expiresAt) {
+        return System.nanoTime() - expiresAt >= 0;
+    }
+
+    private Snapshot serialize(List<?> items) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(items);
+            return new Snapshot(json, "\"" + DigestUtils.md5DigestAsHex(json) + "\"");
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Cannot serialize menu", e);
+        }
+    }
+
+    public static class Snapshot {
+        private final byte[] json;
+        private final String etag;
+
+        public Snapshot(byte[] json, String etag) {
+            this.json = json;
+            this.etag = etag;
+        }
+
+        public byte[] getJson() { return json; }
+        public String getEtag() { return etag; }
+
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null) {
+                return false;
+            }
+            for (String tag : ifNoneMatch.split(",")) {
+                String candidate = tag.trim();
+                if (candidate.startsWith("W/")) {
+                    candidate = candidate.substring(2);
+                }
+                if (candidate.equals(etag) || candidate.equals("*")) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
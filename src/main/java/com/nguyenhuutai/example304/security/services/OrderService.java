@@ -1,13 +1,28 @@
 package com.nguyenhuutai.example304.security.services;
 
+import com.nguyenhuutai.example304.events.OrderChangedEvent;
+import com.nguyenhuutai.example304.events.TableStatusChangedEvent;
 import com.nguyenhuutai.example304.model.*;
+import com.nguyenhuutai.example304.payload.response.OrderPageResponse;
+import com.nguyenhuutai.example304.payload.response.OrderSummary;
 import com.nguyenhuutai.example304.repository.*;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional
@@ -17,20 +32,42 @@ public class OrderService {
     private final OrderItemRepository orderItemRepository;
     private final CoffeeTableRepository tableRepository;
     private final ProductRepository productRepository;
-    private final WebSocketService webSocketService;
+    private final PromotionRepository promotionRepository;
+    private final DomainEventPublisher eventPublisher;
+    private final StockService stockService;
+    private final DashboardMetricsService dashboardMetrics;
+    private final SalesAnalyticsService salesAnalytics;
 
     public OrderService(OrderRepository orderRepository, OrderItemRepository orderItemRepository,
             CoffeeTableRepository tableRepository, ProductRepository productRepository,
-            WebSocketService webSocketService) {
+            PromotionRepository promotionRepository, DomainEventPublisher eventPublisher, StockService stockService,
+            DashboardMetricsService dashboardMetrics, SalesAnalyticsService salesAnalytics) {
         this.orderRepository = orderRepository;
         this.orderItemRepository = orderItemRepository;
         this.tableRepository = tableRepository;
         this.productRepository = productRepository;
-        this.webSocketService = webSocketService;
+        this.promotionRepository = promotionRepository;
+        this.eventPublisher = eventPublisher;
+        this.stockService = stockService;
+        this.dashboardMetrics = dashboardMetrics;
+        this.salesAnalytics = salesAnalytics;
     }
 
-    public List<Order> getAllOrders() {
-        return orderRepository.findAll();
+    private static final int MAX_PAGE_SIZE = 200;
+
+    @Transactional(readOnly = true)
+    public OrderPageResponse getOrders(Long cursor, Order.OrderStatus status, Long tableId, Long employeeId,
+            LocalDateTime createdFrom, LocalDateTime createdTo, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        // Lấy dư 1 dòng để biết còn trang sau hay không
+        List<OrderSummary> rows = orderRepository.findSummaries(cursor, status, tableId, employeeId,
+                createdFrom, createdTo, PageRequest.of(0, pageSize + 1));
+
+        if (rows.size() > pageSize) {
+            List<OrderSummary> page = rows.subList(0, pageSize);
+            return new OrderPageResponse(new ArrayList<>(page), page.get(pageSize - 1).getId());
+        }
+        return new OrderPageResponse(rows, null);
     }
 
     public Order createOrder(Long tableId, Long employeeId) {
@@ -38,57 +75,232 @@ public class OrderService {
                 .orElseThrow(() -> new RuntimeException("Table not found"));
         Order order = new Order(table, employeeId);
         Order savedOrder = orderRepository.save(order);
+        dashboardMetrics.onOrderCreated(savedOrder);
 
         table.setStatus(CoffeeTable.TableStatus.OCCUPIED);
         tableRepository.save(table);
 
-        webSocketService.notifyTableStatus(tableId, "OCCUPIED");
+        eventPublisher.publish(new TableStatusChangedEvent(tableId, "OCCUPIED"));
         return savedOrder;
     }
 
+    // Tạo order kèm toàn bộ món trong một transaction: 1 query load product,
+    // insert order_items theo batch, cộng tổng trong bộ nhớ và chỉ bắn 1 event
+    public Order placeOrder(Long tableId, Long employeeId, Map<Long, Integer> quantities) {
+        if (quantities == null || quantities.isEmpty()) {
+            throw new RuntimeException("Order has no items");
+        }
+
+        CoffeeTable table = tableRepository.findById(tableId)
+                .orElseThrow(() -> new RuntimeException("Table not found"));
+        Map<Long, Product> products = productRepository.findAllById(quantities.keySet()).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        Order order = orderRepository.save(new Order(table, employeeId));
+        dashboardMetrics.onOrderCreated(order);
+        stockService.reserve(quantities);
+
+        List<OrderItem> items = new ArrayList<>(quantities.size());
+        BigDecimal total = BigDecimal.ZERO;
+        for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+            Product product = products.get(line.getKey());
+            if (product == null) {
+                throw new RuntimeException("Product not found");
+            }
+            OrderItem orderItem = new OrderItem(order, product, line.getValue(), product.getPrice());
+            items.add(orderItem);
+            total = total.add(orderItem.getSubtotal());
+        }
+        orderItemRepository.saveAll(items);
+        for (OrderItem item : items) {
+            salesAnalytics.recordLine(order, item.getProduct().getId(), item.getQuantity(), item.getSubtotal());
+        }
+
+        applyItemDelta(order, total);
+        table.setStatus(CoffeeTable.TableStatus.OCCUPIED);
+
+        eventPublisher.publish(new TableStatusChangedEvent(tableId, "OCCUPIED"));
+        eventPublisher.publish(OrderChangedEvent.created(order, categoryIdsOf(products.values())));
+        return order;
+    }
+
     public Order addItemToOrder(Long orderId, Long productId, Integer quantity) {
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new RuntimeException("Order not found"));
+        Order order = lockOpenOrder(orderId);
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
 
-        if (product.getStockQuantity() < quantity) {
-            throw new RuntimeException("Insufficient stock");
-        }
+        stockService.reserve(productId, quantity);
 
         OrderItem orderItem = new OrderItem(order, product, quantity, product.getPrice());
         orderItemRepository.save(orderItem);
+        salesAnalytics.recordLine(order, productId, quantity, orderItem.getSubtotal());
+
+        applyItemDelta(order, orderItem.getSubtotal());
+        eventPublisher.publish(OrderChangedEvent.updated(order, categoryIdsOf(List.of(product))));
+
+        return order;
+    }
+
+    public Order updateItemQuantity(Long orderId, Long itemId, Integer quantity) {
+        if (quantity == null || quantity <= 0) {
+            throw new RuntimeException("Invalid quantity");
+        }
+        lockOpenOrder(orderId);
+        OrderItem orderItem = findItemOfOrder(orderId, itemId);
+        Order order = orderItem.getOrder();
+        Long productId = orderItem.getProduct().getId();
+
+        int change = quantity - orderItem.getQuantity();
+        if (change > 0) {
+            stockService.reserve(productId, change);
+        } else if (change < 0) {
+            stockService.release(Map.of(productId, -change));
+        }
+
+        BigDecimal oldSubtotal = orderItem.getSubtotal();
+        orderItem.setQuantity(quantity);
+        orderItemRepository.save(orderItem);
+        salesAnalytics.recordLine(order, productId, change, orderItem.getSubtotal().subtract(oldSubtotal));
+
+        applyItemDelta(order, orderItem.getSubtotal().subtract(oldSubtotal));
+        eventPublisher.publish(OrderChangedEvent.updated(order, categoryIdsOf(List.of(orderItem.getProduct()))));
+        return order;
+    }
+
+    public Order removeItemFromOrder(Long orderId, Long itemId) {
+        lockOpenOrder(orderId);
+        OrderItem orderItem = findItemOfOrder(orderId, itemId);
+        Order order = orderItem.getOrder();
+
+        stockService.release(Map.of(orderItem.getProduct().getId(), orderItem.getQuantity()));
+        salesAnalytics.recordLine(order, orderItem.getProduct().getId(), -orderItem.getQuantity(),
+                orderItem.getSubtotal().negate());
+        orderItemRepository.delete(orderItem);
+
+        applyItemDelta(order, orderItem.getSubtotal().negate());
+        eventPublisher.publish(OrderChangedEvent.updated(order, categoryIdsOf(List.of(orderItem.getProduct()))));
+        return order;
+    }
+
+    // Dùng để route event tới đúng quầy (bar/bếp)
+    private static Set<Long> categoryIdsOf(Collection<Product> products) {
+        Set<Long> ids = new HashSet<>();
+        for (Product product : products) {
+            if (product.getCategory() != null) {
+                ids.add(product.getCategory().getId());
+            }
+        }
+        return ids;
+    }
+
+    // Khoá dòng order tới hết transaction trước khi đọc subtotal: hai nhân viên sửa món cùng
+    // order thì chạy lần lượt, delta sau cộng trên subtotal đã gồm delta trước.
+    // Order đã PAID/CANCELLED thì bill, rollup, số bán đã chốt: không cho sửa món nữa
+    private Order lockOpenOrder(Long orderId) {
+        Order order = orderRepository.findByIdForUpdate(orderId)
+                .orElseThrow(() -> new RuntimeException("Order not found"));
+        if (order.getStatus() == Order.OrderStatus.PAID || order.getStatus() == Order.OrderStatus.CANCELLED) {
+            throw new RuntimeException("Order is closed");
+        }
+        return order;
+    }
 
-        product.setStockQuantity(product.getStockQuantity() - quantity);
-        productRepository.save(product);
+    private OrderItem findItemOfOrder(Long orderId, Long itemId) {
+        OrderItem orderItem = orderItemRepository.findById(itemId)
+                .orElseThrow(() -> new RuntimeException("Order item not found"));
+        if (!orderItem.getOrder().getId().equals(orderId)) {
+            throw new RuntimeException("Order item not found");
+        }
+        return orderItem;
+    }
 
-        updateOrderTotal(orderId);
-        webSocketService.notifyOrderUpdate(order);
+    // Cộng dồn subtotal theo delta thay vì chạy lại SUM mỗi lần thêm món.
+    // Order cũ (trước khi có cột subtotal_amount) được khởi tạo từ SUM một lần;
+    // query SUM auto-flush nên đã gồm thay đổi vừa rồi -> trừ delta để ra mốc cũ
+    private void applyItemDelta(Order order, BigDecimal delta) {
+        BigDecimal subtotal = order.getSubtotalAmount();
+        if (subtotal == null) {
+            subtotal = order.getId() != null ? sumItemSubtotals(order.getId()).subtract(delta) : BigDecimal.ZERO;
+        }
+        order.setSubtotalAmount(subtotal.add(delta));
+        order.setTotalAmount(applyPromotion(order.getSubtotalAmount(), order.getPromotion()));
+    }
 
-        return orderRepository.findById(orderId).orElse(null);
+    private BigDecimal sumItemSubtotals(Long orderId) {
+        BigDecimal sum = orderItemRepository.getTotalAmountByOrderId(orderId);
+        return sum != null ? sum : BigDecimal.ZERO;
+    }
+
+    // Gắn (promotionId != null) hoặc gỡ khuyến mãi của order. Hiệu lực (active, ngày)
+    // chỉ kiểm tra lúc gắn: thêm/sửa món sau khi khuyến mãi hết hạn không làm đổi giá order
+    public Order setOrderPromotion(Long orderId, Long promotionId) {
+        Order order = lockOpenOrder(orderId);
+
+        Promotion promotion = null;
+        if (promotionId != null) {
+            promotion = promotionRepository.findById(promotionId)
+                    .orElseThrow(() -> new RuntimeException("Promotion not found"));
+            if (!isPromotionRunning(promotion, LocalDate.now())) {
+                throw new RuntimeException("Promotion is not active");
+            }
+        }
+        order.setPromotion(promotion);
+        applyItemDelta(order, BigDecimal.ZERO);
+
+        eventPublisher.publish(OrderChangedEvent.updated(order));
+        return order;
+    }
+
+    static BigDecimal applyPromotion(BigDecimal subtotal, Promotion promotion) {
+        BigDecimal total = subtotal;
+        if (promotion != null) {
+            if (promotion.getDiscountPercentage() != null) {
+                total = total.subtract(subtotal.multiply(promotion.getDiscountPercentage())
+                        .divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP));
+            }
+            if (promotion.getDiscountAmount() != null) {
+                total = total.subtract(promotion.getDiscountAmount());
+            }
+        }
+        return total.max(BigDecimal.ZERO).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    static boolean isPromotionRunning(Promotion promotion, LocalDate today) {
+        return Boolean.TRUE.equals(promotion.getIsActive())
+                && (promotion.getStartDate() == null || !today.isBefore(promotion.getStartDate()))
+                && (promotion.getEndDate() == null || !today.isAfter(promotion.getEndDate()));
     }
 
     public Order updateOrderStatus(Long orderId, Order.OrderStatus status) {
-        Order order = orderRepository.findById(orderId)
+        // Cùng khoá với sửa món: không đóng order giữa lúc đang cộng món
+        Order order = orderRepository.findByIdForUpdate(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
+
+        // Huỷ đơn -> trả kho (chỉ 1 lần, lần chuyển CANCELLED đầu tiên)
+        if (status == Order.OrderStatus.CANCELLED && order.getStatus() != Order.OrderStatus.CANCELLED) {
+            stockService.releaseOrder(orderId);
+            salesAnalytics.removeOrder(order);
+        }
+        dashboardMetrics.onOrderStatusChanged(order.getStatus(), status);
         order.setStatus(status);
         Order updatedOrder = orderRepository.save(order);
 
-        webSocketService.notifyOrderUpdate(updatedOrder);
+        eventPublisher.publish(OrderChangedEvent.updated(updatedOrder));
         return updatedOrder;
     }
 
+    // Tính lại toàn bộ từ SUM(order_items) - chỉ dùng khi đối soát phát hiện lệch
     public void updateOrderTotal(Long orderId) {
-        Double total = orderItemRepository.getTotalAmountByOrderId(orderId);
-        if (total != null) {
-            Order order = orderRepository.findById(orderId).orElse(null);
-            if (order != null) {
-                order.setTotalAmount(BigDecimal.valueOf(total));
-                orderRepository.save(order);
-            }
+        Order order = orderRepository.findByIdForUpdate(orderId).orElse(null);
+        if (order != null) {
+            order.setSubtotalAmount(sumItemSubtotals(orderId));
+            order.setTotalAmount(applyPromotion(order.getSubtotalAmount(), order.getPromotion()));
+            orderRepository.save(order);
         }
     }
 
+    // Giữ nguyên response Order đầy đủ cho client hiện tại; table/promotion đi kèm
+    // trong cùng câu SELECT nhờ entity graph của repository
     public List<Order> getPendingOrders() {
         return orderRepository.findByStatus(Order.OrderStatus.PENDING);
     }
@@ -104,11 +316,18 @@ public class OrderService {
 
         Long tableId = order.getTable().getId();
 
+        // Trả kho trước khi xoá items (đơn CANCELLED đã trả rồi)
+        if (order.getStatus() != Order.OrderStatus.CANCELLED) {
+            stockService.releaseOrder(id);
+        }
+        salesAnalytics.removeOrder(order);
+
         // Xóa order items trước
         orderItemRepository.deleteByOrderId(id);
 
         // Xóa order
         orderRepository.deleteById(id);
+        dashboardMetrics.onOrderDeleted(order);
 
         // Cập nhật trạng thái bàn thành FREE
         CoffeeTable table = tableRepository.findById(tableId)
@@ -118,7 +337,7 @@ public class OrderService {
         tableRepository.save(table);
 
         // Gửi WebSocket update cho FE
-        webSocketService.notifyTableStatus(tableId, "FREE");
+        eventPublisher.publish(new TableStatusChangedEvent(tableId, "FREE"));
     }
 
     public Order payOrder(Long orderId, String paymentMethod) {
@@ -126,6 +345,7 @@ public class OrderService {
                 .orElseThrow(() -> new RuntimeException("Order not found"));
 
         // 1) Cập nhật trạng thái đơn
+        dashboardMetrics.onOrderStatusChanged(order.getStatus(), Order.OrderStatus.PAID);
         order.setStatus(Order.OrderStatus.PAID);
         order.setPaymentMethod(paymentMethod);
         Order paidOrder = orderRepository.save(order);
@@ -136,8 +356,8 @@ public class OrderService {
         tableRepository.save(table);
 
         // 3) Gửi WebSocket về FE
-        webSocketService.notifyOrderUpdate(paidOrder);
-        webSocketService.notifyTableStatus(table.getId(), "OCCUPIED");
+        eventPublisher.publish(OrderChangedEvent.updated(paidOrder));
+        eventPublisher.publish(new TableStatusChangedEvent(table.getId(), "OCCUPIED"));
 
         return paidOrder;
     }
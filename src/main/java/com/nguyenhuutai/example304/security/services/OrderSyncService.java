@@ -0,0 +1,51 @@
+package com.nguyenhuutai.example304.security.services;
+
+import com.nguyenhuutai.example304.model.CoffeeTable;
+import com.nguyenhuutai.example304.payload.response.SyncResponse;
+import com.nguyenhuutai.example304.repository.CoffeeTableRepository;
+import com.nguyenhuutai.example304.repository.OrderRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.ArrayList;
+import java.util.List;
+
+// Đồng bộ lại cho client WebSocket vừa kết nối lại: ưu tiên gửi phần delta bị lỡ
+// từ ring buffer của WebSocketService, chỉ khi đã trôi khỏi buffer mới gửi snapshot
+@Service
+public class OrderSyncService {
+
+    private final WebSocketService webSocketService;
+    private final OrderRepository orderRepository;
+    private final CoffeeTableRepository tableRepository;
+
+    public OrderSyncService(WebSocketService webSocketService, OrderRepository orderRepository,
+            CoffeeTableRepository tableRepository) {
+        this.webSocketService = webSocketService;
+        this.orderRepository = orderRepository;
+        this.tableRepository = tableRepository;
+    }
+
+    public SyncResponse sync(Long lastSeq) {
+        if (lastSeq != null) {
+            List<Object> missed = webSocketService.replaySince(lastSeq);
+            if (missed != null) {
+                // missed liên tục từ lastSeq + 1
+                return SyncResponse.delta(lastSeq + missed.size(), missed);
+            }
+        }
+        return snapshot();
+    }
+
+    // Lấy seq trước khi đọc DB: event <= seq đã commit nên đã nằm trong dữ liệu đọc ra;
+    // event sau đó client sẽ nhận live (delta mang trạng thái đầy đủ nên nhận trùng vô hại)
+    @Transactional(readOnly = true)
+    public SyncResponse snapshot() {
+        long seq = webSocketService.getLastSeq();
+        List<SyncResponse.TableState> tables = new ArrayList<>();
+        for (CoffeeTable table : tableRepository.findAll()) {
+            tables.add(new SyncResponse.TableState(table.getId(),
+                    table.getStatus() != null ? table.getStatus().name() : null));
+        }
+        return SyncResponse.snapshot(seq, orderRepository.findActiveSummaries(), tables);
+    }
+}
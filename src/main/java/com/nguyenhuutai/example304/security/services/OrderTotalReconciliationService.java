@@ -0,0 +1,71 @@
+package com.nguyenhuutai.example304.security.services;
+
+import com.nguyenhuutai.example304.repository.OrderItemRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class OrderTotalReconciliationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderTotalReconciliationService.class);
+
+    private final OrderItemRepository orderItemRepository;
+    private final OrderService orderService;
+
+    public OrderTotalReconciliationService(OrderItemRepository orderItemRepository, OrderService orderService) {
+        this.orderItemRepository = orderItemRepository;
+        this.orderService = orderService;
+    }
+
+    // Định kỳ chỉ kiểm tra đơn trong 24h gần nhất và chỉ log, không tự sửa
+    @Scheduled(fixedDelayString = "${app.orders.reconcile-interval-ms:3600000}",
+            initialDelayString = "${app.orders.reconcile-interval-ms:3600000}")
+    public void reconcileRecentOrders() {
+        Map<String, Object> report = reconcile(LocalDateTime.now().minusDays(1), false);
+        if (!((List<?>) report.get("drift")).isEmpty()) {
+            logger.warn("Order total drift detected: {}", report.get("drift"));
+        }
+    }
+
+    @Transactional
+    public Map<String, Object> reconcile(LocalDateTime since, boolean repair) {
+        List<Map<String, Object>> drift = new ArrayList<>();
+        List<Object[]> rows = orderItemRepository.compareSubtotalsSince(since);
+
+        for (Object[] row : rows) {
+            Long orderId = (Long) row[0];
+            BigDecimal stored = (BigDecimal) row[1];
+            BigDecimal actual = (BigDecimal) row[2];
+            BigDecimal storedOrZero = stored != null ? stored : BigDecimal.ZERO;
+
+            if (storedOrZero.compareTo(actual) != 0) {
+                Map<String, Object> entry = new HashMap<>();
+                entry.put("orderId", orderId);
+                entry.put("storedSubtotal", stored);
+                entry.put("actualSubtotal", actual);
+                drift.add(entry);
+
+                if (repair) {
+                    orderService.updateOrderTotal(orderId);
+                }
+            }
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("checkedOrders", rows.size());
+        report.put("driftedOrders", drift.size());
+        report.put("repaired", repair);
+        report.put("drift", drift);
+        return report;
+    }
+}
@@ -0,0 +1,235 @@
+package com.nguyenhuutai.example304.security.services;
+
+import com.nguyenhuutai.example304.model.Product;
+import com.nguyenhuutai.example304.payload.response.ProductSuggestion;
+import com.nguyenhuutai.example304.repository.ProductRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+// Inverted index trong bộ nhớ cho tìm kiếm món: token hoá tên/mô tả/danh mục,
+// bỏ dấu tiếng Việt ("cà phê sữa" ~ "ca phe sua") và index mọi prefix của từng từ
+// để gõ dở "ca ph" cũng ra. Mỗi từ khớp riêng nên gõ liền "caph" thì không ra "cà phê".
+// Món đã archive không vào index. Dựng 1 lần lúc khởi động, cập nhật theo từng lần ghi ở ProductService
+@Component
+public class ProductSearchIndex {
+
+    static final int NAME_WEIGHT = 10;
+    static final int CATEGORY_WEIGHT = 4;
+    static final int DESCRIPTION_WEIGHT = 1;
+    private static final int MAX_PREFIX_LENGTH = 20;
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final ProductRepository productRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // term -> (productId -> trọng số field tốt nhất chứa term)
+    private final Map<String, Map<Long, Integer>> exactTerms = new HashMap<>();
+    private final Map<String, Map<Long, Integer>> prefixTerms = new HashMap<>();
+    private final Map<Long, IndexedProduct> documents = new HashMap<>();
+
+    public ProductSearchIndex(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Product> products = productRepository.findAll();
+        lock.writeLock().lock();
+        try {
+            exactTerms.clear();
+            prefixTerms.clear();
+            documents.clear();
+            for (Product product : products) {
+                addLocked(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void index(Product product) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(product.getId());
+            addLocked(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Trả id theo thứ tự điểm giảm dần; mọi từ trong query đều phải khớp
+    public List<Long> search(String query, int limit) {
+        List<String> queryTokens = new ArrayList<>(tokenize(query));
+        if (queryTokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            Map<Long, Integer> scores = null;
+            for (String token : queryTokens) {
+                Map<Long, Integer> tokenScores = new HashMap<>();
+                // Khớp trọn từ được điểm gấp đôi khớp prefix
+                exactTerms.getOrDefault(token, Map.of())
+                        .forEach((id, weight) -> tokenScores.merge(id, weight * 2, Math::max));
+                prefixTerms.getOrDefault(token, Map.of())
+                        .forEach((id, weight) -> tokenScores.merge(id, weight, Math::max));
+
+                if (scores == null) {
+                    scores = tokenScores;
+                } else {
+                    scores.keySet().retainAll(tokenScores.keySet());
+                    scores.replaceAll((id, score) -> score + tokenScores.get(id));
+                }
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+
+            Comparator<Map.Entry<Long, Integer>> byRank = Map.Entry.<Long, Integer>comparingByValue().reversed();
+            byRank = byRank.thenComparingInt(entry -> documents.get(entry.getKey()).name.length())
+                    .thenComparing(Map.Entry.comparingByKey());
+            return scores.entrySet().stream()
+                    .sorted(byRank)
+                    .limit(limit)
+                    .map(Map.Entry::getKey)
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Gợi ý khi đang gõ: trả thẳng từ index, không chạm DB
+    public List<ProductSuggestion> suggest(String query, int limit) {
+        List<Long> ids = search(query, limit);
+        lock.readLock().lock();
+        try {
+            List<ProductSuggestion> suggestions = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                IndexedProduct document = documents.get(id);
+                if (document != null) {
+                    suggestions.add(new ProductSuggestion(id, document.name));
+                }
+            }
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static String fold(String text) {
+        String lower = text.toLowerCase(Locale.ROOT).replace('đ', 'd');
+        return MARKS.matcher(Normalizer.normalize(lower, Normalizer.Form.NFD)).replaceAll("");
+    }
+
+    static Collection<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : SEPARATORS.split(fold(text))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private void addLocked(Product product) {
+        if (product.getId() == null || Boolean.TRUE.equals(product.getArchive())) {
+            return;
+        }
+        String name = product.getName() != null ? product.getName() : "";
+        Map<String, Integer> termWeights = new HashMap<>();
+        addTerms(termWeights, name, NAME_WEIGHT);
+        if (product.getCategory() != null) {
+            addTerms(termWeights, product.getCategory().getName(), CATEGORY_WEIGHT);
+        }
+        addTerms(termWeights, product.getDescription(), DESCRIPTION_WEIGHT);
+
+        Long id = product.getId();
+        Set<String> prefixes = new LinkedHashSet<>();
+        for (Map.Entry<String, Integer> term : termWeights.entrySet()) {
+            exactTerms.computeIfAbsent(term.getKey(), key -> new HashMap<>()).put(id, term.getValue());
+            int maxLength = Math.min(term.getKey().length(), MAX_PREFIX_LENGTH);
+            for (int length = 1; length <= maxLength; length++) {
+                String prefix = term.getKey().substring(0, length);
+                prefixes.add(prefix);
+                prefixTerms.computeIfAbsent(prefix, key -> new HashMap<>()).merge(id, term.getValue(), Math::max);
+            }
+        }
+        documents.put(id, new IndexedProduct(name, termWeights.keySet(), prefixes));
+    }
+
+    private void removeLocked(Long productId) {
+        IndexedProduct document = documents.remove(productId);
+        if (document == null) {
+            return;
+        }
+        removePostings(exactTerms, document.terms, productId);
+        removePostings(prefixTerms, document.prefixes, productId);
+    }
+
+    private static void removePostings(Map<String, Map<Long, Integer>> index, Set<String> keys, Long productId) {
+        for (String key : keys) {
+            Map<Long, Integer> postings = index.get(key);
+            if (postings != null) {
+                postings.remove(productId);
+                if (postings.isEmpty()) {
+                    index.remove(key);
+                }
+            }
+        }
+    }
+
+    private static void addTerms(Map<String, Integer> termWeights, String text, int weight) {
+        for (String token : tokenize(text)) {
+            termWeights.merge(token, weight, Math::max);
+        }
+    }
+
+    private static final class IndexedProduct {
+        private final String name;
+        private final Set<String> terms;
+        private final Set<String> prefixes;
+
+        private IndexedProduct(String name, Set<String> terms, Set<String> prefixes) {
+            this.name = name;
+            this.terms = Set.copyOf(terms);
+            this.prefixes = prefixes;
+        }
+    }
+}
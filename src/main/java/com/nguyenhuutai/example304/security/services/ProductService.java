@@ -2,27 +2,48 @@ package com.nguyenhuutai.example304.security.services;
 
 import com.nguyenhuutai.example304.model.Product;
 import com.nguyenhuutai.example304.model.Category;
+import com.nguyenhuutai.example304.payload.response.ProductSuggestion;
 import com.nguyenhuutai.example304.repository.ProductRepository;
 import com.nguyenhuutai.example304.repository.CategoryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class ProductService {
 
+    private static final Logger logger = LoggerFactory.getLogger(ProductService.class);
+
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
     private final FileStorageService fileStorageService;
+    private final MenuCacheService menuCacheService;
+    private final ProductSearchIndex searchIndex;
+    private final ImageVariantService imageVariantService;
+    private final ImageReferenceService imageReferenceService;
 
     public ProductService(ProductRepository productRepository,
                           CategoryRepository categoryRepository,
-                          FileStorageService fileStorageService) {
+                          FileStorageService fileStorageService,
+                          MenuCacheService menuCacheService,
+                          ProductSearchIndex searchIndex,
+                          ImageVariantService imageVariantService,
+                          ImageReferenceService imageReferenceService) {
         this.productRepository = productRepository;
         this.categoryRepository = categoryRepository;
         this.fileStorageService = fileStorageService;
+        this.menuCacheService = menuCacheService;
+        this.searchIndex = searchIndex;
+        this.imageVariantService = imageVariantService;
+        this.imageReferenceService = imageReferenceService;
     }
 
     // === CREATE PRODUCT ===
@@ -40,7 +61,13 @@ public class ProductService {
         product.setImageUrl(imageUrl);
         product.setArchive(false);
 
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        menuCacheService.invalidateMenu();
+        searchIndex.index(saved);
+        if (imageUrl != null) {
+            imageVariantService.generateAsync(imageUrl);
+        }
+        return saved;
     }
 
     // === UPDATE PRODUCT ===
@@ -56,36 +83,45 @@ public class ProductService {
         product.setPrice(price);
         product.setCategory(category);
         product.setStockQuantity(stockQuantity);
+        String oldImageUrl = product.getImageUrl();
         if (imageUrl != null) {
             product.setImageUrl(imageUrl);
         }
 
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        menuCacheService.invalidateMenu();
+        searchIndex.index(saved);
+        if (imageUrl != null) {
+            imageVariantService.generateAsync(imageUrl);
+            if (!imageUrl.equals(oldImageUrl)) {
+                imageReferenceService.release(oldImageUrl);
+            }
+        }
+        return saved;
     }
 
-    // === DELETE PRODUCT (XÓA KHỎI DB + XÓA FILE ẢNH) ===
+    // === DELETE PRODUCT (XÓA KHỎI DB + XÓA FILE ẢNH NẾU KHÔNG CÒN AI DÙNG) ===
     public boolean deleteProduct(Long id) {
         Optional<Product> productOpt = productRepository.findById(id);
         if (productOpt.isPresent()) {
             Product product = productOpt.get();
 
-            // Xóa ảnh nếu có
-            if (product.getImageUrl() != null) {
-                try {
-                    fileStorageService.deleteFile(product.getImageUrl());
-                } catch (Exception e) {
-                    System.out.println("⚠️ Không thể xóa file ảnh: " + e.getMessage());
-                }
-            }
-
             // Xóa sản phẩm khỏi database
             productRepository.deleteById(id);
+            menuCacheService.invalidateMenu();
+            searchIndex.remove(id);
+
+            // Ảnh lưu theo hash có thể đang được món/danh mục khác dùng chung
+            try {
+                imageReferenceService.release(product.getImageUrl());
+            } catch (Exception e) {
+                logger.warn("Không thể xóa file ảnh {}: {}", product.getImageUrl(), e.getMessage());
+            }
             return true;
         }
         return false;
     }
 
-    // === GET ALL PRODUCTS ===
     public List<Product> getAllProducts() {
         return productRepository.findAll();
     }
@@ -98,12 +134,40 @@ public class ProductService {
         return productRepository.findByArchiveFalse();
     }
 
+    // Menu cho khách: JSON dựng sẵn + ETag, xem MenuCacheService
+    public MenuCacheService.Snapshot getMenuSnapshot() {
+        return menuCacheService.getMenu();
+    }
+
+    public MenuCacheService.Snapshot getCategoriesSnapshot() {
+        return menuCacheService.getCategories();
+    }
+
+    public Map<String, Object> menuCacheStats() {
+        return menuCacheService.stats();
+    }
+
     public List<Product> getProductsByCategory(Long categoryId) {
         return productRepository.findByCategoryId(categoryId);
     }
 
-    public List<Product> searchProducts(String keyword) {
-        return productRepository.findByNameContainingIgnoreCase(keyword);
+    // Tra inverted index (không LIKE '%x%'), chỉ load entity của các id khớp.
+    // Món đã archive không nằm trong index nên không còn xuất hiện trong kết quả
+    public List<Product> searchProducts(String keyword, int limit) {
+        List<Long> rankedIds = searchIndex.search(keyword, limit);
+        if (rankedIds.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Product> byId = productRepository.findAllById(rankedIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        return rankedIds.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    public List<ProductSuggestion> suggestProducts(String prefix, int limit) {
+        return searchIndex.suggest(prefix, limit);
     }
 
     // === CATEGORY METHODS ===
@@ -17,17 +17,22 @@ public class PromotionService {
     private final PromotionRepository promotionRepository;
     private final PromotionProductRepository promotionProductRepository;
     private final ProductRepository productRepository;
+    private final MenuCacheService menuCacheService;
 
     public PromotionService(PromotionRepository promotionRepository,
                           PromotionProductRepository promotionProductRepository,
-                          ProductRepository productRepository) {
+                          ProductRepository productRepository,
+                          MenuCacheService menuCacheService) {
         this.promotionRepository = promotionRepository;
         this.promotionProductRepository = promotionProductRepository;
         this.productRepository = productRepository;
+        this.menuCacheService = menuCacheService;
     }
 
     public Promotion createPromotion(Promotion promotion) {
-        return promotionRepository.save(promotion);
+        Promotion saved = promotionRepository.save(promotion);
+        menuCacheService.invalidateMenu();
+        return saved;
     }
 
     public Promotion updatePromotion(Long id, Promotion promotionDetails) {
@@ -41,7 +46,9 @@ public class PromotionService {
         promotion.setEndDate(promotionDetails.getEndDate());
         promotion.setIsActive(promotionDetails.getIsActive());
 
-        return promotionRepository.save(promotion);
+        Promotion saved = promotionRepository.save(promotion);
+        menuCacheService.invalidateMenu();
+        return saved;
     }
 
     public boolean deletePromotion(Long id) {
@@ -49,6 +56,7 @@ public class PromotionService {
             // Xóa tất cả các product liên kết với promotion
             promotionProductRepository.deleteByPromotionId(id);
             promotionRepository.deleteById(id);
+            menuCacheService.invalidateMenu();
             return true;
         }
         return false;
@@ -64,6 +72,7 @@ public class PromotionService {
             if (!exists) {
                 PromotionProduct promotionProduct = new PromotionProduct(promotion.get(), product.get());
                 promotionProductRepository.save(promotionProduct);
+                menuCacheService.invalidateMenu();
                 return true;
             }
         }
@@ -72,6 +81,7 @@ public class PromotionService {
 
     public boolean removeProductFromPromotion(Long promotionId, Long productId) {
         promotionProductRepository.deleteByPromotionIdAndProductId(promotionId, productId);
+        menuCacheService.invalidateMenu();
         return true;
     }
 
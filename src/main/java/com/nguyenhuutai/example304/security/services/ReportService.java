@@ -3,6 +3,7 @@ package com.nguyenhuutai.example304.security.services;
 import com.nguyenhuutai.example304.repository.BillRepository;
 import com.nguyenhuutai.example304.repository.OrderRepository;
 import org.springframework.stereotype.Service;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
@@ -12,31 +13,20 @@ public class ReportService {
 
     private final BillRepository billRepository;
     private final OrderRepository orderRepository;
+    private final DashboardMetricsService dashboardMetrics;
+    private final RevenueRollupService revenueRollupService;
 
-    public ReportService(BillRepository billRepository, OrderRepository orderRepository) {
+    public ReportService(BillRepository billRepository, OrderRepository orderRepository,
+            DashboardMetricsService dashboardMetrics, RevenueRollupService revenueRollupService) {
         this.billRepository = billRepository;
         this.orderRepository = orderRepository;
+        this.dashboardMetrics = dashboardMetrics;
+        this.revenueRollupService = revenueRollupService;
     }
 
+    // Đọc số liệu giữ sẵn trong bộ nhớ, không query DB mỗi lần dashboard refresh
     public Map<String, Object> getDashboardReport() {
-        Map<String, Object> report = new HashMap<>();
-        
-        LocalDateTime todayStart = LocalDateTime.now().withHour(0).withMinute(0).withSecond(0);
-        LocalDateTime todayEnd = LocalDateTime.now().withHour(23).withMinute(59).withSecond(59);
-        
-        // Doanh thu hôm nay
-        Double todayRevenue = billRepository.getTotalRevenueByDateRange(todayStart, todayEnd);
-        report.put("todayRevenue", todayRevenue != null ? todayRevenue : 0.0);
-        
-        // Tổng số đơn hàng hôm nay - SỬA Ở ĐÂY
-        long todayOrders = orderRepository.findByCreatedAtBetween(todayStart, todayEnd).size();
-        report.put("todayOrders", todayOrders);
-        
-        // Đơn hàng đang chờ xử lý - SỬA Ở ĐÂY
-        long pendingOrders = orderRepository.findByStatus(com.nguyenhuutai.example304.model.Order.OrderStatus.PENDING).size();
-        report.put("pendingOrders", pendingOrders);
-        
-        return report;
+        return dashboardMetrics.snapshot();
     }
 
     public Map<String, Object> getRevenueReport(LocalDateTime startDate, LocalDateTime endDate) {
@@ -45,10 +35,19 @@ public class ReportService {
         Double totalRevenue = billRepository.getTotalRevenueByDateRange(startDate, endDate);
         report.put("totalRevenue", totalRevenue != null ? totalRevenue : 0.0);
         
-        // SỬA Ở ĐÂY - chuyển từ int sang long
-        long totalBills = billRepository.findByIssuedAtBetween(startDate, endDate).size();
+        // Đếm bằng COUNT, không load toàn bộ bill chỉ để lấy size()
+        long totalBills = billRepository.countByIssuedAtBetween(startDate, endDate);
         report.put("totalBills", totalBills);
         
         return report;
     }
+
+    // Doanh thu theo giờ/ngày/tuần/tháng, đọc từ bảng rollup
+    public Map<String, Object> getRevenueSeries(LocalDate from, LocalDate to, RevenueRollupService.GroupBy groupBy) {
+        return revenueRollupService.getRevenueSeries(from, to, groupBy);
+    }
+
+    public Map<String, Object> rebuildRevenueRollups(LocalDate from, LocalDate to) {
+        return revenueRollupService.backfill(from, to);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,263 @@
+package com.nguyenhuutai.example304.security.services;
+
+import com.nguyenhuutai.example304.model.Bill;
+import com.nguyenhuutai.example304.model.RevenueRollup;
+import com.nguyenhuutai.example304.repository.BillRepository;
+import com.nguyenhuutai.example304.repository.RevenueRollupRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Bảng rollup doanh thu theo giờ + ngày, tách theo phương thức thanh toán.
+// Báo cáo theo khoảng ngày chỉ đọc vài trăm dòng rollup thay vì quét bảng bills.
+// Mọi bill trong cùng giờ / ngày đụng cùng một dòng rollup, nên không upsert trong
+// transaction thanh toán (các quầy sẽ xếp hàng chờ lock dòng đó): delta được gom trong
+// RAM sau commit và ghi theo lô định kỳ, như sales_hourly của SalesAnalyticsService
+@Service
+public class RevenueRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RevenueRollupService.class);
+
+    // Backfill theo từng tháng, mỗi tháng một transaction
+    private static final int BACKFILL_CHUNK_MONTHS = 1;
+
+    public enum GroupBy {
+        HOUR, DAY, WEEK, MONTH
+    }
+
+    private final RevenueRollupRepository rollupRepository;
+    private final BillRepository billRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    // Delta đã commit nhưng chưa ghi xuống revenue_rollups. Restart mất phần này thì
+    // báo cáo lệch tới lần backfill sau (POST /api/admin/reports/revenue/rollups/rebuild)
+    private final Map<BucketKey, BucketDelta> pendingRollups = new ConcurrentHashMap<>();
+
+    public RevenueRollupService(RevenueRollupRepository rollupRepository, BillRepository billRepository,
+            TransactionTemplate transactionTemplate) {
+        this.rollupRepository = rollupRepository;
+        this.billRepository = billRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    // === INCREMENTAL ===
+    // sign = 1 khi bill trở thành COMPLETED, -1 khi bill COMPLETED bị chuyển trạng thái khác.
+    // Chỉ tính sau khi transaction lưu bill commit, rollback thì bỏ
+    public void record(Bill bill, int sign) {
+        if (bill.getTotalAmount() == null || bill.getIssuedAt() == null) {
+            return;
+        }
+        BigDecimal revenue = sign < 0 ? bill.getTotalAmount().negate() : bill.getTotalAmount();
+        String method = methodKey(bill.getPaymentMethod());
+        LocalDateTime hour = bill.getIssuedAt().truncatedTo(ChronoUnit.HOURS);
+        BucketDelta delta = new BucketDelta(revenue, sign);
+        AfterCommit.run(() -> {
+            pendingRollups.merge(new BucketKey(RevenueRollup.Granularity.HOUR, hour, method),
+                    delta, BucketDelta::plus);
+            pendingRollups.merge(new BucketKey(RevenueRollup.Granularity.DAY, hour.truncatedTo(ChronoUnit.DAYS), method),
+                    delta, BucketDelta::plus);
+        });
+    }
+
+    // Ghi các delta đang chờ: mỗi (granularity, bucket, phương thức) một câu upsert cho cả lô bill
+    @Scheduled(fixedDelayString = "${app.reports.rollup-flush-ms:5000}")
+    @PreDestroy
+    public void flushRollups() {
+        if (pendingRollups.isEmpty()) {
+            return;
+        }
+        Map<BucketKey, BucketDelta> batch = new HashMap<>();
+        for (BucketKey key : pendingRollups.keySet()) {
+            BucketDelta delta = pendingRollups.remove(key);
+            if (delta != null) {
+                batch.put(key, delta);
+            }
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> batch.forEach((key, delta) ->
+                    rollupRepository.upsert(key.granularity().name(), key.bucketStart(), key.paymentMethod(),
+                            delta.revenue(), delta.billCount())));
+        } catch (RuntimeException e) {
+            // Trả lại hàng đợi, lần flush sau thử lại
+            batch.forEach((key, delta) -> pendingRollups.merge(key, delta, BucketDelta::plus));
+            logger.warn("Flushing revenue rollups failed, will retry: {}", e.getMessage());
+        }
+    }
+
+    // === BACKFILL ===
+    // Lần đầu chạy (bảng rollup trống) thì dựng lại toàn bộ lịch sử
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (rollupRepository.count() > 0) {
+            return;
+        }
+        LocalDateTime first = billRepository.findFirstIssuedAt();
+        if (first != null) {
+            backfill(first.toLocalDate(), LocalDate.now());
+        }
+    }
+
+    // Xoá rồi dựng lại rollup cho [from, to] (tính cả ngày to)
+    public Map<String, Object> backfill(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new RuntimeException("Invalid date range");
+        }
+        LocalDateTime start = from.atStartOfDay();
+        LocalDateTime end = to.plusDays(1).atStartOfDay();
+        int hourRows = 0;
+        int dayRows = 0;
+
+        LocalDateTime chunkStart = start;
+        while (chunkStart.isBefore(end)) {
+            LocalDateTime chunkEnd = min(chunkStart.plusMonths(BACKFILL_CHUNK_MONTHS), end);
+            LocalDateTime s = chunkStart;
+            int[] rows = transactionTemplate.execute(status -> {
+                // Delta đang chờ của khoảng này đã nằm trong bills mà backfill sắp đọc
+                pendingRollups.keySet().removeIf(key ->
+                        !key.bucketStart().isBefore(s) && key.bucketStart().isBefore(chunkEnd));
+                rollupRepository.deleteRange(s, chunkEnd);
+                return new int[] {
+                        rollupRepository.backfillHours(s, chunkEnd),
+                        rollupRepository.backfillDaysFromHours(s, chunkEnd) };
+            });
+            hourRows += rows[0];
+            dayRows += rows[1];
+            chunkStart = chunkEnd;
+        }
+
+        logger.info("Revenue rollups rebuilt for {}..{}: {} hour rows, {} day rows", from, to, hourRows, dayRows);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("from", from);
+        result.put("to", to);
+        result.put("hourRows", hourRows);
+        result.put("dayRows", dayRows);
+        return result;
+    }
+
+    // === QUERY ===
+    // Khoảng [from, to] tính cả ngày to; HOUR đọc rollup giờ, còn lại đọc rollup ngày
+    @Transactional(readOnly = true)
+    public Map<String, Object> getRevenueSeries(LocalDate from, LocalDate to, GroupBy groupBy) {
+        if (to.isBefore(from)) {
+            throw new RuntimeException("Invalid date range");
+        }
+        RevenueRollup.Granularity granularity = groupBy == GroupBy.HOUR
+                ? RevenueRollup.Granularity.HOUR : RevenueRollup.Granularity.DAY;
+        List<RevenueRollup> rows = rollupRepository.findBuckets(granularity,
+                from.atStartOfDay(), to.plusDays(1).atStartOfDay());
+
+        Map<LocalDateTime, Totals> buckets = new TreeMap<>();
+        Totals total = new Totals();
+        for (RevenueRollup row : rows) {
+            buckets.computeIfAbsent(bucketOf(row.getBucketStart(), groupBy), k -> new Totals()).add(row);
+            total.add(row);
+        }
+
+        List<Map<String, Object>> series = new ArrayList<>();
+        for (Map.Entry<LocalDateTime, Totals> entry : buckets.entrySet()) {
+            Map<String, Object> bucket = new LinkedHashMap<>();
+            bucket.put("bucketStart", entry.getKey());
+            entry.getValue().writeTo(bucket);
+            series.add(bucket);
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("from", from);
+        report.put("to", to);
+        report.put("groupBy", groupBy);
+        total.writeTo(report);
+        report.put("buckets", series);
+        return report;
+    }
+
+    static LocalDateTime bucketOf(LocalDateTime time, GroupBy groupBy) {
+        switch (groupBy) {
+            case HOUR:
+                return time.truncatedTo(ChronoUnit.HOURS);
+            case WEEK:
+                return time.toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).atStartOfDay();
+            case MONTH:
+                return time.toLocalDate().withDayOfMonth(1).atStartOfDay();
+            default:
+                return time.truncatedTo(ChronoUnit.DAYS);
+        }
+    }
+
+    private static String methodKey(Bill.PaymentMethod method) {
+        return method != null ? method.name() : RevenueRollup.UNSPECIFIED_METHOD;
+    }
+
+    private static LocalDateTime min(LocalDateTime a, LocalDateTime b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private record BucketKey(RevenueRollup.Granularity granularity, LocalDateTime bucketStart, String paymentMethod) {
+    }
+
+    private record BucketDelta(BigDecimal revenue, long billCount) {
+        BucketDelta plus(BucketDelta other) {
+            return new BucketDelta(revenue.add(other.revenue), billCount + other.billCount);
+        }
+    }
+
+    // Cộng dồn revenue / billCount, tách theo phương thức thanh toán
+    private static class Totals {
+        private BigDecimal revenue = BigDecimal.ZERO;
+        private long billCount;
+        private final Map<String, Totals> byMethod = new TreeMap<>();
+
+        void add(RevenueRollup row) {
+            add(row.getRevenue(), row.getBillCount());
+            byMethod.computeIfAbsent(row.getPaymentMethod(), k -> new Totals())
+                    .add(row.getRevenue(), row.getBillCount());
+        }
+
+        void add(BigDecimal amount, long count) {
+            revenue = revenue.add(amount);
+            billCount += count;
+        }
+
+        BigDecimal averageTicket() {
+            return billCount > 0
+                    ? revenue.divide(BigDecimal.valueOf(billCount), 2, RoundingMode.HALF_UP)
+                    : BigDecimal.ZERO;
+        }
+
+        void writeTo(Map<String, Object> target) {
+            target.put("revenue", revenue);
+            target.put("billCount", billCount);
+            target.put("averageTicket", averageTicket());
+            if (!byMethod.isEmpty()) {
+                Map<String, Object> methods = new LinkedHashMap<>();
+                for (Map.Entry<String, Totals> entry : byMethod.entrySet()) {
+                    Map<String, Object> m = new LinkedHashMap<>();
+                    m.put("revenue", entry.getValue().revenue);
+                    m.put("billCount", entry.getValue().billCount);
+                    m.put("averageTicket", entry.getValue().averageTicket());
+                    methods.put(entry.getKey(), m);
+                }
+                target.put("byPaymentMethod", methods);
+            }
+        }
+    }
+}
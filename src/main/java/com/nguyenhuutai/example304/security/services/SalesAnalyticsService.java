@@ -0,0 +1,272 @@
+package com.nguyenhuutai.example304.security.services;
+
+import com.nguyenhuutai.example304.model.Order;
+import com.nguyenhuutai.example304.model.Product;
+import com.nguyenhuutai.example304.model.SalesHourly;
+import com.nguyenhuutai.example304.repository.OrderItemRepository;
+import com.nguyenhuutai.example304.repository.OrderRepository;
+import com.nguyenhuutai.example304.repository.ProductRepository;
+import com.nguyenhuutai.example304.repository.ProductSalesDailyRepository;
+import com.nguyenhuutai.example304.repository.SalesHourlyRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Thống kê bán hàng theo product / category / giờ. Bộ đếm theo ngày được cộng
+// dồn trong cùng transaction với thay đổi order_items (OrderService), nên báo cáo
+// cho khoảng ngày bất kỳ chỉ đọc bảng đếm, không quét order_items.
+// Bộ đếm theo giờ thì mọi order trong giờ đều đụng cùng 1 dòng: nếu upsert trong
+// transaction order, các till phải xếp hàng chờ lock dòng đó tới khi order commit.
+// Nên delta theo giờ được gom trong RAM sau commit và ghi theo lô định kỳ
+@Service
+public class SalesAnalyticsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SalesAnalyticsService.class);
+
+    private static final int MAX_TOP_N = 100;
+
+    public enum Metric {
+        QUANTITY, REVENUE
+    }
+
+    private final ProductSalesDailyRepository dailyRepository;
+    private final SalesHourlyRepository hourlyRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final OrderRepository orderRepository;
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    // Delta theo giờ đã commit nhưng chưa ghi xuống sales_hourly. Restart mất phần này
+    // thì heatmap lệch nhẹ tới lần rebuild sau
+    private final Map<HourKey, HourDelta> pendingHourly = new ConcurrentHashMap<>();
+
+    public SalesAnalyticsService(ProductSalesDailyRepository dailyRepository, SalesHourlyRepository hourlyRepository,
+            OrderItemRepository orderItemRepository, OrderRepository orderRepository,
+            ProductRepository productRepository, TransactionTemplate transactionTemplate) {
+        this.dailyRepository = dailyRepository;
+        this.hourlyRepository = hourlyRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.orderRepository = orderRepository;
+        this.productRepository = productRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    // === INCREMENTAL ===
+    // quantity/revenue là delta (âm khi bớt món); bucket theo thời điểm tạo order.
+    // Order đã huỷ không tính, khớp với backfill
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordLine(Order order, Long productId, long quantity, BigDecimal revenue) {
+        if (productId == null || quantity == 0 || order.getStatus() == Order.OrderStatus.CANCELLED) {
+            return;
+        }
+        LocalDateTime at = order.getCreatedAt() != null ? order.getCreatedAt() : LocalDateTime.now();
+        BigDecimal amount = revenue != null ? revenue : BigDecimal.ZERO;
+        dailyRepository.upsert(at.toLocalDate(), productId, quantity, amount);
+        HourKey key = new HourKey(at.toLocalDate(), at.getHour());
+        HourDelta delta = new HourDelta(quantity, amount);
+        AfterCommit.run(() -> pendingHourly.merge(key, delta, HourDelta::plus));
+    }
+
+    // Ghi các delta theo giờ đang chờ: mỗi (ngày, giờ) một câu upsert cho cả lô order
+    @Scheduled(fixedDelayString = "${app.analytics.hourly-flush-ms:5000}")
+    @PreDestroy
+    public void flushHourly() {
+        if (pendingHourly.isEmpty()) {
+            return;
+        }
+        Map<HourKey, HourDelta> batch = new HashMap<>();
+        for (HourKey key : pendingHourly.keySet()) {
+            HourDelta delta = pendingHourly.remove(key);
+            if (delta != null) {
+                batch.put(key, delta);
+            }
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> batch.forEach((key, delta) ->
+                    hourlyRepository.upsert(key.date(), key.hour(), delta.quantity(), delta.revenue())));
+        } catch (RuntimeException e) {
+            // Trả lại hàng đợi, lần flush sau thử lại
+            batch.forEach((key, delta) -> pendingHourly.merge(key, delta, HourDelta::plus));
+            logger.warn("Flushing hourly sales failed, will retry: {}", e.getMessage());
+        }
+    }
+
+    // Order bị huỷ / xoá: trừ toàn bộ món của order khỏi bộ đếm (gọi trước khi đổi trạng thái / xoá items)
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void removeOrder(Order order) {
+        if (order.getStatus() == Order.OrderStatus.CANCELLED) {
+            return;
+        }
+        for (Object[] row : orderItemRepository.sumSalesByProductForOrder(order.getId())) {
+            BigDecimal revenue = row[2] != null ? (BigDecimal) row[2] : BigDecimal.ZERO;
+            recordLine(order, (Long) row[0], -((Long) row[1]), revenue.negate());
+        }
+    }
+
+    // === BACKFILL ===
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (dailyRepository.count() > 0) {
+            return;
+        }
+        LocalDateTime first = orderRepository.findFirstCreatedAt();
+        if (first != null) {
+            rebuild(first.toLocalDate(), LocalDate.now());
+        }
+    }
+
+    // Dựng lại bộ đếm cho [from, to], mỗi tháng một transaction
+    public Map<String, Object> rebuild(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new RuntimeException("Invalid date range");
+        }
+        int dailyRows = 0;
+        int hourlyRows = 0;
+        LocalDate chunkStart = from;
+        while (!chunkStart.isAfter(to)) {
+            LocalDate chunkEnd = chunkStart.plusMonths(1).minusDays(1);
+            if (chunkEnd.isAfter(to)) {
+                chunkEnd = to;
+            }
+            LocalDate s = chunkStart;
+            LocalDate e = chunkEnd;
+            int[] rows = transactionTemplate.execute(status -> {
+                // Delta đang chờ của khoảng này đã nằm trong order_items mà backfill sắp đọc
+                pendingHourly.keySet().removeIf(key -> !key.date().isBefore(s) && !key.date().isAfter(e));
+                dailyRepository.deleteRange(s, e);
+                hourlyRepository.deleteRange(s, e);
+                return new int[] {
+                        dailyRepository.backfill(s.atStartOfDay(), e.plusDays(1).atStartOfDay()),
+                        hourlyRepository.backfill(s.atStartOfDay(), e.plusDays(1).atStartOfDay()) };
+            });
+            dailyRows += rows[0];
+            hourlyRows += rows[1];
+            chunkStart = chunkEnd.plusDays(1);
+        }
+
+        logger.info("Sales analytics rebuilt for {}..{}: {} daily rows, {} hourly rows", from, to, dailyRows, hourlyRows);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("from", from);
+        result.put("to", to);
+        result.put("productDailyRows", dailyRows);
+        result.put("hourlyRows", hourlyRows);
+        return result;
+    }
+
+    // === QUERIES === (khoảng [from, to] tính cả ngày to)
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getTopProducts(LocalDate from, LocalDate to, Metric metric, int limit) {
+        int n = Math.max(1, Math.min(limit, MAX_TOP_N));
+        Comparator<Object[]> order = metric == Metric.REVENUE
+                ? Comparator.comparing(row -> (BigDecimal) row[2])
+                : Comparator.comparing(row -> (Long) row[1]);
+        List<Object[]> top = topK(dailyRepository.sumByProduct(from, to), n, order);
+
+        Map<Long, Product> products = productRepository.findAllById(
+                top.stream().map(row -> (Long) row[0]).collect(Collectors.toList())).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        List<Map<String, Object>> result = new ArrayList<>(top.size());
+        for (Object[] row : top) {
+            Product product = products.get((Long) row[0]);
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("productId", row[0]);
+            entry.put("productName", product != null ? product.getName() : null);
+            entry.put("categoryName", product != null && product.getCategory() != null
+                    ? product.getCategory().getName() : null);
+            entry.put("quantity", row[1]);
+            entry.put("revenue", row[2]);
+            result.add(entry);
+        }
+        return result;
+    }
+
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getCategorySales(LocalDate from, LocalDate to) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Object[] row : dailyRepository.sumByCategory(from, to)) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("categoryId", row[0]);
+            entry.put("categoryName", row[1]);
+            entry.put("quantity", row[2]);
+            entry.put("revenue", row[3]);
+            result.add(entry);
+        }
+        result.sort(Comparator.comparing((Map<String, Object> e) -> (BigDecimal) e.get("revenue")).reversed());
+        return result;
+    }
+
+    // Heatmap thứ (MONDAY..SUNDAY) × giờ (0..23); đọc tối đa 24 dòng mỗi ngày
+    @Transactional(readOnly = true)
+    public Map<String, Object> getHourlyHeatmap(LocalDate from, LocalDate to) {
+        long[][] quantity = new long[7][24];
+        BigDecimal[][] revenue = new BigDecimal[7][24];
+        for (BigDecimal[] day : revenue) {
+            Arrays.fill(day, BigDecimal.ZERO);
+        }
+        for (SalesHourly row : hourlyRepository.findRange(from, to)) {
+            int d = row.getSalesDate().getDayOfWeek().getValue() - 1;
+            quantity[d][row.getHourOfDay()] += row.getQuantity();
+            revenue[d][row.getHourOfDay()] = revenue[d][row.getHourOfDay()].add(row.getRevenue());
+        }
+
+        Map<String, Object> days = new LinkedHashMap<>();
+        for (DayOfWeek day : DayOfWeek.values()) {
+            Map<String, Object> cells = new LinkedHashMap<>();
+            cells.put("quantity", quantity[day.getValue() - 1]);
+            cells.put("revenue", revenue[day.getValue() - 1]);
+            days.put(day.name(), cells);
+        }
+        Map<String, Object> heatmap = new LinkedHashMap<>();
+        heatmap.put("from", from);
+        heatmap.put("to", to);
+        heatmap.put("days", days);
+        return heatmap;
+    }
+
+    private record HourKey(LocalDate date, int hour) {
+    }
+
+    private record HourDelta(long quantity, BigDecimal revenue) {
+        HourDelta plus(HourDelta other) {
+            return new HourDelta(quantity + other.quantity, revenue.add(other.revenue));
+        }
+    }
+
+    // Top-K bằng min-heap kích thước k: O(n log k), không sort toàn bộ danh sách
+    static <T> List<T> topK(Iterable<T> items, int k, Comparator<? super T> order) {
+        PriorityQueue<T> heap = new PriorityQueue<>(k + 1, order);
+        for (T item : items) {
+            heap.offer(item);
+            if (heap.size() > k) {
+                heap.poll();
+            }
+        }
+        List<T> result = new ArrayList<>(heap);
+        result.sort(Collections.reverseOrder(order));
+        return result;
+    }
+}
@@ -0,0 +1,41 @@
+package com.nguyenhuutai.example304.security.services;
+
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+// Map category -> quầy (bar, kitchen...) để đẩy order tới /topic/stations.{station}.
+// Cấu hình: app.websocket.stations.<station>=<categoryId>,<categoryId>,...
+@Component
+public class StationRouter {
+
+    private final Map<Long, Set<String>> stationsByCategory = new HashMap<>();
+
+    public StationRouter(Environment environment) {
+        Map<String, String> stations = Binder.get(environment)
+                .bind("app.websocket.stations", Bindable.mapOf(String.class, String.class))
+                .orElse(Map.of());
+        for (Map.Entry<String, String> station : stations.entrySet()) {
+            for (String id : station.getValue().split(",")) {
+                if (!id.isBlank()) {
+                    stationsByCategory.computeIfAbsent(Long.valueOf(id.trim()), k -> new LinkedHashSet<>())
+                            .add(station.getKey());
+                }
+            }
+        }
+    }
+
+    public Set<String> stationsFor(Collection<Long> categoryIds) {
+        Set<String> stations = new LinkedHashSet<>();
+        for (Long categoryId : categoryIds) {
+            stations.addAll(stationsByCategory.getOrDefault(categoryId, Set.of()));
+        }
+        return stations;
+    }
+}
@@ -0,0 +1,83 @@
+package com.nguyenhuutai.example304.security.services;
+
+import com.nguyenhuutai.example304.model.Product;
+import com.nguyenhuutai.example304.repository.OrderItemRepository;
+import com.nguyenhuutai.example304.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Hibernate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Service
+@Transactional
+public class StockService {
+
+    private final ProductRepository productRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final MenuCacheService menuCacheService;
+    private final EntityManager entityManager;
+
+    public StockService(ProductRepository productRepository, OrderItemRepository orderItemRepository,
+            MenuCacheService menuCacheService, EntityManager entityManager) {
+        this.productRepository = productRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.menuCacheService = menuCacheService;
+        this.entityManager = entityManager;
+    }
+
+    public void reserve(Long productId, Integer quantity) {
+        reserve(Map.of(productId, quantity));
+    }
+
+    // Giữ kho cho nhiều product trong cùng transaction của caller.
+    // Duyệt theo id tăng dần để 2 till giữ cùng nhóm product không deadlock;
+    // thiếu 1 món là ném exception -> rollback toàn bộ các dòng đã trừ trước đó
+    public void reserve(Map<Long, Integer> quantities) {
+        for (Map.Entry<Long, Integer> line : new TreeMap<>(quantities).entrySet()) {
+            Integer quantity = line.getValue();
+            if (quantity == null || quantity <= 0) {
+                throw new RuntimeException("Invalid quantity");
+            }
+            if (productRepository.decrementStock(line.getKey(), quantity) == 0) {
+                throw new RuntimeException("Insufficient stock");
+            }
+        }
+        refreshLoaded(quantities.keySet());
+        menuCacheService.onStockChanged(quantities.keySet());
+    }
+
+    public void release(Map<Long, Integer> quantities) {
+        for (Map.Entry<Long, Integer> line : new TreeMap<>(quantities).entrySet()) {
+            if (line.getValue() != null && line.getValue() > 0) {
+                productRepository.incrementStock(line.getKey(), line.getValue());
+            }
+        }
+        refreshLoaded(quantities.keySet());
+        menuCacheService.onStockChanged(quantities.keySet());
+    }
+
+    // UPDATE bulk không sửa entity đã nằm trong persistence context. Không dùng
+    // clearAutomatically vì caller (OrderService) còn đang sửa order/bàn đã load;
+    // chỉ đọc lại product nào đã load trong transaction này, proxy chưa load thì bỏ qua
+    private void refreshLoaded(Collection<Long> productIds) {
+        for (Long productId : productIds) {
+            Product product = entityManager.getReference(Product.class, productId);
+            if (Hibernate.isInitialized(product)) {
+                entityManager.refresh(product);
+            }
+        }
+    }
+
+    // Trả lại kho cho toàn bộ món của 1 order (xoá order / CANCELLED)
+    public void releaseOrder(Long orderId) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (Object[] row : orderItemRepository.sumQuantitiesByProductForOrder(orderId)) {
+            quantities.put((Long) row[0], ((Number) row[1]).intValue());
+        }
+        release(quantities);
+    }
+}
@@ -20,6 +20,9 @@ public class UserDetailsImpl implements UserDetails {
     private String email;
     private String password;
     private Collection<? extends GrantedAuthority> authorities;
+    // Mốc thu hồi token của user (epoch giây), đi theo cache UserDetails
+    @JsonIgnore
+    private Long tokensValidAfter;
 
     public UserDetailsImpl(Long id, String username, String email, String password,
             Collection<? extends GrantedAuthority> authorities) {
@@ -35,12 +38,14 @@ public class UserDetailsImpl implements UserDetails {
                 .map(role -> new SimpleGrantedAuthority(role.getName().name()))
                 .collect(Collectors.toList());
 
-        return new UserDetailsImpl(
+        UserDetailsImpl details = new UserDetailsImpl(
                 user.getId(),
                 user.getUsername(),
                 user.getEmail(),
                 user.getPassword(),
                 authorities);
+        details.tokensValidAfter = user.getTokensValidAfter();
+        return details;
     }
 
     @Override
@@ -52,6 +57,10 @@ public class UserDetailsImpl implements UserDetails {
         return id;
     }
 
+    public Long getTokensValidAfter() {
+        return tokensValidAfter;
+    }
+
     public String getEmail() {
         return email;
     }
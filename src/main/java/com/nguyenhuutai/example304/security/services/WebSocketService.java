@@ -1,32 +1,325 @@
 package com.nguyenhuutai.example304.security.services;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.nguyenhuutai.example304.events.OrderChangedEvent;
+import com.nguyenhuutai.example304.events.TableStatusChangedEvent;
 import com.nguyenhuutai.example304.model.Order;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+// Gom các thay đổi order/bàn trong một cửa sổ ngắn rồi mới đẩy ra WebSocket:
+// mỗi order/bàn chỉ giữ trạng thái mới nhất, gửi bản delta gọn kèm số thứ tự (seq)
+// để client phát hiện mất gói, và bỏ các trạng thái bàn trùng với lần gửi trước.
+// Ngoài topic chung, mỗi delta còn gửi tới topic của bàn, của quầy và user queue
+// của nhân viên phụ trách (xem WebSocketConfig).
+// seq là một dãy chung cho mọi event, chỉ liên tục trên tập ba topic chung
+// (/topic/orders + /topic/order-updates + /topic/table-status). Client chỉ nghe topic
+// theo bàn / quầy / user queue sẽ thấy seq nhảy cóc là bình thường: không dùng seq để
+// phát hiện mất gói hay gọi replay, kết nối lại thì lấy snapshot (/app/orders.subscribe)
 @Service
 public class WebSocketService {
 
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketService.class);
+
+    // Nhớ order nào thuộc quầy nào để cả update trạng thái sau đó cũng tới đúng quầy
+    private static final int MAX_TRACKED_ORDERS = 10_000;
+
     private final SimpMessagingTemplate messagingTemplate;
+    private final StationRouter stationRouter;
+    private final long flushIntervalMs;
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "ws-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // seq tăng dần trên toàn bộ event đã gửi (order + bàn); liên tục theo hợp các topic chung,
+    // không theo từng destination
+    private final AtomicLong sequence = new AtomicLong();
+
+    // Hàng chờ của cửa sổ hiện tại, khoá bằng this
+    private Map<Long, OrderDelta> pendingOrders = new LinkedHashMap<>();
+    private Map<Long, String> pendingTables = new LinkedHashMap<>();
+    // Trạng thái bàn đã gửi gần nhất, chỉ thread flush đọc/ghi
+    private final Map<Long, String> lastTableStatus = new HashMap<>();
+    // orderId -> các quầy, LRU, khoá bằng this
+    private final Map<Long, Set<String>> orderStations = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Set<String>> eldest) {
+            return size() > MAX_TRACKED_ORDERS;
+        }
+    };
+
+    // Ring buffer các message đã gửi (theo seq) để client kết nối lại chỉ lấy phần bị lỡ
+    private final Object[] replayBuffer;
+    private final Object replayLock = new Object();
+    // seq lớn nhất đã nằm trong buffer, khoá bằng replayLock
+    private long replayedSeq;
+
+    // Metrics
+    private final long startedAt = System.currentTimeMillis();
+    private final AtomicLong eventsReceived = new AtomicLong();
+    private final AtomicLong eventsCoalesced = new AtomicLong();
+    private final AtomicLong tableDuplicatesDropped = new AtomicLong();
+    private final AtomicLong eventsPublished = new AtomicLong();
+    private final AtomicLong framesPublished = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong maxBatchSize = new AtomicLong();
 
-    public WebSocketService(SimpMessagingTemplate messagingTemplate) {
+    public WebSocketService(SimpMessagingTemplate messagingTemplate, StationRouter stationRouter,
+            @Value("${app.websocket.flush-interval-ms:75}") long flushIntervalMs,
+            @Value("${app.websocket.replay-buffer-size:5000}") int replayBufferSize) {
         this.messagingTemplate = messagingTemplate;
+        this.stationRouter = stationRouter;
+        this.flushIntervalMs = flushIntervalMs;
+        this.replayBuffer = new Object[Math.max(1, replayBufferSize)];
+    }
+
+    @PostConstruct
+    void start() {
+        flusher.scheduleWithFixedDelay(this::flushSafely, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        flusher.shutdown();
+        flushSafely();
+    }
+
+    // Nhận event từ DomainEventPublisher (đã sau commit, trên thread dispatch)
+    @EventListener
+    public void onOrderChanged(OrderChangedEvent event) {
+        OrderDelta delta = OrderDelta.of(event);
+        Set<String> newStations = stationRouter.stationsFor(event.getCategoryIds());
+        eventsReceived.incrementAndGet();
+        synchronized (this) {
+            Set<String> stations = orderStations.computeIfAbsent(delta.getOrderId(), k -> new LinkedHashSet<>());
+            stations.addAll(newStations);
+            delta.stations = new ArrayList<>(stations);
+            if (delta.getStatus() == Order.OrderStatus.PAID || delta.getStatus() == Order.OrderStatus.CANCELLED) {
+                orderStations.remove(delta.getOrderId());
+            }
+
+            OrderDelta previous = pendingOrders.put(delta.getOrderId(), delta);
+            if (previous != null) {
+                eventsCoalesced.incrementAndGet();
+                // Order mới tạo rồi sửa ngay trong cùng cửa sổ vẫn gửi là NEW
+                if (previous.getType() == OrderDelta.Type.NEW) {
+                    delta.type = OrderDelta.Type.NEW;
+                }
+            }
+        }
+    }
+
+    @EventListener
+    public void onTableStatusChanged(TableStatusChangedEvent event) {
+        eventsReceived.incrementAndGet();
+        synchronized (this) {
+            if (pendingTables.put(event.getTableId(), event.getStatus()) != null) {
+                eventsCoalesced.incrementAndGet();
+            }
+        }
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            logger.warn("WebSocket flush failed", e);
+        }
+    }
+
+    void flush() {
+        Map<Long, OrderDelta> orders;
+        Map<Long, String> tables;
+        synchronized (this) {
+            if (pendingOrders.isEmpty() && pendingTables.isEmpty()) {
+                return;
+            }
+            orders = pendingOrders;
+            tables = pendingTables;
+            pendingOrders = new LinkedHashMap<>();
+            pendingTables = new LinkedHashMap<>();
+        }
+
+        // destination -> lô; giữ thứ tự seq trong từng lô
+        Map<String, List<Object>> topics = new LinkedHashMap<>();
+        Map<String, List<Object>> userQueues = new LinkedHashMap<>();
+        List<Object> sequenced = new ArrayList<>();
+        for (OrderDelta delta : orders.values()) {
+            delta.seq = sequence.incrementAndGet();
+            sequenced.add(delta);
+            add(topics, delta.getType() == OrderDelta.Type.NEW ? "/topic/orders" : "/topic/order-updates", delta);
+            if (delta.getTableId() != null) {
+                add(topics, "/topic/tables." + delta.getTableId(), delta);
+            }
+            for (String station : delta.stations) {
+                add(topics, "/topic/stations." + station, delta);
+            }
+            if (delta.getEmployeeId() != null) {
+                add(userQueues, String.valueOf(delta.getEmployeeId()), delta);
+            }
+        }
+
+        for (Map.Entry<Long, String> entry : tables.entrySet()) {
+            if (entry.getValue().equals(lastTableStatus.put(entry.getKey(), entry.getValue()))) {
+                tableDuplicatesDropped.incrementAndGet();
+                continue;
+            }
+            TableStatusMessage message = new TableStatusMessage(entry.getKey(), entry.getValue());
+            message.setSeq(sequence.incrementAndGet());
+            sequenced.add(message);
+            add(topics, "/topic/table-status", message);
+            add(topics, "/topic/tables." + entry.getKey() + ".status", message);
+        }
+
+        // Ghi vào buffer trước khi gửi: client sync giữa chừng có thể nhận trùng, lọc theo seq
+        synchronized (replayLock) {
+            for (Object message : sequenced) {
+                replayBuffer[(int) (seqOf(message) % replayBuffer.length)] = message;
+                replayedSeq = seqOf(message);
+            }
+        }
+
+        // Mỗi destination một frame chứa cả lô
+        topics.forEach((destination, batch) -> {
+            messagingTemplate.convertAndSend(destination, batch);
+            recordFrame(batch.size());
+        });
+        userQueues.forEach((user, batch) -> {
+            messagingTemplate.convertAndSendToUser(user, "/queue/orders", batch);
+            recordFrame(batch.size());
+        });
+        flushes.incrementAndGet();
     }
 
-    public void notifyNewOrder(Order order) {
-        messagingTemplate.convertAndSend("/topic/orders", order);
+    public long getLastSeq() {
+        synchronized (replayLock) {
+            return replayedSeq;
+        }
     }
 
-    public void notifyOrderUpdate(Order order) {
-        messagingTemplate.convertAndSend("/topic/order-updates", order);
+    // Các message có seq > lastSeq theo đúng thứ tự, tức phần bị lỡ trên các topic chung
+    // (không lọc theo bàn / quầy); null nếu lastSeq đã trôi khỏi
+    // buffer (hoặc lớn hơn seq hiện tại, vd. server vừa restart) -> client cần snapshot
+    public List<Object> replaySince(long lastSeq) {
+        synchronized (replayLock) {
+            long current = replayedSeq;
+            long oldest = Math.max(1, current - replayBuffer.length + 1);
+            if (lastSeq > current || lastSeq < oldest - 1) {
+                return null;
+            }
+            List<Object> missed = new ArrayList<>((int) (current - lastSeq));
+            for (long seq = lastSeq + 1; seq <= current; seq++) {
+                Object message = replayBuffer[(int) (seq % replayBuffer.length)];
+                if (message == null || seqOf(message) != seq) {
+                    return null;
+                }
+                missed.add(message);
+            }
+            return missed;
+        }
+    }
+
+    private static long seqOf(Object message) {
+        return message instanceof OrderDelta delta ? delta.getSeq() : ((TableStatusMessage) message).getSeq();
     }
 
-    public void notifyTableStatus(Long tableId, String status) {
-        messagingTemplate.convertAndSend("/topic/table-status", 
-            new TableStatusMessage(tableId, status));
+    private static void add(Map<String, List<Object>> batches, String key, Object message) {
+        batches.computeIfAbsent(key, k -> new ArrayList<>()).add(message);
+    }
+
+    private void recordFrame(int batchSize) {
+        framesPublished.incrementAndGet();
+        eventsPublished.addAndGet(batchSize);
+        maxBatchSize.accumulateAndGet(batchSize, Math::max);
+    }
+
+    public Map<String, Object> stats() {
+        long frames = framesPublished.get();
+        long published = eventsPublished.get();
+        double uptimeSeconds = Math.max(1, System.currentTimeMillis() - startedAt) / 1000.0;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("flushIntervalMs", flushIntervalMs);
+        stats.put("lastSeq", sequence.get());
+        stats.put("replayBufferSize", replayBuffer.length);
+        stats.put("eventsReceived", eventsReceived.get());
+        stats.put("eventsCoalesced", eventsCoalesced.get());
+        stats.put("tableDuplicatesDropped", tableDuplicatesDropped.get());
+        stats.put("eventsPublished", published);
+        stats.put("framesPublished", frames);
+        stats.put("flushes", flushes.get());
+        stats.put("avgBatchSize", frames > 0 ? (double) published / frames : 0.0);
+        stats.put("maxBatchSize", maxBatchSize.get());
+        stats.put("framesPerSecond", frames / uptimeSeconds);
+        stats.put("eventsPerSecond", published / uptimeSeconds);
+        synchronized (this) {
+            stats.put("pending", pendingOrders.size() + pendingTables.size());
+        }
+        return stats;
+    }
+
+    // Bản rút gọn của Order gửi qua WebSocket (không kèm entity table/promotion)
+    public static class OrderDelta {
+        public enum Type {
+            NEW, UPDATED
+        }
+
+        private long seq;
+        private Type type;
+        private Long orderId;
+        private Long tableId;
+        private Long employeeId;
+        private Order.OrderStatus status;
+        private BigDecimal totalAmount;
+        private LocalDateTime updatedAt;
+        @JsonIgnore
+        private List<String> stations = List.of();
+
+        static OrderDelta of(OrderChangedEvent event) {
+            OrderDelta delta = new OrderDelta();
+            delta.type = event.isCreated() ? Type.NEW : Type.UPDATED;
+            delta.orderId = event.getOrderId();
+            delta.tableId = event.getTableId();
+            delta.employeeId = event.getEmployeeId();
+            delta.status = event.getStatus();
+            delta.totalAmount = event.getTotalAmount();
+            delta.updatedAt = event.getUpdatedAt();
+            return delta;
+        }
+
+        public long getSeq() { return seq; }
+        public Type getType() { return type; }
+        public Long getOrderId() { return orderId; }
+        public Long getTableId() { return tableId; }
+        public Long getEmployeeId() { return employeeId; }
+        public Order.OrderStatus getStatus() { return status; }
+        public BigDecimal getTotalAmount() { return totalAmount; }
+        public LocalDateTime getUpdatedAt() { return updatedAt; }
     }
 
     public static class TableStatusMessage {
+        private long seq;
         private Long tableId;
         private String status;
 
@@ -36,9 +329,11 @@ public class WebSocketService {
         }
 
         // Getters and Setters
+        public long getSeq() { return seq; }
+        public void setSeq(long seq) { this.seq = seq; }
         public Long getTableId() { return tableId; }
         public void setTableId(Long tableId) { this.tableId = tableId; }
         public String getStatus() { return status; }
         public void setStatus(String status) { this.status = status; }
     }
-}
\ No newline at end of file
+}
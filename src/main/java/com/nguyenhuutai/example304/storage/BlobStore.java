@@ -0,0 +1,118 @@
+package com.nguyenhuutai.example304.storage;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+// Nơi lưu file upload, tách khỏi FileStorageService để chạy nhiều instance
+// (S3/MinIO dùng chung) hoặc một máy (thư mục local).
+// Key là tên file trong URL /uploads/{key}: ảnh mới đặt tên theo hash nội dung
+// (<32 hex>[-size].ext) nên một key không bao giờ đổi nội dung
+public interface BlobStore {
+
+    Pattern CONTENT_ADDRESSED_KEY = Pattern.compile("[0-9a-f]{32}(-[a-z]+)?\\.[a-z0-9]{1,5}");
+
+    static boolean isContentAddressed(String key) {
+        return CONTENT_ADDRESSED_KEY.matcher(key).matches();
+    }
+
+    // Key chỉ là một tên file, không được chứa đường dẫn
+    static boolean isValidKey(String key) {
+        return key != null && !key.isBlank() && key.length() <= 255
+                && key.indexOf('/') < 0 && key.indexOf('\\') < 0
+                && !key.equals(".") && !key.equals("..")
+                && key.chars().noneMatch(Character::isISOControl);
+    }
+
+    Optional<BlobInfo> stat(String key) throws IOException;
+
+    // NoSuchFileException nếu không có
+    InputStream open(String key) throws IOException;
+
+    // Đọc đoạn [start, start + length) của object; store từ xa ghi đè để chỉ tải đúng đoạn đó
+    default InputStream open(String key, long start, long length) throws IOException {
+        InputStream in = open(key);
+        try {
+            in.skipNBytes(start);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return new LimitedInputStream(in, length);
+    }
+
+    // Nhận file tạm đã ghi xong (tạo bằng createTempFile) và xoá/move nó.
+    // Key đã tồn tại thì giữ bản cũ (cùng key là cùng nội dung) nhưng phải làm mới lastModified:
+    // đó là mốc "vừa upload lại" mà mọi instance dùng trước khi xoá file
+    void put(String key, Path tempFile) throws IOException;
+
+    boolean delete(String key) throws IOException;
+
+    // File tạm nằm cùng filesystem với store để put() move được nguyên tử
+    default Path createTempFile() throws IOException {
+        return Files.createTempFile("blob-", ".tmp");
+    }
+
+    // File trên đĩa local để Tomcat sendfile; store từ xa trả null
+    default Path localPath(String key) throws IOException {
+        return null;
+    }
+
+    record BlobInfo(long size, long lastModified) {
+    }
+
+    // Dừng sau limit byte (đoạn cuối của Range); close đóng luôn stream gốc
+    final class LimitedInputStream extends FilterInputStream {
+        private long remaining;
+
+        public LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = super.read(buffer, offset, (int) Math.min(length, remaining));
+            if (n > 0) {
+                remaining -= n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.nguyenhuutai.example304.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Optional;
+
+// Lưu trong thư mục local. File theo hash được chia thư mục theo 4 ký tự đầu
+// (ab/cd/abcd....jpg, tối đa 65536 thư mục con) để một thư mục không phải giữ
+// hàng trăm nghìn file. File tên cũ (UUID_tên) và file hash đặt phẳng từ trước vẫn
+// đọc được ở thư mục gốc; file hash phẳng được chuyển vào thư mục chia khi truy cập
+public class LocalBlobStore implements BlobStore {
+
+    private final Path root;
+    private final Path tempDir;
+
+    public LocalBlobStore(Path root) throws IOException {
+        this.root = root.toAbsolutePath().normalize();
+        this.tempDir = this.root.resolve(".tmp");
+        Files.createDirectories(tempDir);
+    }
+
+    @Override
+    public Optional<BlobInfo> stat(String key) throws IOException {
+        Path file = locate(key);
+        if (file == null) {
+            return Optional.empty();
+        }
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        return Optional.of(new BlobInfo(attributes.size(), attributes.lastModifiedTime().toMillis()));
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        Path file = locate(key);
+        if (file == null) {
+            throw new NoSuchFileException(key);
+        }
+        return Files.newInputStream(file);
+    }
+
+    @Override
+    public void put(String key, Path tempFile) throws IOException {
+        Path target = pathOf(key);
+        try {
+            Path existing = locate(key);
+            if (existing != null) {
+                Files.setLastModifiedTime(existing, FileTime.fromMillis(System.currentTimeMillis()));
+                return;
+            }
+            Files.createDirectories(target.getParent());
+            Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        Path file = locate(key);
+        return file != null && Files.deleteIfExists(file);
+    }
+
+    @Override
+    public Path createTempFile() throws IOException {
+        return Files.createTempFile(tempDir, "upload-", ".tmp");
+    }
+
+    @Override
+    public Path localPath(String key) throws IOException {
+        return locate(key);
+    }
+
+    // Vị trí chuẩn của key (có thể chưa tồn tại)
+    Path pathOf(String key) {
+        if (!BlobStore.isValidKey(key)) {
+            throw new IllegalArgumentException("Invalid blob key");
+        }
+        Path path = BlobStore.isContentAddressed(key)
+                ? root.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key)
+                : root.resolve(key);
+        path = path.normalize();
+        if (!path.startsWith(root) || path.startsWith(tempDir)) {
+            throw new IllegalArgumentException("Invalid blob key");
+        }
+        return path;
+    }
+
+    // File đang có của key, kể cả file hash còn nằm phẳng ở thư mục gốc; null nếu không có
+    private Path locate(String key) throws IOException {
+        Path path = pathOf(key);
+        if (Files.isRegularFile(path)) {
+            return path;
+        }
+        if (!BlobStore.isContentAddressed(key)) {
+            return null;
+        }
+        Path flat = root.resolve(key);
+        if (!Files.isRegularFile(flat)) {
+            return null;
+        }
+        try {
+            Files.createDirectories(path.getParent());
+            Files.move(flat, path, StandardCopyOption.ATOMIC_MOVE);
+            return path;
+        } catch (IOException e) {
+            // Request khác vừa chuyển xong, hoặc không move được: đọc ở chỗ nào còn file
+            return Files.isRegularFile(path) ? path : Files.isRegularFile(flat) ? flat : null;
+        }
+    }
+}
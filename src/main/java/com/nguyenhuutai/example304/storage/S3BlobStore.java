@@ -0,0 +1,221 @@
+package com.nguyenhuutai.example304.storage;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
+import java.util.Optional;
+
+// Store S3-compatible (AWS S3, MinIO, ...) gọi thẳng REST API bằng HttpClient của JDK,
+// ký AWS Signature V4, URL dạng path-style: {endpoint}/{bucket}/{key}.
+// Body không băm (UNSIGNED-PAYLOAD) để upload stream thẳng từ file tạm
+public class S3BlobStore implements BlobStore {
+
+    private static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+    private static final String SIGNED_HEADERS = "host;x-amz-content-sha256;x-amz-date";
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient httpClient;
+    private final String baseUrl;
+    private final String region;
+    private final String accessKey;
+    private final String secretKey;
+    private final Clock clock;
+
+    public S3BlobStore(HttpClient httpClient, String endpoint, String bucket, String region,
+            String accessKey, String secretKey, Clock clock) {
+        this.httpClient = httpClient;
+        this.baseUrl = (endpoint.endsWith("/") ? endpoint : endpoint + "/") + encode(bucket) + "/";
+        this.region = region;
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.clock = clock;
+    }
+
+    @Override
+    public Optional<BlobInfo> stat(String key) throws IOException {
+        HttpResponse<Void> response = send(request("HEAD", key).method("HEAD", HttpRequest.BodyPublishers.noBody()),
+                HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() == 404) {
+            return Optional.empty();
+        }
+        check(response, key);
+        long size = response.headers().firstValueAsLong("Content-Length").orElse(-1);
+        // Last-Modified chỉ tới giây: lấy mốc cuối của giây đó, để "ghi sau mốc X" không bị bỏ sót
+        long lastModified = response.headers().firstValue("Last-Modified")
+                .map(value -> ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli() + 999)
+                .orElse(0L);
+        return Optional.of(new BlobInfo(size, lastModified));
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return get(key, request("GET", key).GET()).body();
+    }
+
+    // Ranged GET: S3 trả 206 với đúng đoạn cần, không tải cả object qua app.
+    // Range không nằm trong SignedHeaders, S3 chấp nhận header không ký ngoài x-amz-*
+    @Override
+    public InputStream open(String key, long start, long length) throws IOException {
+        HttpResponse<InputStream> response = get(key, request("GET", key)
+                .header("Range", "bytes=" + start + "-" + (start + length - 1))
+                .GET());
+        if (response.statusCode() == 206) {
+            return response.body();
+        }
+        // Server bỏ qua Range (200): tự cắt trên stream đầy đủ
+        InputStream in = response.body();
+        try {
+            in.skipNBytes(start);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return new LimitedInputStream(in, length);
+    }
+
+    private HttpResponse<InputStream> get(String key, HttpRequest.Builder request) throws IOException {
+        HttpResponse<InputStream> response = send(request, HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() / 100 != 2) {
+            response.body().close();
+            if (response.statusCode() == 404) {
+                throw new NoSuchFileException(key);
+            }
+            check(response, key);
+        }
+        return response;
+    }
+
+    @Override
+    public void put(String key, Path tempFile) throws IOException {
+        try {
+            MediaType contentType = MediaTypeFactory.getMediaType(key).orElse(MediaType.APPLICATION_OCTET_STREAM);
+            HttpResponse<Void> response = send(request("PUT", key)
+                            .header("Content-Type", contentType.toString())
+                            .PUT(HttpRequest.BodyPublishers.ofFile(tempFile)),
+                    HttpResponse.BodyHandlers.discarding());
+            check(response, key);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        HttpResponse<Void> response = send(request("DELETE", key).DELETE(), HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() == 404) {
+            return false;
+        }
+        check(response, key);
+        return true;
+    }
+
+    private HttpRequest.Builder request(String method, String key) {
+        if (!BlobStore.isValidKey(key)) {
+            throw new IllegalArgumentException("Invalid blob key");
+        }
+        URI uri = URI.create(baseUrl + encode(key));
+        String amzDate = AMZ_DATE.format(ZonedDateTime.now(clock.withZone(ZoneOffset.UTC)));
+        String date = amzDate.substring(0, 8);
+        String host = uri.getPort() == -1 ? uri.getHost() : uri.getHost() + ":" + uri.getPort();
+
+        String canonicalRequest = method + "\n"
+                + uri.getRawPath() + "\n"
+                + "\n"
+                + "host:" + host + "\n"
+                + "x-amz-content-sha256:" + UNSIGNED_PAYLOAD + "\n"
+                + "x-amz-date:" + amzDate + "\n"
+                + "\n"
+                + SIGNED_HEADERS + "\n"
+                + UNSIGNED_PAYLOAD;
+        String scope = date + "/" + region + "/s3/aws4_request";
+        String stringToSign = "AWS4-HMAC-SHA256\n" + amzDate + "\n" + scope + "\n"
+                + HexFormat.of().formatHex(sha256(canonicalRequest));
+        String signature = HexFormat.of().formatHex(
+                hmac(signingKey(secretKey, date, region, "s3"), stringToSign));
+
+        return HttpRequest.newBuilder(uri)
+                .timeout(REQUEST_TIMEOUT)
+                .header("x-amz-date", amzDate)
+                .header("x-amz-content-sha256", UNSIGNED_PAYLOAD)
+                .header("Authorization", "AWS4-HMAC-SHA256 Credential=" + accessKey + "/" + scope
+                        + ", SignedHeaders=" + SIGNED_HEADERS + ", Signature=" + signature);
+    }
+
+    private <T> HttpResponse<T> send(HttpRequest.Builder request, HttpResponse.BodyHandler<T> handler)
+            throws IOException {
+        try {
+            return httpClient.send(request.build(), handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("S3 request interrupted");
+        }
+    }
+
+    private static void check(HttpResponse<?> response, String key) throws IOException {
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("S3 " + response.request().method() + " " + key + " failed: HTTP " + response.statusCode());
+        }
+    }
+
+    // kSigning = HMAC(HMAC(HMAC(HMAC("AWS4" + secret, date), region), service), "aws4_request")
+    static byte[] signingKey(String secretKey, String date, String region, String service) {
+        byte[] key = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), date);
+        key = hmac(key, region);
+        key = hmac(key, service);
+        return hmac(key, "aws4_request");
+    }
+
+    // URI-encode theo quy tắc của SigV4: giữ nguyên A-Z a-z 0-9 - _ . ~, còn lại %XX
+    static String encode(String value) {
+        StringBuilder encoded = new StringBuilder();
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xff);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == '~') {
+                encoded.append(c);
+            } else {
+                encoded.append('%').append(HexFormat.of().withUpperCase().toHexDigits(b));
+            }
+        }
+        return encoded.toString();
+    }
+
+    private static byte[] hmac(byte[] key, String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] sha256(String data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
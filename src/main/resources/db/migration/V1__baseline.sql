@@ -0,0 +1,188 @@
+-- Schema gốc lúc còn dùng ddl-auto=update (entity trước các thay đổi từ V2), sinh bằng
+-- Hibernate (MySQLDialect). DB đang chạy sẵn chính là schema này: được baseline ở version 1
+-- (spring.flyway.baseline-on-migrate) rồi chạy tiếp V2, V3; file này chỉ chạy trên DB trống.
+
+create table bills (
+    total_amount decimal(10,2),
+    created_at datetime(6),
+    id bigint not null auto_increment,
+    issued_at datetime(6),
+    order_id bigint,
+    updated_at datetime(6),
+    notes TEXT,
+    payment_method enum ('CARD','CASH','MOBILE'),
+    payment_status enum ('COMPLETED','FAILED','PENDING'),
+    primary key (id)
+) engine=InnoDB;
+
+create table categories (
+    created_at datetime(6),
+    id bigint not null auto_increment,
+    updated_at datetime(6),
+    name varchar(50),
+    description TEXT,
+    image_url varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table order_items (
+    price decimal(10,2),
+    quantity integer,
+    subtotal decimal(10,2),
+    created_at datetime(6),
+    id bigint not null auto_increment,
+    order_id bigint,
+    product_id bigint,
+    updated_at datetime(6),
+    primary key (id)
+) engine=InnoDB;
+
+create table orders (
+    total_amount decimal(10,2),
+    created_at datetime(6),
+    employee_id bigint,
+    id bigint not null auto_increment,
+    promotion_id bigint,
+    table_id bigint,
+    updated_at datetime(6),
+    notes TEXT,
+    payment_method varchar(255),
+    status enum ('CANCELLED','CONFIRMED','PAID','PENDING','PREPARING','SERVED'),
+    primary key (id)
+) engine=InnoDB;
+
+create table payment (
+    amount float(53) not null,
+    created_at datetime(6),
+    id bigint not null auto_increment,
+    order_id bigint,
+    method varchar(255),
+    qr_url varchar(255),
+    status varchar(255),
+    transaction_id varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table products (
+    archive bit,
+    price decimal(10,2),
+    stock_quantity integer,
+    category_id bigint,
+    created_at datetime(6),
+    id bigint not null auto_increment,
+    updated_at datetime(6),
+    name varchar(100),
+    description TEXT,
+    image_url varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table promotion_products (
+    id bigint not null auto_increment,
+    product_id bigint,
+    promotion_id bigint,
+    primary key (id)
+) engine=InnoDB;
+
+create table promotions (
+    discount_amount decimal(10,2),
+    discount_percentage decimal(5,2),
+    end_date date,
+    is_active bit,
+    start_date date,
+    created_at datetime(6),
+    id bigint not null auto_increment,
+    updated_at datetime(6),
+    name varchar(100),
+    primary key (id)
+) engine=InnoDB;
+
+create table roles (
+    id integer not null auto_increment,
+    name enum ('ROLE_ADMIN','ROLE_MODERATOR','ROLE_USER'),
+    primary key (id)
+) engine=InnoDB;
+
+create table tables (
+    capacity integer,
+    number integer,
+    created_at datetime(6),
+    id bigint not null auto_increment,
+    updated_at datetime(6),
+    table_name varchar(255),
+    status enum ('FREE','OCCUPIED','RESERVED'),
+    primary key (id)
+) engine=InnoDB;
+
+create table user_roles (
+    role_id integer not null,
+    user_id bigint not null,
+    primary key (role_id, user_id)
+) engine=InnoDB;
+
+create table users (
+    id bigint not null auto_increment,
+    username varchar(20) not null,
+    email varchar(50) not null,
+    password varchar(120) not null,
+    primary key (id)
+) engine=InnoDB;
+
+alter table bills
+    add constraint UK575bqi2iwedxvaiwo0mbg60cp unique (order_id);
+
+alter table users
+    add constraint UKr43af9ap4edm43mmtq01oddj6 unique (username);
+
+alter table users
+    add constraint UK6dotkott2kjsp8vw4d0m25fb7 unique (email);
+
+alter table bills
+    add constraint FK2s1iwv6bgsmh8u9awhdd1aela
+    foreign key (order_id)
+    references orders (id);
+
+alter table order_items
+    add constraint FKbioxgbv59vetrxe0ejfubep1w
+    foreign key (order_id)
+    references orders (id);
+
+alter table order_items
+    add constraint FKocimc7dtr037rh4ls4l95nlfi
+    foreign key (product_id)
+    references products (id);
+
+alter table orders
+    add constraint FK42bki7v5u9s62olp5is82sd74
+    foreign key (promotion_id)
+    references promotions (id);
+
+alter table orders
+    add constraint FKrkhrp1dape261t3x3spj7l5ny
+    foreign key (table_id)
+    references tables (id);
+
+alter table products
+    add constraint FKog2rp4qthbtt2lfyhfo32lsw9
+    foreign key (category_id)
+    references categories (id);
+
+alter table promotion_products
+    add constraint FK9rm5m4rnoamh56kxetmoe1kk9
+    foreign key (product_id)
+    references products (id);
+
+alter table promotion_products
+    add constraint FKkn7hllhf1o8jjrolro4rqmxt7
+    foreign key (promotion_id)
+    references promotions (id);
+
+alter table user_roles
+    add constraint FKh8ciramu9cc9q3qcqiv4ue8a6
+    foreign key (role_id)
+    references roles (id);
+
+alter table user_roles
+    add constraint FKhfh9dx7w3ubf1co1vdev94g3f
+    foreign key (user_id)
+    references users (id);
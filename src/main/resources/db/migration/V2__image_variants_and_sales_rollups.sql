@@ -0,0 +1,53 @@
+-- Cột và bảng mới sau baseline: ảnh resize, subtotal cộng dồn của order, bảng tổng hợp doanh thu.
+-- Id của orders/order_items/bills/payment nay do TimeOrderedIdGenerator cấp sẵn trong câu INSERT
+-- nên auto_increment của V1 không còn được dùng; giữ nguyên để khỏi ALTER cột khoá có FK trỏ tới
+
+-- ImageVariantService: "thumb=/uploads/...,card=...,full=..."
+alter table products add column image_variants varchar(512);
+alter table categories add column image_variants varchar(512);
+
+-- Tổng tiền món trước giảm giá; order cũ tính lại một lần từ order_items
+alter table orders add column subtotal_amount decimal(10,2);
+update orders
+set subtotal_amount = (
+    select coalesce(sum(oi.subtotal), 0) from order_items oi where oi.order_id = orders.id
+);
+
+-- RevenueRollupService: doanh thu theo giờ / ngày và phương thức thanh toán
+create table revenue_rollups (
+    revenue decimal(14,2) not null,
+    bill_count bigint not null,
+    bucket_start datetime(6) not null,
+    id bigint not null auto_increment,
+    payment_method varchar(16) not null,
+    granularity enum ('DAY','HOUR') not null,
+    primary key (id)
+) engine=InnoDB;
+
+alter table revenue_rollups
+    add constraint uk_revenue_rollup_bucket unique (granularity, bucket_start, payment_method);
+
+-- SalesAnalyticsService: số lượng / doanh thu theo ngày + sản phẩm và theo giờ trong ngày
+create table product_sales_daily (
+    revenue decimal(14,2) not null,
+    sales_date date not null,
+    id bigint not null auto_increment,
+    product_id bigint not null,
+    quantity bigint not null,
+    primary key (id)
+) engine=InnoDB;
+
+alter table product_sales_daily
+    add constraint uk_product_sales_daily unique (sales_date, product_id);
+
+create table sales_hourly (
+    hour_of_day integer not null,
+    revenue decimal(14,2) not null,
+    sales_date date not null,
+    id bigint not null auto_increment,
+    quantity bigint not null,
+    primary key (id)
+) engine=InnoDB;
+
+alter table sales_hourly
+    add constraint uk_sales_hourly unique (sales_date, hour_of_day);
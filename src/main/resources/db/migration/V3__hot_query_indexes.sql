@@ -0,0 +1,42 @@
+-- Index cho các query chạy thường xuyên (tên repository method ghi bên cạnh).
+-- Cột khoá ngoại (order_items.order_id, products.category_id, ...) đã có index từ FK.
+
+-- OrderRepository.findByStatus, findActiveSummaries, countGroupedByStatus
+create index idx_orders_status_created on orders (status, created_at);
+-- OrderRepository.findByCreatedAtBetween, countByCreatedAtBetween, findFirstCreatedAt, export, đối soát
+create index idx_orders_created_at on orders (created_at);
+-- OrderRepository.findByTableIdAndStatus, findByTableId (thay cho index FK table_id)
+create index idx_orders_table_status on orders (table_id, status);
+-- OrderRepository.findByEmployeeId, findSummaries(employeeId)
+create index idx_orders_employee on orders (employee_id);
+
+-- BillRepository.findByIssuedAtBetween, countByIssuedAtBetween, findFirstIssuedAt, export
+create index idx_bills_issued_at on bills (issued_at);
+-- BillRepository.getTotalRevenueByDateRange, sumCompletedRevenue, findByPaymentStatus:
+-- có total_amount trong index nên SUM đọc thẳng index, không phải đọc từng dòng
+create index idx_bills_status_issued on bills (payment_status, issued_at, total_amount);
+
+-- ProductRepository.findByArchiveFalse
+create index idx_products_archive on products (archive);
+-- ProductRepository / CategoryRepository.countByImageUrl, updateImageVariants
+create index idx_products_image_url on products (image_url);
+create index idx_categories_image_url on categories (image_url);
+
+-- PromotionRepository.findActivePromotions
+create index idx_promotions_active_dates on promotions (is_active, start_date, end_date);
+
+-- CoffeeTableRepository.findByStatus
+create index idx_tables_status on tables (status);
+
+-- promotion_products: bỏ dòng trùng (giữ id nhỏ nhất) rồi mới thêm unique.
+-- Bọc subquery thêm một lớp vì MySQL không cho DELETE đọc thẳng bảng đang xoá
+delete from promotion_products
+where id not in (
+    select keep_id from (
+        select min(id) as keep_id from promotion_products group by promotion_id, product_id
+    ) as keep_rows
+);
+
+-- PromotionProductRepository.existsByPromotionIdAndProductId, findByPromotionId, deleteByPromotionIdAndProductId
+alter table promotion_products
+    add constraint uk_promotion_product unique (promotion_id, product_id);
@@ -0,0 +1,3 @@
+-- TokenRevocationService: mốc thu hồi token theo user (epoch giây), lưu trong DB để
+-- còn hiệu lực sau restart và trên mọi instance. null = chưa thu hồi lần nào
+alter table users add column tokens_valid_after bigint;
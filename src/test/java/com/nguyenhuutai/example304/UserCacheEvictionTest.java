@@ -0,0 +1,119 @@
+package com.nguyenhuutai.example304;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.nguyenhuutai.example304.config.UserCacheConfig;
+import com.nguyenhuutai.example304.model.ERole;
+import com.nguyenhuutai.example304.model.Role;
+import com.nguyenhuutai.example304.model.User;
+import com.nguyenhuutai.example304.repository.RoleRepository;
+import com.nguyenhuutai.example304.repository.UserRepository;
+import com.nguyenhuutai.example304.security.jwt.TokenRevocationService;
+
+// Sửa User/Role qua JPA (transaction commit thật) thì cache UserDetails không còn trả bản cũ
+@DataJpaTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:usercache;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.show-sql=false" })
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ CustomUserDetailsService.class, UserCacheConfig.class, TokenRevocationService.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserCacheEvictionTest {
+
+	@Autowired
+	private CustomUserDetailsService userDetailsService;
+
+	@Autowired
+	private TokenRevocationService tokenRevocationService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private RoleRepository roleRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private TransactionTemplate transaction;
+
+	@BeforeEach
+	void setUp() {
+		transaction = new TransactionTemplate(transactionManager);
+		Role userRole = roleRepository.save(new Role(ERole.ROLE_USER));
+		roleRepository.save(new Role(ERole.ROLE_ADMIN));
+		User user = new User("alice", "alice@example.com", "hash");
+		user.setRoles(new HashSet<>(Set.of(userRole)));
+		userRepository.save(user);
+		userDetailsService.evictAll();
+	}
+
+	@AfterEach
+	void tearDown() {
+		userRepository.deleteAll();
+		roleRepository.deleteAll();
+	}
+
+	@Test
+	void roleChangeEvictsCachedUser() {
+		assertEquals(List.of("ROLE_USER"), authoritiesOf("alice"));
+
+		transaction.executeWithoutResult(status -> {
+			User user = userRepository.findByUsername("alice").orElseThrow();
+			user.getRoles().clear();
+			user.getRoles().add(roleRepository.findByName(ERole.ROLE_ADMIN).orElseThrow());
+		});
+
+		assertEquals(List.of("ROLE_ADMIN"), authoritiesOf("alice"));
+	}
+
+	@Test
+	void deletedUserIsNotServedFromCache() {
+		assertEquals(List.of("ROLE_USER"), authoritiesOf("alice"));
+
+		transaction.executeWithoutResult(status ->
+				userRepository.delete(userRepository.findByUsername("alice").orElseThrow()));
+
+		assertThrows(UsernameNotFoundException.class, () -> userDetailsService.loadUserByUsername("alice"));
+	}
+
+	@Test
+	void tokenRevocationIsNotHiddenByCachedUser() {
+		Date issuedAt = new Date((System.currentTimeMillis() / 1000 - 1) * 1000);
+		// Nạp alice vào cache trước khi thu hồi
+		assertFalse(tokenRevocationService.isRevoked("alice", issuedAt));
+
+		assertTrue(tokenRevocationService.revokeTokensOf("alice"));
+
+		assertTrue(tokenRevocationService.isRevoked("alice", issuedAt));
+		assertTrue(userRepository.findByUsername("alice").orElseThrow().getTokensValidAfter() > issuedAt.getTime() / 1000);
+	}
+
+	private List<String> authoritiesOf(String username) {
+		return userDetailsService.loadUserByUsername(username).getAuthorities().stream()
+				.map(GrantedAuthority::getAuthority)
+				.toList();
+	}
+}
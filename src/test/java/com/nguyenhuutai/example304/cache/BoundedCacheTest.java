@@ -0,0 +1,147 @@
+package com.nguyenhuutai.example304.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class BoundedCacheTest {
+
+	@Test
+	void evictsLeastRecentlyUsedEntry() {
+		BoundedCache<String, Integer> cache = new BoundedCache<>(2, Duration.ofMinutes(5));
+		cache.put("a", 1);
+		cache.put("b", 2);
+		// Đọc "a" -> "b" thành phần tử lâu nhất chưa dùng
+		assertEquals(1, cache.get("a"));
+		cache.put("c", 3);
+
+		assertNull(cache.get("b"));
+		assertEquals(1, cache.get("a"));
+		assertEquals(3, cache.get("c"));
+		assertEquals(1L, cache.stats().get("evictions"));
+		assertEquals(2, cache.stats().get("size"));
+	}
+
+	@Test
+	void expiresEntriesAfterTtl() throws Exception {
+		BoundedCache<String, Integer> cache = new BoundedCache<>(10, Duration.ofMillis(50));
+		cache.put("a", 1);
+		cache.put("b", 2);
+		assertEquals(1, cache.get("a"));
+
+		Thread.sleep(120);
+
+		assertNull(cache.get("a"));
+		cache.purgeExpired();
+		assertEquals(0, cache.stats().get("size"));
+		assertEquals(2L, cache.stats().get("evictions"));
+	}
+
+	@Test
+	void concurrentMissesLoadOnce() throws Exception {
+		BoundedCache<String, Integer> cache = new BoundedCache<>(10, Duration.ofMinutes(5));
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch loaderStarted = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Integer>> results = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				results.add(pool.submit(() -> cache.get("user", key -> {
+					loads.incrementAndGet();
+					loaderStarted.countDown();
+					await(release);
+					return 42;
+				})));
+			}
+			loaderStarted.await(5, TimeUnit.SECONDS);
+			// Cho các thread còn lại kịp tới chỗ chờ kết quả đang load
+			Thread.sleep(100);
+			release.countDown();
+
+			for (Future<Integer> result : results) {
+				assertEquals(42, result.get(5, TimeUnit.SECONDS));
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+		assertEquals(1, loads.get());
+		assertEquals(42, cache.get("user"));
+	}
+
+	@Test
+	void loadOverlappingInvalidateIsNotCached() throws Exception {
+		BoundedCache<String, Integer> cache = new BoundedCache<>(10, Duration.ofMinutes(5));
+		CountDownLatch loaderStarted = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService pool = Executors.newSingleThreadExecutor();
+		try {
+			// Đọc bản cũ từ DB rồi bị chậm lại
+			Future<Integer> stale = pool.submit(() -> cache.get("user", key -> {
+				loaderStarted.countDown();
+				await(release);
+				return 1;
+			}));
+			loaderStarted.await(5, TimeUnit.SECONDS);
+			// Dữ liệu đổi + evict trong lúc load cũ còn chạy
+			cache.invalidate("user");
+			// Request sau evict không chờ chung lượt load cũ
+			assertEquals(2, cache.get("user", key -> 2));
+			release.countDown();
+
+			assertEquals(1, stale.get(5, TimeUnit.SECONDS));
+		} finally {
+			pool.shutdownNow();
+		}
+		assertEquals(2, cache.get("user"));
+
+		// Không có lượt load mới nào: bản cũ cũng không được ghi
+		cache.invalidateAll();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(1);
+		Thread loader = new Thread(() -> {
+			cache.get("user", key -> {
+				started.countDown();
+				await(done);
+				return 1;
+			});
+		});
+		loader.start();
+		started.await(5, TimeUnit.SECONDS);
+		cache.invalidateAll();
+		done.countDown();
+		loader.join(5000);
+		assertNull(cache.get("user"));
+	}
+
+	@Test
+	void failedLoadIsNotCachedAndIsRethrown() {
+		BoundedCache<String, Integer> cache = new BoundedCache<>(10, Duration.ofMinutes(5));
+
+		IllegalStateException error = assertThrows(IllegalStateException.class,
+				() -> cache.get("user", key -> { throw new IllegalStateException("db down"); }));
+
+		assertEquals("db down", error.getMessage());
+		assertEquals(7, cache.get("user", key -> 7));
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
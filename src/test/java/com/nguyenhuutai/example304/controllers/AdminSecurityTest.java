@@ -0,0 +1,158 @@
+package com.nguyenhuutai.example304.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.nguyenhuutai.example304.CustomUserDetailsService;
+import com.nguyenhuutai.example304.security.SecurityConfig;
+import com.nguyenhuutai.example304.security.jwt.JwtUtils;
+import com.nguyenhuutai.example304.security.jwt.TokenRevocationService;
+import com.nguyenhuutai.example304.security.services.CategoryService;
+import com.nguyenhuutai.example304.security.services.DomainEventPublisher;
+import com.nguyenhuutai.example304.security.services.ExportService;
+import com.nguyenhuutai.example304.security.services.FileStorageService;
+import com.nguyenhuutai.example304.security.services.OrderTotalReconciliationService;
+import com.nguyenhuutai.example304.security.services.ProductService;
+import com.nguyenhuutai.example304.security.services.PromotionService;
+import com.nguyenhuutai.example304.security.services.ReportService;
+import com.nguyenhuutai.example304.security.services.SalesAnalyticsService;
+import com.nguyenhuutai.example304.security.services.WebSocketService;
+
+// Filter chain thật của SecurityConfig trước AdminController: API admin không được lọt
+// qua các rule permitAll theo HTTP method
+@WebMvcTest(AdminController.class)
+@Import(SecurityConfig.class)
+class AdminSecurityTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@MockitoBean
+	private ProductService productService;
+	@MockitoBean
+	private CategoryService categoryService;
+	@MockitoBean
+	private PromotionService promotionService;
+	@MockitoBean
+	private ReportService reportService;
+	@MockitoBean
+	private FileStorageService fileStorageService;
+	@MockitoBean
+	private OrderTotalReconciliationService reconciliationService;
+	@MockitoBean
+	private TokenRevocationService tokenRevocationService;
+	@MockitoBean
+	private CustomUserDetailsService userDetailsService;
+	@MockitoBean
+	private JwtUtils jwtUtils;
+	@MockitoBean
+	private ExportService exportService;
+	@MockitoBean
+	private SalesAnalyticsService salesAnalyticsService;
+	@MockitoBean
+	private WebSocketService webSocketService;
+	@MockitoBean
+	private DomainEventPublisher eventPublisher;
+
+	@Test
+	void anonymousCannotRevokeTokens() throws Exception {
+		mockMvc.perform(post("/api/admin/users/alice/revoke-tokens"))
+				.andExpect(status().isForbidden());
+		verify(tokenRevocationService, never()).revokeTokensOf(any());
+	}
+
+	@Test
+	@WithMockUser(roles = "USER")
+	void nonAdminCannotRevokeTokens() throws Exception {
+		mockMvc.perform(post("/api/admin/users/alice/revoke-tokens"))
+				.andExpect(status().isForbidden());
+		verify(tokenRevocationService, never()).revokeTokensOf(any());
+	}
+
+	@Test
+	void anonymousCannotRepairOrderTotals() throws Exception {
+		mockMvc.perform(post("/api/admin/orders/reconcile-totals").param("repair", "true"))
+				.andExpect(status().isForbidden());
+		verify(reconciliationService, never()).reconcile(any(), anyBoolean());
+	}
+
+	@Test
+	@WithMockUser(roles = "ADMIN")
+	void adminCanRevokeTokens() throws Exception {
+		when(tokenRevocationService.revokeTokensOf("alice")).thenReturn(true);
+		mockMvc.perform(post("/api/admin/users/alice/revoke-tokens"))
+				.andExpect(status().isOk());
+		verify(tokenRevocationService).revokeTokensOf("alice");
+	}
+
+	@Test
+	void anonymousCannotExportBills() throws Exception {
+		mockMvc.perform(get("/api/admin/exports/bills").param("from", "2025-03-01").param("to", "2025-03-31"))
+				.andExpect(status().isForbidden());
+		verifyNoInteractions(exportService);
+	}
+
+	@Test
+	@WithMockUser(roles = "EMPLOYEE")
+	void nonAdminCannotExportOrderItems() throws Exception {
+		mockMvc.perform(get("/api/admin/exports/order-items").param("from", "2025-03-01").param("to", "2025-03-31"))
+				.andExpect(status().isForbidden());
+		verifyNoInteractions(exportService);
+	}
+
+	@Test
+	@WithMockUser(roles = "ADMIN")
+	void adminExportStreamsWithItsOwnAsyncTimeout() throws Exception {
+		LocalDate from = LocalDate.of(2025, 3, 1);
+		LocalDate to = LocalDate.of(2025, 3, 31);
+		// Export chỉ ghi sau khi lần dispatch đầu trả về: filter chain còn đang ghi header vào
+		// MockHttpServletResponse (không thread-safe) lúc thread async bắt đầu chạy
+		CountDownLatch dispatched = new CountDownLatch(1);
+		doAnswer(invocation -> {
+			dispatched.await(5, TimeUnit.SECONDS);
+			OutputStream out = invocation.getArgument(4);
+			out.write("billId\r\n1\r\n".getBytes(StandardCharsets.UTF_8));
+			return null;
+		}).when(exportService).exportBills(eq(from), eq(to), eq(ExportService.Format.CSV), eq(false), any());
+
+		MvcResult started = mockMvc.perform(get("/api/admin/exports/bills").param("from", "2025-03-01").param("to", "2025-03-31"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		dispatched.countDown();
+
+		mockMvc.perform(asyncDispatch(started))
+				.andExpect(status().isOk())
+				.andExpect(header().string("Content-Disposition", "attachment; filename=\"bills_2025-03-01_2025-03-31.csv\""))
+				.andExpect(content().string("billId\r\n1\r\n"));
+		assertEquals(1_800_000L, started.getRequest().getAsyncContext().getTimeout());
+	}
+}
@@ -0,0 +1,136 @@
+package com.nguyenhuutai.example304.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.nguyenhuutai.example304.CustomUserDetailsService;
+import com.nguyenhuutai.example304.dto.LoginDto;
+import com.nguyenhuutai.example304.dto.RegisterDto;
+import com.nguyenhuutai.example304.model.ERole;
+import com.nguyenhuutai.example304.model.Role;
+import com.nguyenhuutai.example304.model.User;
+import com.nguyenhuutai.example304.repository.RoleRepository;
+import com.nguyenhuutai.example304.repository.UserRepository;
+import com.nguyenhuutai.example304.security.jwt.JwtUtils;
+import com.nguyenhuutai.example304.security.services.PasswordHashingService;
+
+// Pool hashing 1 thread + hàng đợi 1 chỗ: khi đã đầy thì login trả 429 ngay, không chặn thread Tomcat
+class AuthControllerTest {
+
+	private PasswordHashingService hashing;
+	private AuthenticationManager authenticationManager;
+	private UserRepository userRepository;
+	private RoleRepository roleRepository;
+	private PasswordEncoder passwordEncoder;
+	private AuthController controller;
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	@BeforeEach
+	void setUp() {
+		hashing = new PasswordHashingService(1, 1, 3);
+		authenticationManager = mock(AuthenticationManager.class);
+		userRepository = mock(UserRepository.class);
+		roleRepository = mock(RoleRepository.class);
+		passwordEncoder = mock(PasswordEncoder.class);
+		controller = new AuthController(userRepository, roleRepository,
+				passwordEncoder, mock(JwtUtils.class), authenticationManager,
+				mock(CustomUserDetailsService.class), hashing);
+	}
+
+	@AfterEach
+	void tearDown() {
+		release.countDown();
+		hashing.shutdown();
+	}
+
+	@Test
+	void loginReturns429WithRetryAfterWhenHashingPoolIsSaturated() throws Exception {
+		CountDownLatch running = new CountDownLatch(1);
+		// Chiếm thread duy nhất, rồi lấp chỗ duy nhất trong hàng đợi
+		hashing.submit(() -> {
+			running.countDown();
+			await(release);
+			return null;
+		});
+		running.await(5, TimeUnit.SECONDS);
+		hashing.submit(() -> null);
+
+		ResponseEntity<?> response = controller.login(login("alice")).get(5, TimeUnit.SECONDS);
+
+		assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.getStatusCode());
+		assertEquals("3", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+	}
+
+	@Test
+	void loginIsProcessedOnceHashingPoolHasCapacity() throws Exception {
+		release.countDown();
+		when(authenticationManager.authenticate(any())).thenThrow(new BadCredentialsException("Bad credentials"));
+
+		ResponseEntity<?> response = controller.login(login("alice")).get(5, TimeUnit.SECONDS);
+
+		assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
+	}
+
+	@Test
+	void registerDoesNotPersistOnHashingThread() throws Exception {
+		// Hash chỉ xong sau khi register() đã trả future, để bước lưu nối sau hash thật
+		when(passwordEncoder.encode("secret")).thenAnswer(invocation -> {
+			await(release);
+			return "hash";
+		});
+		when(userRepository.existsByUsername("alice")).thenReturn(false);
+		when(userRepository.existsByEmail("alice@example.com")).thenReturn(false);
+		when(roleRepository.findByName(ERole.ROLE_USER)).thenReturn(Optional.of(new Role(ERole.ROLE_USER)));
+		AtomicReference<String> saveThread = new AtomicReference<>();
+		when(userRepository.save(any(User.class))).thenAnswer(invocation -> {
+			saveThread.set(Thread.currentThread().getName());
+			return invocation.getArgument(0);
+		});
+
+		RegisterDto dto = new RegisterDto();
+		dto.setUsername("alice");
+		dto.setEmail("alice@example.com");
+		dto.setPassword("secret");
+		CompletableFuture<ResponseEntity<String>> future = controller.register(dto);
+		release.countDown();
+		ResponseEntity<String> response = future.get(5, TimeUnit.SECONDS);
+
+		assertEquals(HttpStatus.OK, response.getStatusCode());
+		// Thread BCrypt không bị giữ trong lúc ghi DB
+		assertFalse(saveThread.get().startsWith("password-hash-"), saveThread.get());
+	}
+
+	private static LoginDto login(String username) {
+		LoginDto dto = new LoginDto();
+		dto.setUsername(username);
+		dto.setPassword("secret");
+		return dto;
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package com.nguyenhuutai.example304.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.nguyenhuutai.example304.security.services.FileStorageService;
+import com.nguyenhuutai.example304.storage.BlobStore;
+import com.nguyenhuutai.example304.storage.LocalBlobStore;
+
+class UploadControllerTest {
+
+	@TempDir
+	Path uploadDir;
+
+	private FileStorageService storage;
+	private MockMvc mockMvc;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		storage = new FileStorageService(new LocalBlobStore(uploadDir), 10L * 1024 * 1024, 512, 65536);
+		mockMvc = MockMvcBuilders.standaloneSetup(new UploadController(storage)).build();
+	}
+
+	@Test
+	void hashedUploadIsImmutableAndRevalidatesWith304() throws Exception {
+		String url = storage.storeFile(new MockMultipartFile("image", "Latte.PNG", "image/png",
+				"0123456789".getBytes(StandardCharsets.UTF_8)));
+		assertTrue(url.endsWith(".png"));
+
+		String etag = mockMvc.perform(get(url))
+				.andExpect(status().isOk())
+				.andExpect(header().string("Cache-Control", "max-age=31536000, public, immutable"))
+				.andExpect(content().string("0123456789"))
+				.andReturn().getResponse().getHeader("ETag");
+
+		mockMvc.perform(get(url).header("If-None-Match", etag))
+				.andExpect(status().isNotModified());
+	}
+
+	@Test
+	void servesByteRanges() throws Exception {
+		String url = storage.storeFile(new MockMultipartFile("image", "a.jpg", "image/jpeg",
+				"0123456789".getBytes(StandardCharsets.UTF_8)));
+
+		mockMvc.perform(get(url).header("Range", "bytes=2-4"))
+				.andExpect(status().isPartialContent())
+				.andExpect(content().string("234"));
+	}
+
+	@Test
+	void remoteStoreAnswersSingleRangeWithRangedRead() throws Exception {
+		String name = "0123456789abcdef0123456789abcdef.mp4";
+		BlobStore remote = mock(BlobStore.class);
+		when(remote.stat(anyString())).thenReturn(Optional.empty());
+		when(remote.stat(name)).thenReturn(Optional.of(new BlobStore.BlobInfo(10, 0)));
+		when(remote.open(name, 2, 3)).thenReturn(new ByteArrayInputStream("234".getBytes(StandardCharsets.UTF_8)));
+		// Hot cache tắt (max 0 byte): mọi lần đọc đi thẳng xuống store
+		MockMvc remoteMvc = MockMvcBuilders
+				.standaloneSetup(new UploadController(new FileStorageService(remote, 1024, 16, 0)))
+				.build();
+
+		remoteMvc.perform(get("/uploads/" + name).header("Range", "bytes=2-4"))
+				.andExpect(status().isPartialContent())
+				.andExpect(header().string("Content-Range", "bytes 2-4/10"))
+				.andExpect(header().longValue("Content-Length", 3))
+				.andExpect(content().string("234"));
+		remoteMvc.perform(get("/uploads/" + name).header("Range", "bytes=20-"))
+				.andExpect(status().isRequestedRangeNotSatisfiable())
+				.andExpect(header().string("Content-Range", "bytes */10"));
+
+		verify(remote, never()).open(name);
+		// File theo hash: stat lấy từ cache, không gọi store (HEAD trên S3) mỗi request
+		verify(remote, times(1)).stat(name);
+	}
+
+	@Test
+	void legacyNamesMustRevalidateAndTraversalIsRejected() throws Exception {
+		Files.writeString(uploadDir.resolve("abc_menu.jpg"), "old");
+
+		mockMvc.perform(get("/uploads/abc_menu.jpg"))
+				.andExpect(status().isOk())
+				.andExpect(header().string("Cache-Control", "no-cache, public"));
+		mockMvc.perform(get("/uploads/..%2Fsecret.txt"))
+				.andExpect(status().isNotFound());
+	}
+}
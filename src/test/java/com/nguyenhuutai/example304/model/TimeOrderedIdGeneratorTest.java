@@ -0,0 +1,54 @@
+package com.nguyenhuutai.example304.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+
+class TimeOrderedIdGeneratorTest {
+
+	private static final long MAX_SAFE_INTEGER = (1L << 53) - 1;
+
+	@Test
+	void idsIncreaseAndStayJavaScriptSafe() {
+		TimeOrderedIdGenerator generator = TimeOrderedIdGenerator.forNode(3);
+		long farFuture = Instant.parse("2090-01-01T00:00:00Z").toEpochMilli();
+
+		long previous = generator.next(farFuture);
+		// 1000 id trong cùng 1 ms: vượt 256 sequence thì mượn ms kế tiếp, vẫn tăng dần
+		for (int i = 0; i < 1000; i++) {
+			long id = generator.next(farFuture);
+			assertTrue(id > previous);
+			previous = id;
+		}
+		assertTrue(previous <= MAX_SAFE_INTEGER);
+		assertEquals(3, (previous >>> TimeOrderedIdGenerator.SEQUENCE_BITS) & TimeOrderedIdGenerator.MAX_NODE);
+	}
+
+	@Test
+	void clockGoingBackwardsNeverRepeatsIds() {
+		TimeOrderedIdGenerator generator = TimeOrderedIdGenerator.forNode(0);
+		long now = Instant.parse("2025-06-01T12:00:00Z").toEpochMilli();
+
+		long first = generator.next(now);
+		long afterRewind = generator.next(now - 5_000);
+
+		assertTrue(afterRewind > first);
+	}
+
+	@Test
+	void rejectsNodeOutOfRange() {
+		assertThrows(IllegalArgumentException.class, () -> TimeOrderedIdGenerator.forNode(16));
+	}
+
+	@Test
+	void missingNodeSettingFailsStartup() {
+		assertEquals(3, TimeOrderedIdGenerator.nodeFromSetting(" 3 "));
+		assertThrows(IllegalStateException.class, () -> TimeOrderedIdGenerator.nodeFromSetting(null));
+		assertThrows(IllegalStateException.class, () -> TimeOrderedIdGenerator.nodeFromSetting(""));
+		assertThrows(IllegalArgumentException.class, () -> TimeOrderedIdGenerator.nodeFromSetting("16"));
+	}
+}
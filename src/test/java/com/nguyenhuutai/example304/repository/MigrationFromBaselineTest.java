@@ -0,0 +1,57 @@
+package com.nguyenhuutai.example304.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.math.BigDecimal;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+// DB production có sẵn schema V1 (tạo bằng ddl-auto=update, chưa có bảng lịch sử Flyway) và dữ liệu:
+// baseline ở version 1 rồi chạy V2..V4 trên đó mà không mất / sai dữ liệu cũ
+class MigrationFromBaselineTest {
+
+	@Test
+	void existingBaselineDatabaseIsUpgradedInPlace() {
+		DriverManagerDataSource dataSource = new DriverManagerDataSource(
+				"jdbc:h2:mem:baseline;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+		new ResourceDatabasePopulator(new ClassPathResource("db/migration/V1__baseline.sql")).execute(dataSource);
+		JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+		jdbc.update("insert into tables (id, table_name, number, capacity, status) values (1, 'B1', 1, 4, 'FREE')");
+		jdbc.update("insert into categories (id, name) values (1, 'Coffee')");
+		jdbc.update("insert into products (id, name, price, stock_quantity, archive, category_id) "
+				+ "values (1, 'Latte', 45000, 10, false, 1)");
+		jdbc.update("insert into orders (id, table_id, status, total_amount) values (1, 1, 'PAID', 120000)");
+		jdbc.update("insert into orders (id, table_id, status, total_amount) values (2, 1, 'PENDING', 0)");
+		jdbc.update("insert into order_items (id, order_id, product_id, quantity, price, subtotal) "
+				+ "values (1, 1, 1, 2, 45000, 90000), (2, 1, 1, 1, 30000, 30000)");
+		jdbc.update("insert into users (id, username, email, password) values (1, 'alice', 'alice@example.com', 'hash')");
+		jdbc.update("insert into promotions (id, name, is_active) values (1, 'Sale', true)");
+		// Dòng trùng từ trước khi có unique constraint
+		jdbc.update("insert into promotion_products (id, promotion_id, product_id) values (1, 1, 1), (2, 1, 1)");
+
+		MigrateResult result = Flyway.configure()
+				.dataSource(dataSource)
+				.baselineOnMigrate(true)
+				.baselineVersion("1")
+				.load()
+				.migrate();
+
+		assertEquals(3, result.migrationsExecuted);
+		assertEquals("4", result.targetSchemaVersion);
+		assertEquals(0, new BigDecimal("120000").compareTo(
+				jdbc.queryForObject("select subtotal_amount from orders where id = 1", BigDecimal.class)));
+		assertEquals(0, BigDecimal.ZERO.compareTo(
+				jdbc.queryForObject("select subtotal_amount from orders where id = 2", BigDecimal.class)));
+		assertNull(jdbc.queryForObject("select image_variants from products where id = 1", String.class));
+		assertEquals(0, jdbc.queryForObject("select count(*) from revenue_rollups", Integer.class));
+		assertEquals(1, jdbc.queryForObject("select id from promotion_products", Integer.class));
+		assertNull(jdbc.queryForObject("select tokens_valid_after from users where id = 1", Long.class));
+	}
+}
@@ -0,0 +1,92 @@
+package com.nguyenhuutai.example304.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import com.nguyenhuutai.example304.model.Category;
+import com.nguyenhuutai.example304.model.CoffeeTable;
+import com.nguyenhuutai.example304.model.Order;
+import com.nguyenhuutai.example304.model.OrderItem;
+import com.nguyenhuutai.example304.model.Product;
+
+import jakarta.persistence.EntityManager;
+
+// Đo số câu SQL khi tạo order + món hàng loạt. Mặc định 1000 order cho nhanh;
+// chạy đủ 10k: mvn test -Dtest=OrderBatchInsertBenchmarkTest -Dbenchmark.orders=10000
+@DataJpaTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:batching;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.properties.hibernate.generate_statistics=true",
+		"spring.jpa.show-sql=false" })
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class OrderBatchInsertBenchmarkTest {
+
+	private static final Logger logger = LoggerFactory.getLogger(OrderBatchInsertBenchmarkTest.class);
+
+	private static final int ITEMS_PER_ORDER = 3;
+	private static final int FLUSH_EVERY = 500;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private OrderItemRepository orderItemRepository;
+
+	@Test
+	void ordersAndItemsAreInsertedInJdbcBatches() {
+		int orders = Integer.getInteger("benchmark.orders", 1000);
+		CoffeeTable table = new CoffeeTable("B1", 1, 4);
+		Category category = new Category("Coffee", "");
+		Product product = new Product("Latte", new BigDecimal("45000"), category);
+		entityManager.persist(table);
+		entityManager.persist(category);
+		entityManager.persist(product);
+		entityManager.flush();
+
+		Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+		long started = System.nanoTime();
+
+		for (int i = 0; i < orders; i++) {
+			Order order = orderRepository.save(new Order(table, 1L));
+			List<OrderItem> items = new ArrayList<>();
+			for (int j = 0; j < ITEMS_PER_ORDER; j++) {
+				items.add(new OrderItem(order, product, 1, product.getPrice()));
+			}
+			orderItemRepository.saveAll(items);
+			if ((i + 1) % FLUSH_EVERY == 0) {
+				entityManager.flush();
+				entityManager.clear();
+				table = entityManager.getReference(CoffeeTable.class, table.getId());
+				product = entityManager.getReference(Product.class, product.getId());
+			}
+		}
+		entityManager.flush();
+
+		long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+		long rows = (long) orders * (1 + ITEMS_PER_ORDER);
+		long statements = statistics.getPrepareStatementCount();
+		logger.info("orders={} rows={} preparedStatements={} (IDENTITY: {}) elapsed={}ms",
+				orders, rows, statements, rows, elapsedMillis);
+
+		assertEquals(rows, statistics.getEntityInsertCount());
+		// IDENTITY cần 1 câu INSERT mỗi dòng; batch_size=50 thì ~1 câu / 50 dòng
+		assertTrue(statements * 10 < rows, "expected batched inserts but got " + statements + " statements");
+	}
+}
@@ -0,0 +1,61 @@
+package com.nguyenhuutai.example304.repository;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// Chạy migration Flyway trên H2 (chế độ MySQL) với ddl-auto=validate, nên cũng kiểm tra
+// schema sau toàn bộ migration khớp entity. Mỗi câu SQL dưới đây tương ứng một query nóng trong repository;
+// EXPLAIN không được có full table scan
+@DataJpaTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:plans;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.hibernate.ddl-auto=validate",
+		"spring.jpa.show-sql=false" })
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class QueryPlanTest {
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@ParameterizedTest
+	@ValueSource(strings = {
+			// OrderRepository
+			"select * from orders where status = 'PENDING'",
+			"select * from orders where status in ('PENDING', 'CONFIRMED', 'PREPARING', 'SERVED') order by id",
+			"select * from orders where table_id = 1 and status = 'PENDING'",
+			"select * from orders where table_id = 1",
+			"select * from orders where employee_id = 1",
+			"select count(*) from orders where created_at between '2024-01-01' and '2024-02-01'",
+			// BillRepository
+			"select * from bills where issued_at between '2024-01-01' and '2024-02-01'",
+			"select sum(total_amount) from bills where payment_status = 'COMPLETED' "
+					+ "and issued_at between '2024-01-01' and '2024-02-01'",
+			"select * from bills where payment_status = 'PENDING'",
+			"select * from bills where order_id = 1",
+			// ProductRepository / CategoryRepository
+			"select * from products where archive = false",
+			"select * from products where category_id = 1",
+			"select count(*) from products where image_url = '/uploads/a.jpg'",
+			"select count(*) from categories where image_url = '/uploads/a.jpg'",
+			// OrderItemRepository
+			"select * from order_items where order_id = 1",
+			"select oi.id from order_items oi join orders o on oi.order_id = o.id "
+					+ "where o.created_at >= '2024-01-01' and o.created_at < '2024-02-01'",
+			// PromotionProductRepository
+			"select count(*) from promotion_products where promotion_id = 1 and product_id = 2",
+			"select * from promotion_products where promotion_id = 1",
+			"select * from promotion_products where product_id = 2",
+			// PromotionRepository, CoffeeTableRepository
+			"select * from promotions where is_active = true and start_date <= '2024-01-01' and end_date >= '2024-01-01'",
+			"select * from tables where status = 'FREE'" })
+	void hotQueriesUseAnIndex(String sql) {
+		String plan = jdbcTemplate.queryForObject("explain " + sql, String.class);
+		assertFalse(plan.contains(".tableScan"), () -> "full scan in plan:\n" + plan);
+	}
+}
@@ -0,0 +1,174 @@
+package com.nguyenhuutai.example304.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+
+import com.nguyenhuutai.example304.model.Bill;
+import com.nguyenhuutai.example304.model.Category;
+import com.nguyenhuutai.example304.model.CoffeeTable;
+import com.nguyenhuutai.example304.model.Order;
+import com.nguyenhuutai.example304.model.OrderItem;
+import com.nguyenhuutai.example304.model.Product;
+import com.nguyenhuutai.example304.model.Promotion;
+
+import jakarta.persistence.EntityManager;
+
+// Mỗi danh sách phải chạy trong số câu SQL cố định, không tăng theo số dòng (N+1).
+// Mỗi order/món có bàn, promotion, product, category riêng nên N+1 sẽ lộ ra ngay;
+// sau khi đọc còn chạm vào các quan hệ như khi Jackson serialize response
+@DataJpaTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:budget;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.properties.hibernate.generate_statistics=true",
+		"spring.jpa.show-sql=false" })
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class StatementBudgetTest {
+
+	private static final int ORDERS = 30;
+	private static final int ITEMS_PER_ORDER = 20;
+	private static final int LISTING_BUDGET = 1;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private OrderItemRepository orderItemRepository;
+
+	@Autowired
+	private BillRepository billRepository;
+
+	private Long firstTableId;
+	private Long firstOrderId;
+
+	@BeforeEach
+	void seed() {
+		List<Product> products = new ArrayList<>();
+		for (int i = 0; i < ITEMS_PER_ORDER; i++) {
+			Category category = new Category("Category " + i, "");
+			Product product = new Product("Product " + i, new BigDecimal("30000"), category);
+			entityManager.persist(category);
+			entityManager.persist(product);
+			products.add(product);
+		}
+		for (int i = 0; i < ORDERS; i++) {
+			CoffeeTable table = new CoffeeTable("T" + i, i + 1, 4);
+			Promotion promotion = new Promotion("Promo " + i, LocalDate.now(), LocalDate.now().plusDays(7));
+			entityManager.persist(table);
+			entityManager.persist(promotion);
+
+			Order order = new Order(table, 1L);
+			order.setPromotion(promotion);
+			entityManager.persist(order);
+			for (Product product : products) {
+				entityManager.persist(new OrderItem(order, product, 1, product.getPrice()));
+			}
+			Bill bill = new Bill(order, new BigDecimal("600000"));
+			bill.setPaymentStatus(Bill.PaymentStatus.COMPLETED);
+			entityManager.persist(bill);
+
+			if (i == 0) {
+				firstTableId = table.getId();
+				firstOrderId = order.getId();
+			}
+		}
+		entityManager.flush();
+		entityManager.clear();
+	}
+
+	@Test
+	void ordersByTableEndpoint() {
+		assertRows(1, listing("findByTableId", () -> touchOrders(orderRepository.findByTableId(firstTableId))));
+	}
+
+	@Test
+	void orderPageEndpoint() {
+		assertRows(ORDERS, listing("findSummaries",
+				() -> orderRepository.findSummaries(null, null, null, null, null, null, PageRequest.of(0, 50))));
+	}
+
+	@Test
+	void activeOrdersSnapshot() {
+		assertRows(ORDERS, listing("findActiveSummaries", orderRepository::findActiveSummaries));
+	}
+
+	@Test
+	void ordersWithTableAndPromotion() {
+		List<Order> orders = listing("findByStatus", () -> touchOrders(
+				orderRepository.findByStatus(Order.OrderStatus.PENDING)));
+		assertRows(ORDERS, orders);
+		listing("findByTableIdAndStatus", () -> touchOrders(
+				orderRepository.findByTableIdAndStatus(firstTableId, Order.OrderStatus.PENDING)));
+	}
+
+	@Test
+	void orderItemsWithProduct() {
+		List<OrderItem> items = listing("findByOrderId", () -> touchItems(orderItemRepository.findByOrderId(firstOrderId)));
+		assertRows(ITEMS_PER_ORDER, items);
+		listing("findOrderItemsByOrderId", () -> touchItems(orderItemRepository.findOrderItemsByOrderId(firstOrderId)));
+	}
+
+	@Test
+	void billsWithOrderAndTable() {
+		LocalDateTime now = LocalDateTime.now();
+		List<Bill> bills = listing("findByIssuedAtBetween", () -> touchBills(
+				billRepository.findByIssuedAtBetween(now.minusDays(1), now.plusDays(1))));
+		assertRows(ORDERS, bills);
+		listing("findByPaymentStatus", () -> touchBills(
+				billRepository.findByPaymentStatus(Bill.PaymentStatus.COMPLETED)));
+	}
+
+	private <T> T listing(String name, Supplier<T> query) {
+		entityManager.clear();
+		Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+		T result = query.get();
+		long statements = statistics.getPrepareStatementCount();
+		assertTrue(statements <= LISTING_BUDGET,
+				() -> name + " used " + statements + " statements, budget " + LISTING_BUDGET);
+		return result;
+	}
+
+	private static void assertRows(int expected, List<?> rows) {
+		assertEquals(expected, rows.size());
+	}
+
+	private static List<Order> touchOrders(List<Order> orders) {
+		orders.forEach(order -> {
+			order.getTable().getTableName();
+			order.getPromotion().getName();
+		});
+		return orders;
+	}
+
+	private static List<OrderItem> touchItems(List<OrderItem> items) {
+		items.forEach(item -> {
+			item.getOrder().getId();
+			item.getProduct().getCategory().getName();
+		});
+		return items;
+	}
+
+	private static List<Bill> touchBills(List<Bill> bills) {
+		bills.forEach(bill -> bill.getOrder().getTable().getTableName());
+		return bills;
+	}
+}
@@ -0,0 +1,88 @@
+package com.nguyenhuutai.example304.security.jwt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.nguyenhuutai.example304.security.services.UserDetailsImpl;
+
+import io.jsonwebtoken.Claims;
+
+class JwtUtilsTest {
+
+	private static final String SECRET = "nguyenhuutaiExample304SpringBootJWTSecurity2024";
+	private static final String OTHER_SECRET = "b3RoZXJFeGFtcGxlMzA0U3ByaW5nQm9vdEpXVFNlY3JldDIwMjQ=";
+
+	private JwtUtils jwtUtils;
+
+	@BeforeEach
+	void setUp() {
+		jwtUtils = jwtUtils(SECRET, 60_000);
+	}
+
+	@Test
+	void cachedParserAcceptsValidTokenRepeatedly() {
+		String token = jwtUtils.generateJwtToken(authentication("alice"));
+
+		for (int i = 0; i < 3; i++) {
+			Claims claims = jwtUtils.parseValidClaims(token);
+			assertNotNull(claims);
+			assertEquals("alice", claims.getSubject());
+			assertEquals(7L, claims.get("id", Long.class));
+			assertEquals(List.of("ROLE_ADMIN"), claims.get("authorities", List.class));
+			assertNotNull(claims.getIssuedAt());
+		}
+		assertTrue(jwtUtils.validateJwtToken(token));
+		assertEquals("alice", jwtUtils.getUserNameFromJwtToken(token));
+	}
+
+	@Test
+	void rejectsTamperedToken() {
+		String token = jwtUtils.generateJwtToken(authentication("alice"));
+		String signature = token.substring(token.lastIndexOf('.') + 1);
+		char flipped = signature.charAt(0) == 'A' ? 'B' : 'A';
+		String tampered = token.substring(0, token.lastIndexOf('.') + 1) + flipped + signature.substring(1);
+
+		assertNull(jwtUtils.parseValidClaims(tampered));
+	}
+
+	@Test
+	void rejectsTokenSignedWithAnotherKey() {
+		String foreign = jwtUtils(OTHER_SECRET, 60_000).generateJwtToken(authentication("alice"));
+
+		assertNull(jwtUtils.parseValidClaims(foreign));
+	}
+
+	@Test
+	void rejectsExpiredAndMalformedTokens() {
+		String expired = jwtUtils(SECRET, -1_000).generateJwtToken(authentication("alice"));
+
+		assertNull(jwtUtils.parseValidClaims(expired));
+		assertNull(jwtUtils.parseValidClaims("not-a-jwt"));
+		assertFalse(jwtUtils.validateJwtToken(""));
+	}
+
+	private static JwtUtils jwtUtils(String secret, int expirationMs) {
+		JwtUtils utils = new JwtUtils();
+		ReflectionTestUtils.setField(utils, "jwtSecret", secret);
+		ReflectionTestUtils.setField(utils, "jwtExpirationMs", expirationMs);
+		utils.init();
+		return utils;
+	}
+
+	private static UsernamePasswordAuthenticationToken authentication(String username) {
+		UserDetailsImpl user = new UserDetailsImpl(7L, username, username + "@example.com", "secret",
+				AuthorityUtils.createAuthorityList("ROLE_ADMIN"));
+		return new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
+	}
+}
@@ -0,0 +1,133 @@
+package com.nguyenhuutai.example304.security.jwt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.nguyenhuutai.example304.CustomUserDetailsService;
+import com.nguyenhuutai.example304.model.User;
+import com.nguyenhuutai.example304.repository.UserRepository;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+
+class TokenRevocationServiceTest {
+
+	private UserRepository userRepository;
+	private TokenRevocationService revocations;
+	private JwtUtils jwtUtils;
+	private AuthTokenFilter filter;
+
+	@BeforeEach
+	void setUp() {
+		userRepository = mock(UserRepository.class);
+		when(userRepository.findByUsername("alice"))
+				.thenReturn(Optional.of(new User("alice", "alice@example.com", "hash")));
+		when(userRepository.findByUsername("bob"))
+				.thenReturn(Optional.of(new User("bob", "bob@example.com", "hash")));
+		revocations = newInstance();
+		jwtUtils = mock(JwtUtils.class);
+		filter = new AuthTokenFilter();
+		ReflectionTestUtils.setField(filter, "jwtUtils", jwtUtils);
+		ReflectionTestUtils.setField(filter, "tokenRevocationService", revocations);
+		ReflectionTestUtils.setField(filter, "statelessAuth", true);
+	}
+
+	@AfterEach
+	void clearContext() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void tokenIssuedBeforeRevocationSecondIsRejected() {
+		Date previousSecond = new Date((System.currentTimeMillis() / 1000 - 1) * 1000);
+		revocations.revokeTokensOf("alice");
+
+		assertTrue(revocations.isRevoked("alice", previousSecond));
+		assertTrue(revocations.isRevoked("alice", new Date(previousSecond.getTime() - 60_000)));
+		assertFalse(revocations.isRevoked("bob", previousSecond));
+	}
+
+	@Test
+	void reloginInRevocationSecondIsAccepted() {
+		revocations.revokeTokensOf("alice");
+		// Token đăng nhập lại ngay sau khi thu hồi, iat làm tròn xuống cùng giây
+		Date issuedAt = new Date(System.currentTimeMillis() / 1000 * 1000);
+
+		assertFalse(revocations.isRevoked("alice", issuedAt));
+	}
+
+	@Test
+	void revocationSurvivesRestart() {
+		Date previousSecond = new Date((System.currentTimeMillis() / 1000 - 1) * 1000);
+		assertTrue(revocations.revokeTokensOf("alice"));
+
+		// Mốc nằm trên bản ghi users, instance mới (cache rỗng) vẫn thấy
+		assertTrue(newInstance().isRevoked("alice", previousSecond));
+	}
+
+	@Test
+	void unknownUser() {
+		when(userRepository.findByUsername("ghost")).thenReturn(Optional.empty());
+
+		assertFalse(revocations.revokeTokensOf("ghost"));
+		assertTrue(revocations.isRevoked("ghost", new Date()));
+	}
+
+	@Test
+	void filterDoesNotAuthenticateRevokedToken() throws Exception {
+		Date issuedAt = new Date((System.currentTimeMillis() / 1000 - 1) * 1000);
+		revocations.revokeTokensOf("alice");
+		when(jwtUtils.parseValidClaims("revoked")).thenReturn(claims("alice", issuedAt));
+
+		filter.doFilter(request("revoked"), new MockHttpServletResponse(), new MockFilterChain());
+
+		assertNull(SecurityContextHolder.getContext().getAuthentication());
+	}
+
+	@Test
+	void filterAuthenticatesFromClaimsWhenNotRevoked() throws Exception {
+		when(jwtUtils.parseValidClaims("valid")).thenReturn(claims("bob", new Date()));
+
+		filter.doFilter(request("valid"), new MockHttpServletResponse(), new MockFilterChain());
+
+		Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+		assertEquals("bob", authentication.getName());
+		assertEquals("ROLE_USER", authentication.getAuthorities().iterator().next().getAuthority());
+	}
+
+	private TokenRevocationService newInstance() {
+		return new TokenRevocationService(userRepository, new CustomUserDetailsService(userRepository, 100, 300));
+	}
+
+	private static MockHttpServletRequest request(String token) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/employee/orders");
+		request.addHeader("Authorization", "Bearer " + token);
+		return request;
+	}
+
+	private static Claims claims(String username, Date issuedAt) {
+		return Jwts.claims(new HashMap<>(Map.of(
+				"sub", username, "id", 7L, "authorities", List.of("ROLE_USER"))))
+				.setIssuedAt(issuedAt);
+	}
+}
@@ -0,0 +1,85 @@
+package com.nguyenhuutai.example304.security.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.nguyenhuutai.example304.model.Order;
+import com.nguyenhuutai.example304.repository.BillRepository;
+import com.nguyenhuutai.example304.repository.OrderRepository;
+
+// Không có transaction -> các onXxx áp ngay, như lúc afterCommit chạy
+class DashboardMetricsServiceTest {
+
+	private OrderRepository orderRepository;
+	private BillRepository billRepository;
+	private DashboardMetricsService metrics;
+
+	@BeforeEach
+	void setUp() {
+		orderRepository = mock(OrderRepository.class);
+		billRepository = mock(BillRepository.class);
+		metrics = new DashboardMetricsService(orderRepository, billRepository);
+	}
+
+	@Test
+	void reconcileReplacesDriftedCountersWithDatabaseTotals() {
+		metrics.onOrderCreated(order(Order.OrderStatus.PENDING));
+		stubDatabase(5, new BigDecimal("300000"), Order.OrderStatus.PENDING, 2L);
+
+		metrics.reconcile();
+
+		Map<String, Object> snapshot = metrics.snapshot();
+		assertEquals(5L, snapshot.get("todayOrders"));
+		assertEquals(0, new BigDecimal("300000").compareTo((BigDecimal) snapshot.get("todayRevenue")));
+		assertEquals(2L, snapshot.get("pendingOrders"));
+	}
+
+	@Test
+	void eventsCommittedWhileReconcileQueriesAreKept() {
+		when(orderRepository.countByCreatedAtBetween(any(), any())).thenAnswer(invocation -> {
+			// Order mới + bill thanh toán commit trong lúc đối soát đang query
+			metrics.onOrderCreated(order(Order.OrderStatus.PENDING));
+			metrics.onRevenue(new BigDecimal("50000"), LocalDateTime.now());
+			return 5L;
+		});
+		when(billRepository.sumCompletedRevenue(any(), any())).thenReturn(new BigDecimal("300000"));
+		when(orderRepository.countGroupedByStatus()).thenReturn(rows(Order.OrderStatus.PENDING, 2L));
+
+		metrics.reconcile();
+
+		Map<String, Object> snapshot = metrics.snapshot();
+		assertEquals(6L, snapshot.get("todayOrders"));
+		assertEquals(0, new BigDecimal("350000").compareTo((BigDecimal) snapshot.get("todayRevenue")));
+		assertEquals(3L, snapshot.get("pendingOrders"));
+	}
+
+	private void stubDatabase(long orders, BigDecimal revenue, Order.OrderStatus status, long count) {
+		when(orderRepository.countByCreatedAtBetween(any(), any())).thenReturn(orders);
+		when(billRepository.sumCompletedRevenue(any(), any())).thenReturn(revenue);
+		when(orderRepository.countGroupedByStatus()).thenReturn(rows(status, count));
+	}
+
+	private static List<Object[]> rows(Order.OrderStatus status, long count) {
+		List<Object[]> rows = new ArrayList<>();
+		rows.add(new Object[] { status, count });
+		return rows;
+	}
+
+	private static Order order(Order.OrderStatus status) {
+		Order order = new Order();
+		order.setStatus(status);
+		order.setCreatedAt(LocalDateTime.now());
+		return order;
+	}
+}
@@ -0,0 +1,135 @@
+package com.nguyenhuutai.example304.security.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import com.nguyenhuutai.example304.events.DomainEvent;
+
+class DomainEventPublisherTest {
+
+	private final List<Integer> delivered = new CopyOnWriteArrayList<>();
+	private final CountDownLatch firstStarted = new CountDownLatch(1);
+	private final CountDownLatch release = new CountDownLatch(1);
+	private DomainEventPublisher publisher;
+
+	@AfterEach
+	void tearDown() throws Exception {
+		release.countDown();
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+		publisher.shutdown();
+	}
+
+	@Test
+	void eventsAreDispatchedOnlyAfterCommit() throws Exception {
+		publisher = publisher(10, DomainEventPublisher.OverflowPolicy.BLOCK, 1000, false);
+
+		TransactionSynchronizationManager.initSynchronization();
+		publisher.publish(new Numbered(1));
+		Thread.sleep(200);
+		assertTrue(delivered.isEmpty());
+		TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+		TransactionSynchronizationManager.clearSynchronization();
+
+		// Rollback: chỉ có afterCompletion, không có afterCommit
+		TransactionSynchronizationManager.initSynchronization();
+		publisher.publish(new Numbered(2));
+		TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+				TransactionSynchronization.STATUS_ROLLED_BACK);
+		TransactionSynchronizationManager.clearSynchronization();
+
+		publisher.shutdown();
+		assertEquals(List.of(1), delivered);
+	}
+
+	@Test
+	void blockPolicyKeepsOrderWhenQueueIsFull() throws Exception {
+		publisher = publisher(2, DomainEventPublisher.OverflowPolicy.BLOCK, 5000, true);
+		Thread producer = new Thread(() -> IntStream.rangeClosed(1, 20).forEach(n -> publisher.publish(new Numbered(n))));
+		producer.start();
+		assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+		// Listener đang giữ event 1, hàng đợi 2 chỗ đầy -> producer phải chờ
+		Thread.sleep(200);
+		assertTrue(producer.isAlive());
+
+		release.countDown();
+		producer.join(5000);
+		publisher.shutdown();
+
+		assertEquals(IntStream.rangeClosed(1, 20).boxed().collect(Collectors.toList()), delivered);
+		assertEquals(0L, publisher.stats().get("dropped"));
+		assertTrue((Long) publisher.stats().get("blocked") > 0);
+	}
+
+	@Test
+	void dropPolicyDiscardsOverflowWithoutBlocking() throws Exception {
+		publisher = publisher(1, DomainEventPublisher.OverflowPolicy.DROP, 5000, true);
+		publisher.publish(new Numbered(1));
+		assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+
+		long start = System.nanoTime();
+		for (int n = 2; n <= 5; n++) {
+			publisher.publish(new Numbered(n));
+		}
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+
+		release.countDown();
+		publisher.shutdown();
+		assertEquals(List.of(1, 2), delivered);
+		assertEquals(3L, publisher.stats().get("dropped"));
+	}
+
+	@Test
+	void blockPolicyDropsAfterTimeout() throws Exception {
+		publisher = publisher(1, DomainEventPublisher.OverflowPolicy.BLOCK, 50, true);
+		publisher.publish(new Numbered(1));
+		assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+		publisher.publish(new Numbered(2));
+
+		publisher.publish(new Numbered(3));
+
+		release.countDown();
+		publisher.shutdown();
+		assertEquals(List.of(1, 2), delivered);
+		assertEquals(1L, publisher.stats().get("dropped"));
+	}
+
+	// holdFirst: listener giữ event đầu tiên tới khi release để lấp đầy hàng đợi
+	private DomainEventPublisher publisher(int capacity, DomainEventPublisher.OverflowPolicy policy, long timeoutMs,
+			boolean holdFirst) {
+		return new DomainEventPublisher(event -> {
+			int n = ((Numbered) event).number;
+			if (holdFirst && n == 1) {
+				firstStarted.countDown();
+				try {
+					release.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			delivered.add(n);
+		}, capacity, policy, timeoutMs);
+	}
+
+	private static class Numbered extends DomainEvent {
+		private final int number;
+
+		Numbered(int number) {
+			this.number = number;
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package com.nguyenhuutai.example304.security.services;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nguyenhuutai.example304.repository.BillRepository;
+import com.nguyenhuutai.example304.repository.OrderItemRepository;
+
+import jakarta.persistence.EntityManager;
+
+class ExportServiceTest {
+
+	private static final LocalDate DAY = LocalDate.of(2025, 3, 10);
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private BillRepository billRepository;
+	private ExportService exportService;
+
+	@BeforeEach
+	void setUp() {
+		billRepository = mock(BillRepository.class);
+		exportService = new ExportService(billRepository, mock(OrderItemRepository.class), mock(EntityManager.class),
+				objectMapper);
+		when(billRepository.streamForExport(any(), any())).thenAnswer(invocation -> Stream.of(
+				new Object[] { 1L, 10L, new BigDecimal("45000.00"), "CASH", "COMPLETED", DAY.atTime(8, 5), null },
+				new Object[] { 2L, null, new BigDecimal("60000.50"), "CARD", "PENDING", DAY.atTime(9, 0),
+						"Bàn 3, \"VIP\"\nghi chú" }));
+	}
+
+	@Test
+	void csvHasBomHeaderAndQuotedValues() throws Exception {
+		String csv = new String(export(ExportService.Format.CSV, false), StandardCharsets.UTF_8);
+
+		String[] lines = csv.split("\r\n", -1);
+		assertEquals("\uFEFFbillId,orderId,totalAmount,paymentMethod,paymentStatus,issuedAt,notes", lines[0]);
+		assertEquals("1,10,45000.00,CASH,COMPLETED," + DAY.atTime(8, 5) + ",", lines[1]);
+		assertEquals("2,,60000.50,CARD,PENDING," + DAY.atTime(9, 0) + ",\"Bàn 3, \"\"VIP\"\"\nghi chú\"", lines[2]);
+		assertEquals("", lines[3]);
+	}
+
+	@Test
+	void ndjsonWritesOneObjectPerLineWithTypedValues() throws Exception {
+		String ndjson = new String(export(ExportService.Format.NDJSON, false), StandardCharsets.UTF_8);
+
+		List<String> lines = ndjson.lines().toList();
+		assertEquals(2, lines.size());
+		JsonNode first = objectMapper.readTree(lines.get(0));
+		assertTrue(first.get("billId").isNumber());
+		assertEquals(0, new BigDecimal("45000.00").compareTo(first.get("totalAmount").decimalValue()));
+		assertEquals(LocalDateTime.of(2025, 3, 10, 8, 5).toString(), first.get("issuedAt").asText());
+		assertTrue(first.get("notes").isNull());
+		JsonNode second = objectMapper.readTree(lines.get(1));
+		assertTrue(second.get("orderId").isNull());
+		assertEquals("Bàn 3, \"VIP\"\nghi chú", second.get("notes").asText());
+	}
+
+	@Test
+	void gzipOutputDecompressesToPlainExport() throws Exception {
+		for (ExportService.Format format : ExportService.Format.values()) {
+			byte[] plain = export(format, false);
+			byte[] compressed = export(format, true);
+
+			try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+				assertArrayEquals(plain, in.readAllBytes());
+			}
+		}
+	}
+
+	@Test
+	void csvNeutralizesFormulaCells() {
+		assertEquals("\"'=HYPERLINK(\"\"http://x\"\")\"", ExportService.csvValue("=HYPERLINK(\"http://x\")"));
+		assertEquals("'+1", ExportService.csvValue("+1"));
+		assertEquals("'-2+3", ExportService.csvValue("-2+3"));
+		assertEquals("'@SUM(A1)", ExportService.csvValue("@SUM(A1)"));
+		assertEquals("'\tcmd", ExportService.csvValue("\tcmd"));
+		assertEquals("\"'\rcmd\"", ExportService.csvValue("\rcmd"));
+		assertEquals("-5000.00", ExportService.csvValue(new BigDecimal("-5000.00")));
+		assertEquals("Bàn 3", ExportService.csvValue("Bàn 3"));
+	}
+
+	@Test
+	void fileNameReflectsFormatAndCompression() {
+		assertEquals("bills_2025-03-01_2025-03-31.csv",
+				ExportService.fileName("bills", LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 31), ExportService.Format.CSV, false));
+		assertEquals("bills_2025-03-01_2025-03-31.ndjson.gz",
+				ExportService.fileName("bills", LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 31), ExportService.Format.NDJSON, true));
+	}
+
+	private byte[] export(ExportService.Format format, boolean gzip) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		exportService.exportBills(DAY, DAY, format, gzip, out);
+		return out.toByteArray();
+	}
+}
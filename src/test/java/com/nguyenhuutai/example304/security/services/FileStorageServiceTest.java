@@ -0,0 +1,102 @@
+package com.nguyenhuutai.example304.security.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+
+import com.nguyenhuutai.example304.storage.LocalBlobStore;
+
+class FileStorageServiceTest {
+
+	@TempDir
+	Path uploadDir;
+
+	private FileStorageService storage;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		storage = new FileStorageService(new LocalBlobStore(uploadDir), 10L * 1024 * 1024, 512, 65536);
+	}
+
+	@Test
+	void concurrentIdenticalUploadsAreStoredOnce() throws Exception {
+		byte[] image = new byte[3 * 1024 * 1024 + 17];
+		new Random(42).nextBytes(image);
+
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<String>> urls = pool.invokeAll(Stream.<Callable<String>>generate(
+					() -> () -> storage.storeFile(new MockMultipartFile("image", "a.jpg", "image/jpeg", image)))
+					.limit(16).toList());
+			String first = urls.get(0).get();
+			for (Future<String> url : urls) {
+				assertEquals(first, url.get());
+			}
+		} finally {
+			pool.shutdown();
+		}
+
+		try (Stream<Path> files = storedFiles()) {
+			List<Path> stored = files.toList();
+			assertEquals(1, stored.size());
+			assertEquals(image.length, Files.size(stored.get(0)));
+		}
+	}
+
+	@Test
+	void oversizedStreamIsRejectedAndTempFileRemoved() throws Exception {
+		storage = new FileStorageService(new LocalBlobStore(uploadDir), 1024, 512, 65536);
+		// getSize() khai báo nhỏ nhưng stream thực tế lớn hơn giới hạn
+		MockMultipartFile lying = new MockMultipartFile("image", "a.jpg", "image/jpeg", new byte[4096]) {
+			@Override
+			public long getSize() {
+				return 10;
+			}
+		};
+
+		assertThrows(MaxUploadSizeExceededException.class, () -> storage.storeFile(lying));
+		try (Stream<Path> files = storedFiles()) {
+			assertEquals(0, files.count());
+		}
+	}
+
+	@Test
+	void cachedStatAndVariantAreDroppedOnDelete() throws Exception {
+		String url = storage.storeFile(new MockMultipartFile("image", "a.png", "image/png", new byte[] { 1, 2, 3 }));
+		String fileName = url.substring("/uploads/".length());
+		String thumb = FileStorageService.variantFileName(fileName, "thumb", "png");
+		Path temp = storage.createTempFile();
+		Files.write(temp, new byte[] { 4 });
+		storage.storeGenerated(thumb, temp);
+
+		assertEquals(Optional.of(thumb), storage.findVariant(fileName, ImageVariantService.Size.THUMB));
+		assertTrue(storage.stat(fileName).isPresent());
+
+		assertTrue(storage.deleteFile(url));
+
+		assertTrue(storage.stat(fileName).isEmpty());
+		assertTrue(storage.findVariant(fileName, ImageVariantService.Size.THUMB).isEmpty());
+	}
+
+	// File thật trong store (kể cả thư mục con theo hash), bao gồm file tạm còn sót
+	private Stream<Path> storedFiles() throws Exception {
+		return Files.walk(uploadDir).filter(Files::isRegularFile);
+	}
+}
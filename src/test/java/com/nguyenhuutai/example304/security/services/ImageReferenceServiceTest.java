@@ -0,0 +1,138 @@
+package com.nguyenhuutai.example304.security.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import com.nguyenhuutai.example304.repository.CategoryRepository;
+import com.nguyenhuutai.example304.repository.ProductRepository;
+import com.nguyenhuutai.example304.storage.LocalBlobStore;
+
+// Không có transaction -> release chạy ngay như lúc afterCommit
+class ImageReferenceServiceTest {
+
+	@TempDir
+	Path uploadDir;
+
+	private FileStorageService storage;
+	private ProductRepository productRepository;
+	private CategoryRepository categoryRepository;
+	private ImageReferenceService references;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		storage = new FileStorageService(new LocalBlobStore(uploadDir), 10L * 1024 * 1024, 512, 65536);
+		productRepository = mock(ProductRepository.class);
+		categoryRepository = mock(CategoryRepository.class);
+	}
+
+	@AfterEach
+	void tearDown() {
+		if (references != null) {
+			references.shutdown();
+		}
+	}
+
+	@Test
+	void unreferencedFileIsDeletedOnceGracePeriodHasPassed() throws Exception {
+		references = new ImageReferenceService(productRepository, categoryRepository, storage, 0);
+		String url = upload();
+
+		references.release(url);
+
+		assertFalse(exists(url));
+	}
+
+	@Test
+	void fileStillReferencedIsKept() throws Exception {
+		references = new ImageReferenceService(productRepository, categoryRepository, storage, 0);
+		String url = upload();
+		when(categoryRepository.countByImageUrl(url)).thenReturn(1L);
+
+		references.release(url);
+
+		assertTrue(exists(url));
+	}
+
+	@Test
+	void reuploadedFileIsKeptUntilItsNewOwnerIsSaved() throws Exception {
+		// Món cũ bị xoá đúng lúc món mới upload cùng ảnh nhưng chưa lưu product
+		references = new ImageReferenceService(productRepository, categoryRepository, storage, 300);
+		String url = upload();
+
+		references.release(url);
+		assertTrue(exists(url));
+
+		when(productRepository.countByImageUrl(url)).thenReturn(1L);
+		Thread.sleep(600);
+		assertTrue(exists(url));
+	}
+
+	@Test
+	void deferredReleaseDeletesFileThatNobodyReferenced() throws Exception {
+		references = new ImageReferenceService(productRepository, categoryRepository, storage, 200);
+		String url = upload();
+
+		references.release(url);
+		assertTrue(exists(url));
+
+		Thread.sleep(600);
+		assertFalse(exists(url));
+	}
+
+	@Test
+	void deleteIsSkippedWhenFileWasStoredAgainSinceTheCheck() throws Exception {
+		// Mốc kiểm tra lùi 1s: mtime của file hệ thống chỉ chính xác tới vài ms
+		long checkedAt = System.currentTimeMillis() - 1000;
+		String url = upload();
+
+		assertFalse(storage.deleteFileIfNotStoredSince(url, checkedAt));
+		assertTrue(exists(url));
+		assertTrue(storage.deleteFileIfNotStoredSince(url, System.currentTimeMillis()));
+	}
+
+	@Test
+	void reuploadOnAnotherInstanceIsSeenThroughTheStore() throws Exception {
+		references = new ImageReferenceService(productRepository, categoryRepository, storage, 300);
+		String url = upload();
+		Path file = storedFile(url);
+		Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - 3_600_000));
+		// Instance khác dùng chung store upload lại đúng ảnh đó (cùng hash, cùng key)
+		FileStorageService otherInstance = new FileStorageService(new LocalBlobStore(uploadDir),
+				10L * 1024 * 1024, 512, 65536);
+		assertEquals(url, otherInstance.storeFile(
+				new MockMultipartFile("image", "latte.png", "image/png", new byte[] { 1, 2, 3, 4 })));
+
+		references.release(url);
+
+		assertTrue(exists(url));
+	}
+
+	private Path storedFile(String url) throws Exception {
+		try (Stream<Path> files = Files.walk(uploadDir)) {
+			String name = url.substring("/uploads/".length());
+			return files.filter(path -> path.getFileName().toString().equals(name)).findFirst().orElseThrow();
+		}
+	}
+
+	private String upload() throws Exception {
+		return storage.storeFile(new MockMultipartFile("image", "latte.png", "image/png", new byte[] { 1, 2, 3, 4 }));
+	}
+
+	private boolean exists(String url) throws Exception {
+		return storage.stat(url.substring("/uploads/".length())).isPresent();
+	}
+}
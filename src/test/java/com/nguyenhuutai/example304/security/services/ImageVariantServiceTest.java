@@ -0,0 +1,76 @@
+package com.nguyenhuutai.example304.security.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import com.nguyenhuutai.example304.repository.CategoryRepository;
+import com.nguyenhuutai.example304.repository.ProductRepository;
+import com.nguyenhuutai.example304.storage.LocalBlobStore;
+
+class ImageVariantServiceTest {
+
+	@TempDir
+	Path uploadDir;
+
+	@Test
+	void resizeKeepsAspectRatioAndNeverUpscales() {
+		BufferedImage source = new BufferedImage(2000, 1000, BufferedImage.TYPE_INT_RGB);
+
+		BufferedImage thumb = ImageVariantService.resize(source, 160, false);
+		assertEquals(160, thumb.getWidth());
+		assertEquals(80, thumb.getHeight());
+
+		BufferedImage small = ImageVariantService.resize(new BufferedImage(100, 50, BufferedImage.TYPE_INT_RGB), 480, false);
+		assertEquals(100, small.getWidth());
+		assertEquals(50, small.getHeight());
+	}
+
+	@Test
+	void generateWritesEverySizeAndRecordsVariants() throws Exception {
+		FileStorageService storage = new FileStorageService(new LocalBlobStore(uploadDir), 10L * 1024 * 1024, 512, 65536);
+		ProductRepository products = mock(ProductRepository.class);
+		CategoryRepository categories = mock(CategoryRepository.class);
+		MenuCacheService menuCache = mock(MenuCacheService.class);
+		ImageVariantService service = new ImageVariantService(storage, products, categories, menuCache, 10);
+
+		ByteArrayOutputStream png = new ByteArrayOutputStream();
+		ImageIO.write(new BufferedImage(1600, 1200, BufferedImage.TYPE_INT_RGB), "png", png);
+		String url = storage.storeFile(new MockMultipartFile("image", "latte.png", "image/png", png.toByteArray()));
+		String base = url.substring("/uploads/".length(), url.lastIndexOf('.'));
+
+		service.generate(url);
+
+		assertEquals(160, read(storage, base + "-thumb.jpg").getWidth());
+		assertEquals(480, read(storage, base + "-card.jpg").getWidth());
+		assertEquals(1280, read(storage, base + "-full.jpg").getWidth());
+		String variants = "thumb=/uploads/" + base + "-thumb.jpg,card=/uploads/" + base + "-card.jpg,full=/uploads/"
+				+ base + "-full.jpg";
+		verify(products).updateImageVariants(eq(url), eq(variants));
+		verify(categories).updateImageVariants(eq(url), eq(variants));
+		verify(menuCache).invalidateMenu();
+
+		assertTrue(storage.deleteFile(url));
+		assertTrue(storage.stat(base + "-thumb.jpg").isEmpty());
+		service.shutdown();
+	}
+
+	private static BufferedImage read(FileStorageService storage, String fileName) throws Exception {
+		try (InputStream in = storage.open(fileName)) {
+			return ImageIO.read(in);
+		}
+	}
+}
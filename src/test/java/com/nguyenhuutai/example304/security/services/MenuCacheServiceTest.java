@@ -0,0 +1,94 @@
+package com.nguyenhuutai.example304.security.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nguyenhuutai.example304.model.Product;
+import com.nguyenhuutai.example304.repository.CategoryRepository;
+import com.nguyenhuutai.example304.repository.ProductRepository;
+
+// Không có transaction -> onStockChanged chạy ngay, giống lúc afterCommit được gọi
+class MenuCacheServiceTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+	private ProductRepository productRepository;
+	private MenuCacheService menuCache;
+
+	@BeforeEach
+	void setUp() {
+		productRepository = mock(ProductRepository.class);
+		menuCache = new MenuCacheService(productRepository, mock(CategoryRepository.class), objectMapper, 300);
+	}
+
+	@Test
+	void stockChangeRefreshesQuantityFromDatabase() throws Exception {
+		when(productRepository.findByArchiveFalse()).thenReturn(List.of(product(1L, 10)));
+		String etag = menuCache.getMenu().getEtag();
+
+		when(productRepository.findStockByIdIn(anyCollection())).thenReturn(stock(1L, 8));
+		menuCache.onStockChanged(List.of(1L));
+
+		assertEquals(8, stockInMenu());
+		assertNotEquals(etag, menuCache.getMenu().getEtag());
+	}
+
+	@Test
+	void lateRefreshAfterRebuildDoesNotApplyChangeTwice() throws Exception {
+		// Menu bị dựng lại sau khi order commit nên đã có số 8;
+		// afterCommit của order đó tới muộn không được trừ thêm lần nữa
+		when(productRepository.findByArchiveFalse()).thenReturn(List.of(product(1L, 10)));
+		menuCache.getMenu();
+		menuCache.invalidateMenu();
+		when(productRepository.findByArchiveFalse()).thenReturn(List.of(product(1L, 8)));
+		menuCache.getMenu();
+
+		when(productRepository.findStockByIdIn(anyCollection())).thenReturn(stock(1L, 8));
+		menuCache.onStockChanged(List.of(1L));
+
+		assertEquals(8, stockInMenu());
+		assertEquals(0L, menuCache.stats().get("stockRefreshes"));
+	}
+
+	@Test
+	void changeMadeOnAnotherInstanceIsServedAfterTtl() throws Exception {
+		menuCache = new MenuCacheService(productRepository, mock(CategoryRepository.class), objectMapper, 1);
+		when(productRepository.findByArchiveFalse()).thenReturn(List.of(product(1L, 10)));
+		String etag = menuCache.getMenu().getEtag();
+		// Instance khác sửa DB, không có invalidate nào chạy ở đây
+		when(productRepository.findByArchiveFalse()).thenReturn(List.of(product(1L, 3)));
+
+		assertEquals(etag, menuCache.getMenu().getEtag());
+		Thread.sleep(1100);
+
+		assertEquals(3, stockInMenu());
+		assertNotEquals(etag, menuCache.getMenu().getEtag());
+	}
+
+	private int stockInMenu() throws Exception {
+		JsonNode menu = objectMapper.readTree(menuCache.getMenu().getJson());
+		return menu.get(0).get("stockQuantity").asInt();
+	}
+
+	private static Product product(Long id, int stock) {
+		Product product = new Product("Latte", new BigDecimal("45000"), null);
+		product.setId(id);
+		product.setStockQuantity(stock);
+		return product;
+	}
+
+	private static List<Object[]> stock(Long id, int stock) {
+		return Collections.singletonList(new Object[] { id, stock });
+	}
+}
@@ -0,0 +1,131 @@
+package com.nguyenhuutai.example304.security.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.nguyenhuutai.example304.model.Category;
+import com.nguyenhuutai.example304.model.CoffeeTable;
+import com.nguyenhuutai.example304.model.Order;
+import com.nguyenhuutai.example304.model.Product;
+import com.nguyenhuutai.example304.repository.CategoryRepository;
+import com.nguyenhuutai.example304.repository.CoffeeTableRepository;
+import com.nguyenhuutai.example304.repository.OrderItemRepository;
+import com.nguyenhuutai.example304.repository.OrderRepository;
+import com.nguyenhuutai.example304.repository.ProductRepository;
+import com.nguyenhuutai.example304.repository.PromotionRepository;
+
+// Nhiều nhân viên thêm / sửa món cùng một order cùng lúc: subtotal cộng dồn không được mất delta
+@DataJpaTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:orderlocks;MODE=MySQL;DATABASE_TO_LOWER=TRUE;LOCK_TIMEOUT=10000",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.show-sql=false" })
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderConcurrencyTest {
+
+	private static final int THREADS = 4;
+	private static final int ITEMS_PER_THREAD = 10;
+
+	@Autowired
+	private OrderRepository orderRepository;
+	@Autowired
+	private OrderItemRepository orderItemRepository;
+	@Autowired
+	private ProductRepository productRepository;
+	@Autowired
+	private CategoryRepository categoryRepository;
+	@Autowired
+	private CoffeeTableRepository tableRepository;
+	@Autowired
+	private PromotionRepository promotionRepository;
+	@Autowired
+	private TransactionTemplate transaction;
+
+	private OrderService orderService;
+	private Long orderId;
+	private Long latteId;
+
+	@BeforeEach
+	void setUp() {
+		orderService = new OrderService(orderRepository, orderItemRepository, tableRepository, productRepository,
+				promotionRepository, mock(DomainEventPublisher.class), mock(StockService.class),
+				mock(DashboardMetricsService.class), mock(SalesAnalyticsService.class));
+
+		Category coffee = categoryRepository.save(new Category("Coffee", ""));
+		latteId = productRepository.save(new Product("Latte", new BigDecimal("45000.00"), coffee)).getId();
+		CoffeeTable table = tableRepository.save(new CoffeeTable("B1", 1, 4));
+		Order order = new Order(table, 1L);
+		order.setSubtotalAmount(BigDecimal.ZERO);
+		orderId = orderRepository.save(order).getId();
+	}
+
+	@AfterEach
+	void tearDown() {
+		orderItemRepository.deleteAll();
+		orderRepository.deleteAll();
+		tableRepository.deleteAll();
+		productRepository.deleteAll();
+		categoryRepository.deleteAll();
+	}
+
+	@Test
+	void parallelItemEditsKeepTheTotal() throws Exception {
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Callable<Void>> workers = new ArrayList<>();
+			for (int t = 0; t < THREADS; t++) {
+				workers.add(() -> {
+					start.await(5, TimeUnit.SECONDS);
+					for (int i = 0; i < ITEMS_PER_THREAD; i++) {
+						transaction.executeWithoutResult(status -> {
+							Order order = orderService.addItemToOrder(orderId, latteId, 2);
+							// Mỗi thread còn giảm 1 món vừa thêm về 1 ly: hai delta trên cùng order
+							Long itemId = orderItemRepository.findByOrderId(order.getId()).stream()
+									.filter(item -> item.getQuantity() == 2)
+									.findFirst().orElseThrow().getId();
+							orderService.updateItemQuantity(orderId, itemId, 1);
+						});
+					}
+					return null;
+				});
+			}
+			List<Future<Void>> results = new ArrayList<>();
+			for (Callable<Void> worker : workers) {
+				results.add(pool.submit(worker));
+			}
+			start.countDown();
+			for (Future<Void> result : results) {
+				result.get(60, TimeUnit.SECONDS);
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+
+		BigDecimal expected = new BigDecimal("45000.00").multiply(BigDecimal.valueOf(THREADS * ITEMS_PER_THREAD));
+		Order order = orderRepository.findById(orderId).orElseThrow();
+		assertEquals(0, expected.compareTo(order.getSubtotalAmount()));
+		assertEquals(0, expected.compareTo(order.getTotalAmount()));
+		assertEquals(0, expected.compareTo(orderItemRepository.getTotalAmountByOrderId(orderId)));
+	}
+}
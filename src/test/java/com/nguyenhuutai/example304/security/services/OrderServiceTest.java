@@ -0,0 +1,223 @@
+package com.nguyenhuutai.example304.security.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.nguyenhuutai.example304.model.CoffeeTable;
+import com.nguyenhuutai.example304.model.Order;
+import com.nguyenhuutai.example304.model.OrderItem;
+import com.nguyenhuutai.example304.model.Product;
+import com.nguyenhuutai.example304.model.Promotion;
+import com.nguyenhuutai.example304.repository.CoffeeTableRepository;
+import com.nguyenhuutai.example304.repository.OrderItemRepository;
+import com.nguyenhuutai.example304.repository.OrderRepository;
+import com.nguyenhuutai.example304.repository.ProductRepository;
+import com.nguyenhuutai.example304.repository.PromotionRepository;
+
+class OrderServiceTest {
+
+	private OrderRepository orderRepository;
+	private OrderItemRepository orderItemRepository;
+	private CoffeeTableRepository tableRepository;
+	private ProductRepository productRepository;
+	private PromotionRepository promotionRepository;
+	private StockService stockService;
+	private OrderService service;
+
+	private CoffeeTable table;
+
+	@BeforeEach
+	void setUp() {
+		orderRepository = mock(OrderRepository.class);
+		orderItemRepository = mock(OrderItemRepository.class);
+		tableRepository = mock(CoffeeTableRepository.class);
+		productRepository = mock(ProductRepository.class);
+		promotionRepository = mock(PromotionRepository.class);
+		stockService = mock(StockService.class);
+		service = new OrderService(orderRepository, orderItemRepository, tableRepository, productRepository,
+				promotionRepository, mock(DomainEventPublisher.class), stockService,
+				mock(DashboardMetricsService.class), mock(SalesAnalyticsService.class));
+
+		table = new CoffeeTable("B1", 1, 4);
+		table.setId(3L);
+		when(orderRepository.save(any(Order.class))).thenAnswer(call -> call.getArgument(0));
+	}
+
+	@Test
+	void placeOrderSumsLinesWithoutRoundingLoss() {
+		Product latte = product(1L, "45000.50");
+		Product tea = product(2L, "30000.00");
+		when(tableRepository.findById(3L)).thenReturn(Optional.of(table));
+		when(productRepository.findAllById(any())).thenReturn(List.of(latte, tea));
+		Map<Long, Integer> quantities = new LinkedHashMap<>();
+		quantities.put(1L, 2);
+		quantities.put(2L, 1);
+
+		Order order = service.placeOrder(3L, 9L, quantities);
+
+		assertEquals(new BigDecimal("120001.00"), order.getSubtotalAmount());
+		assertEquals(new BigDecimal("120001.00"), order.getTotalAmount());
+		verify(stockService).reserve(quantities);
+		verify(orderItemRepository, never()).getTotalAmountByOrderId(anyLong());
+	}
+
+	@Test
+	void addingItemAddsOnlyTheNewLine() {
+		Order order = order(10L, "100.00");
+		when(orderRepository.findByIdForUpdate(10L)).thenReturn(Optional.of(order));
+		when(productRepository.findById(1L)).thenReturn(Optional.of(product(1L, "12.34")));
+
+		service.addItemToOrder(10L, 1L, 3);
+
+		assertEquals(new BigDecimal("137.02"), order.getSubtotalAmount());
+		assertEquals(new BigDecimal("137.02"), order.getTotalAmount());
+		verify(orderItemRepository, never()).getTotalAmountByOrderId(anyLong());
+	}
+
+	@Test
+	void changingQuantityAppliesTheDifference() {
+		Order order = order(10L, "50.00");
+		OrderItem item = item(20L, order, product(1L, "10.00"), 2);
+		when(orderRepository.findByIdForUpdate(10L)).thenReturn(Optional.of(order));
+		when(orderItemRepository.findById(20L)).thenReturn(Optional.of(item));
+
+		service.updateItemQuantity(10L, 20L, 5);
+		assertEquals(new BigDecimal("80.00"), order.getSubtotalAmount());
+		verify(stockService).reserve(1L, 3);
+
+		service.updateItemQuantity(10L, 20L, 1);
+		assertEquals(new BigDecimal("40.00"), order.getSubtotalAmount());
+		verify(stockService).release(Map.of(1L, 4));
+	}
+
+	@Test
+	void removingItemSubtractsItsSubtotal() {
+		Order order = order(10L, "50.00");
+		OrderItem item = item(20L, order, product(1L, "10.00"), 2);
+		when(orderRepository.findByIdForUpdate(10L)).thenReturn(Optional.of(order));
+		when(orderItemRepository.findById(20L)).thenReturn(Optional.of(item));
+
+		service.removeItemFromOrder(10L, 20L);
+
+		assertEquals(new BigDecimal("30.00"), order.getSubtotalAmount());
+		verify(stockService).release(Map.of(1L, 2));
+	}
+
+	@Test
+	void itemsOfClosedOrderCannotChange() {
+		Order order = order(10L, "50.00");
+		order.setStatus(Order.OrderStatus.PAID);
+		OrderItem item = item(20L, order, product(1L, "10.00"), 2);
+		when(orderRepository.findByIdForUpdate(10L)).thenReturn(Optional.of(order));
+		when(orderItemRepository.findById(20L)).thenReturn(Optional.of(item));
+
+		assertThrows(RuntimeException.class, () -> service.addItemToOrder(10L, 1L, 1));
+		assertThrows(RuntimeException.class, () -> service.updateItemQuantity(10L, 20L, 5));
+		RuntimeException error = assertThrows(RuntimeException.class, () -> service.removeItemFromOrder(10L, 20L));
+
+		assertEquals("Order is closed", error.getMessage());
+		assertEquals(new BigDecimal("50.00"), order.getSubtotalAmount());
+		verify(stockService, never()).reserve(anyLong(), any());
+		verify(stockService, never()).release(any());
+	}
+
+	@Test
+	void legacyOrderWithoutSubtotalStartsFromSum() {
+		Order order = order(10L, null);
+		when(orderRepository.findByIdForUpdate(10L)).thenReturn(Optional.of(order));
+		when(productRepository.findById(1L)).thenReturn(Optional.of(product(1L, "15.00")));
+		// SUM chạy sau khi món mới đã flush nên đã gồm 2 x 15.00
+		when(orderItemRepository.getTotalAmountByOrderId(10L)).thenReturn(new BigDecimal("70.00"));
+
+		service.addItemToOrder(10L, 1L, 2);
+
+		assertEquals(new BigDecimal("70.00"), order.getSubtotalAmount());
+	}
+
+	@Test
+	void runningPromotionDiscountsTheTotal() {
+		Order order = order(10L, "200.00");
+		when(orderRepository.findByIdForUpdate(10L)).thenReturn(Optional.of(order));
+		when(promotionRepository.findById(5L)).thenReturn(Optional.of(promotion(5L, LocalDate.now().plusDays(1))));
+
+		service.setOrderPromotion(10L, 5L);
+		assertEquals(new BigDecimal("175.00"), order.getTotalAmount());
+
+		service.setOrderPromotion(10L, null);
+		assertNull(order.getPromotion());
+		assertEquals(new BigDecimal("200.00"), order.getTotalAmount());
+	}
+
+	@Test
+	void expiredPromotionCannotBeAttached() {
+		Order order = order(10L, "200.00");
+		when(orderRepository.findByIdForUpdate(10L)).thenReturn(Optional.of(order));
+		when(promotionRepository.findById(5L)).thenReturn(Optional.of(promotion(5L, LocalDate.now().minusDays(1))));
+
+		RuntimeException error = assertThrows(RuntimeException.class, () -> service.setOrderPromotion(10L, 5L));
+
+		assertEquals("Promotion is not active", error.getMessage());
+		assertNull(order.getPromotion());
+		assertEquals(new BigDecimal("200.00"), order.getTotalAmount());
+	}
+
+	@Test
+	void attachedPromotionStillAppliesAfterItEnds() {
+		Order order = order(10L, "200.00");
+		// Gắn lúc còn hạn, tới lúc thêm món thì đã hết hạn
+		order.setPromotion(promotion(5L, LocalDate.now().minusDays(1)));
+		when(orderRepository.findByIdForUpdate(10L)).thenReturn(Optional.of(order));
+		when(productRepository.findById(1L)).thenReturn(Optional.of(product(1L, "100.00")));
+
+		service.addItemToOrder(10L, 1L, 1);
+
+		assertEquals(new BigDecimal("300.00"), order.getSubtotalAmount());
+		assertEquals(new BigDecimal("265.00"), order.getTotalAmount());
+	}
+
+	private Order order(Long id, String subtotal) {
+		Order order = new Order(table, 9L);
+		order.setId(id);
+		order.setSubtotalAmount(subtotal != null ? new BigDecimal(subtotal) : null);
+		order.setTotalAmount(subtotal != null ? new BigDecimal(subtotal) : null);
+		return order;
+	}
+
+	private static OrderItem item(Long id, Order order, Product product, int quantity) {
+		OrderItem item = new OrderItem(order, product, quantity, product.getPrice());
+		item.setId(id);
+		return item;
+	}
+
+	private static Product product(Long id, String price) {
+		Product product = new Product("Product " + id, new BigDecimal(price), null);
+		product.setId(id);
+		return product;
+	}
+
+	// Giảm 10% rồi trừ thêm 5.00
+	private static Promotion promotion(Long id, LocalDate endDate) {
+		Promotion promotion = new Promotion("Happy hour", LocalDate.now().minusDays(7), endDate);
+		promotion.setId(id);
+		promotion.setDiscountPercentage(new BigDecimal("10"));
+		promotion.setDiscountAmount(new BigDecimal("5.00"));
+		return promotion;
+	}
+}
@@ -0,0 +1,67 @@
+package com.nguyenhuutai.example304.security.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.nguyenhuutai.example304.model.Category;
+import com.nguyenhuutai.example304.model.Product;
+
+class ProductSearchIndexTest {
+
+	private ProductSearchIndex index;
+
+	@BeforeEach
+	void setUp() {
+		index = new ProductSearchIndex(null);
+		Category coffee = new Category("Cà phê", "Đồ uống pha phin");
+		Category dessert = new Category("Tráng miệng", null);
+		index.index(product(1L, "Cà phê sữa đá", coffee, "Phin truyền thống"));
+		index.index(product(2L, "Bạc xỉu", coffee, "Nhiều sữa, ít cà phê"));
+		index.index(product(3L, "Bánh flan", dessert, "Caramel"));
+	}
+
+	@Test
+	void matchesWithoutVietnameseAccents() {
+		assertEquals(List.of(1L, 2L), index.search("ca phe sua", 10));
+	}
+
+	@Test
+	void matchesTokenPrefixesForTypeahead() {
+		assertEquals(List.of(3L), index.search("ban fl", 10));
+		assertEquals("Bánh flan", index.suggest("bán", 5).get(0).getName());
+		assertEquals(1L, index.search("ca ph", 10).get(0));
+		// Prefix theo từng từ, không theo cả cụm viết liền
+		assertEquals(List.of(), index.search("caph", 10));
+	}
+
+	@Test
+	void ranksNameMatchesAboveDescriptionMatches() {
+		// "sữa" nằm trong tên món 1 nhưng chỉ nằm trong mô tả món 2
+		assertEquals(List.of(1L, 2L), index.search("sữa", 10));
+	}
+
+	@Test
+	void removedAndArchivedProductsDisappear() {
+		index.remove(1L);
+		Product archived = product(3L, "Bánh flan", null, null);
+		archived.setArchive(true);
+		index.index(archived);
+
+		assertEquals(List.of(2L), index.search("sua", 10));
+		assertTrue(index.search("flan", 10).isEmpty());
+		assertEquals(1, index.size());
+	}
+
+	private static Product product(Long id, String name, Category category, String description) {
+		Product product = new Product(name, BigDecimal.TEN, category);
+		product.setId(id);
+		product.setDescription(description);
+		return product;
+	}
+}
@@ -0,0 +1,169 @@
+package com.nguyenhuutai.example304.security.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.nguyenhuutai.example304.model.Bill;
+import com.nguyenhuutai.example304.repository.BillRepository;
+import com.nguyenhuutai.example304.repository.RevenueRollupRepository;
+
+// Rollup cộng dồn từng bill phải khớp với SUM trực tiếp trên bảng bills,
+// và dựng lại bằng backfill phải ra đúng kết quả đó. Delta chỉ tính sau commit nên test commit thật
+@DataJpaTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:rollup;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.show-sql=false" })
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(RevenueRollupService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RevenueRollupServiceTest {
+
+	private static final LocalDate DAY_ONE = LocalDate.of(2025, 3, 10);
+	private static final LocalDate DAY_TWO = DAY_ONE.plusDays(1);
+
+	@Autowired
+	private RevenueRollupService rollups;
+
+	@Autowired
+	private BillRepository billRepository;
+
+	@Autowired
+	private RevenueRollupRepository rollupRepository;
+
+	@Autowired
+	private TransactionTemplate transaction;
+
+	@BeforeEach
+	void setUp() {
+		completed("45000", Bill.PaymentMethod.CASH, DAY_ONE.atTime(8, 5));
+		completed("60000", Bill.PaymentMethod.CARD, DAY_ONE.atTime(8, 40));
+		completed("125000.50", Bill.PaymentMethod.CASH, DAY_ONE.atTime(12, 15));
+		completed("30000", null, DAY_TWO.atTime(9, 0));
+		completed("99000", Bill.PaymentMethod.MOBILE, DAY_TWO.atTime(23, 59));
+
+		// Chưa thanh toán: không tính
+		billRepository.save(bill("70000", Bill.PaymentMethod.CARD, DAY_ONE.atTime(10, 0)));
+
+		// Đã COMPLETED rồi bị chuyển lại: cộng rồi trừ
+		Bill refunded = completed("80000", Bill.PaymentMethod.CARD, DAY_TWO.atTime(9, 30));
+		transaction.executeWithoutResult(status -> {
+			refunded.setPaymentStatus(Bill.PaymentStatus.FAILED);
+			rollups.record(billRepository.save(refunded), -1);
+		});
+		rollups.flushRollups();
+	}
+
+	@AfterEach
+	void tearDown() {
+		rollupRepository.deleteAll();
+		billRepository.deleteAll();
+	}
+
+	@Test
+	void incrementalRollupMatchesRawBills() {
+		Map<String, Object> report = rollups.getRevenueSeries(DAY_ONE, DAY_TWO, RevenueRollupService.GroupBy.DAY);
+
+		assertAmount(raw(DAY_ONE, DAY_TWO.plusDays(1)), report.get("revenue"));
+		assertEquals(5L, report.get("billCount"));
+
+		List<Map<String, Object>> buckets = buckets(report);
+		assertEquals(2, buckets.size());
+		assertAmount(raw(DAY_ONE, DAY_TWO), buckets.get(0).get("revenue"));
+		assertAmount(raw(DAY_TWO, DAY_TWO.plusDays(1)), buckets.get(1).get("revenue"));
+		assertEquals(3L, buckets.get(0).get("billCount"));
+		assertEquals(2L, buckets.get(1).get("billCount"));
+	}
+
+	@Test
+	void hourlyRollupSplitsByHourAndPaymentMethod() {
+		Map<String, Object> report = rollups.getRevenueSeries(DAY_ONE, DAY_ONE, RevenueRollupService.GroupBy.HOUR);
+
+		List<Map<String, Object>> buckets = buckets(report);
+		assertEquals(DAY_ONE.atTime(8, 0), buckets.get(0).get("bucketStart"));
+		assertAmount(new BigDecimal("105000"), buckets.get(0).get("revenue"));
+		assertEquals(DAY_ONE.atTime(12, 0), buckets.get(1).get("bucketStart"));
+
+		@SuppressWarnings("unchecked")
+		Map<String, Map<String, Object>> methods = (Map<String, Map<String, Object>>) report.get("byPaymentMethod");
+		assertAmount(new BigDecimal("170000.50"), methods.get("CASH").get("revenue"));
+		assertAmount(new BigDecimal("60000"), methods.get("CARD").get("revenue"));
+	}
+
+	@Test
+	void backfillRebuildsSameSeriesAsIncrementalUpdates() {
+		Map<String, Object> incremental = rollups.getRevenueSeries(DAY_ONE, DAY_TWO, RevenueRollupService.GroupBy.HOUR);
+
+		rollups.backfill(DAY_ONE, DAY_TWO);
+
+		Map<String, Object> rebuilt = rollups.getRevenueSeries(DAY_ONE, DAY_TWO, RevenueRollupService.GroupBy.HOUR);
+		assertEquals(incremental.toString(), rebuilt.toString());
+		assertEquals(
+				rollups.getRevenueSeries(DAY_ONE, DAY_TWO, RevenueRollupService.GroupBy.DAY).get("revenue").toString(),
+				incremental.get("revenue").toString());
+	}
+
+	@Test
+	void deltasAreWrittenOnlyAfterCommitAndFlush() {
+		BigDecimal before = (BigDecimal) rollups.getRevenueSeries(DAY_ONE, DAY_ONE, RevenueRollupService.GroupBy.DAY)
+				.get("revenue");
+
+		// Rollback: bỏ delta
+		transaction.executeWithoutResult(status -> {
+			completed("10000", Bill.PaymentMethod.CASH, DAY_ONE.atTime(15, 0));
+			status.setRollbackOnly();
+		});
+		// Commit: chưa có gì trên dòng rollup tới lần flush
+		transaction.executeWithoutResult(status -> completed("20000", Bill.PaymentMethod.CASH, DAY_ONE.atTime(15, 5)));
+		assertAmount(before, rollups.getRevenueSeries(DAY_ONE, DAY_ONE, RevenueRollupService.GroupBy.DAY).get("revenue"));
+
+		rollups.flushRollups();
+		assertAmount(before.add(new BigDecimal("20000")),
+				rollups.getRevenueSeries(DAY_ONE, DAY_ONE, RevenueRollupService.GroupBy.DAY).get("revenue"));
+	}
+
+	private Bill completed(String amount, Bill.PaymentMethod method, LocalDateTime issuedAt) {
+		return transaction.execute(status -> {
+			Bill bill = bill(amount, method, issuedAt);
+			bill.setPaymentStatus(Bill.PaymentStatus.COMPLETED);
+			Bill saved = billRepository.save(bill);
+			rollups.record(saved, 1);
+			return saved;
+		});
+	}
+
+	private static Bill bill(String amount, Bill.PaymentMethod method, LocalDateTime issuedAt) {
+		Bill bill = new Bill(null, new BigDecimal(amount));
+		bill.setPaymentMethod(method);
+		bill.setIssuedAt(issuedAt);
+		return bill;
+	}
+
+	private BigDecimal raw(LocalDate from, LocalDate toExclusive) {
+		return billRepository.sumCompletedRevenue(from.atStartOfDay(), toExclusive.atStartOfDay().minusNanos(1));
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<Map<String, Object>> buckets(Map<String, Object> report) {
+		return (List<Map<String, Object>>) report.get("buckets");
+	}
+
+	private static void assertAmount(BigDecimal expected, Object actual) {
+		assertEquals(0, expected.compareTo((BigDecimal) actual), () -> expected + " != " + actual);
+	}
+}
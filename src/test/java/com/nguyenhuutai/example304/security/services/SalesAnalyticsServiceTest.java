@@ -0,0 +1,202 @@
+package com.nguyenhuutai.example304.security.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.nguyenhuutai.example304.model.Category;
+import com.nguyenhuutai.example304.model.CoffeeTable;
+import com.nguyenhuutai.example304.model.Order;
+import com.nguyenhuutai.example304.model.OrderItem;
+import com.nguyenhuutai.example304.model.Product;
+import com.nguyenhuutai.example304.model.SalesHourly;
+import com.nguyenhuutai.example304.repository.CategoryRepository;
+import com.nguyenhuutai.example304.repository.CoffeeTableRepository;
+import com.nguyenhuutai.example304.repository.OrderItemRepository;
+import com.nguyenhuutai.example304.repository.OrderRepository;
+import com.nguyenhuutai.example304.repository.ProductRepository;
+import com.nguyenhuutai.example304.repository.ProductSalesDailyRepository;
+import com.nguyenhuutai.example304.repository.PromotionRepository;
+import com.nguyenhuutai.example304.repository.SalesHourlyRepository;
+
+import jakarta.persistence.EntityManager;
+
+// Bộ đếm cộng dồn qua OrderService (thêm món, đổi số lượng, huỷ đơn, rollback) phải
+// trùng với kết quả dựng lại từ order_items; mỗi thao tác là một transaction commit thật
+@DataJpaTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:sales;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.show-sql=false" })
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(SalesAnalyticsService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SalesAnalyticsServiceTest {
+
+	@Autowired
+	private SalesAnalyticsService analytics;
+	@Autowired
+	private ProductSalesDailyRepository dailyRepository;
+	@Autowired
+	private SalesHourlyRepository hourlyRepository;
+	@Autowired
+	private OrderRepository orderRepository;
+	@Autowired
+	private OrderItemRepository orderItemRepository;
+	@Autowired
+	private ProductRepository productRepository;
+	@Autowired
+	private CategoryRepository categoryRepository;
+	@Autowired
+	private CoffeeTableRepository tableRepository;
+	@Autowired
+	private PromotionRepository promotionRepository;
+	@Autowired
+	private EntityManager entityManager;
+	@Autowired
+	private TransactionTemplate transaction;
+
+	private OrderService orderService;
+	private Long tableId;
+	private Long latteId;
+	private Long teaId;
+
+	@BeforeEach
+	void setUp() {
+		StockService stockService = new StockService(productRepository, orderItemRepository,
+				mock(MenuCacheService.class), entityManager);
+		orderService = new OrderService(orderRepository, orderItemRepository, tableRepository, productRepository,
+				promotionRepository, mock(DomainEventPublisher.class), stockService,
+				mock(DashboardMetricsService.class), analytics);
+
+		Category coffee = categoryRepository.save(new Category("Coffee", ""));
+		latteId = productRepository.save(product("Latte", "45000", coffee)).getId();
+		teaId = productRepository.save(product("Tea", "30000", coffee)).getId();
+		tableId = tableRepository.save(new CoffeeTable("B1", 1, 4)).getId();
+	}
+
+	@AfterEach
+	void tearDown() {
+		orderItemRepository.deleteAll();
+		orderRepository.deleteAll();
+		tableRepository.deleteAll();
+		productRepository.deleteAll();
+		categoryRepository.deleteAll();
+		dailyRepository.deleteAll();
+		hourlyRepository.deleteAll();
+	}
+
+	@Test
+	void incrementalCountersFollowDeltasAndCancellation() {
+		Long first = placeOrder(Map.of(latteId, 2, teaId, 1));
+		Long latteLine = transaction.execute(status -> orderItemRepository.findByOrderId(first).stream()
+				.filter(item -> item.getProduct().getId().equals(latteId)).findFirst().orElseThrow().getId());
+		transaction.executeWithoutResult(status -> orderService.updateItemQuantity(first, latteLine, 3));
+
+		Long cancelled = placeOrder(Map.of(latteId, 1));
+		transaction.executeWithoutResult(status -> orderService.updateOrderStatus(cancelled, Order.OrderStatus.CANCELLED));
+
+		// Rollback: không được để lại gì trong cả 2 bộ đếm
+		assertThrows(IllegalStateException.class, () -> transaction.executeWithoutResult(status -> {
+			orderService.addItemToOrder(first, teaId, 5);
+			throw new IllegalStateException("payment terminal offline");
+		}));
+		analytics.flushHourly();
+
+		LocalDate today = LocalDate.now();
+		Map<Long, String> byProduct = productTotals(today);
+		assertEquals("3/135000.00", byProduct.get(latteId));
+		assertEquals("1/30000.00", byProduct.get(teaId));
+		assertEquals("4/165000.00", hourlyTotal(today));
+	}
+
+	@Test
+	void rebuildMatchesIncrementalCounters() {
+		Long first = placeOrder(Map.of(latteId, 2, teaId, 1));
+		Long second = placeOrder(Map.of(teaId, 4));
+		Long teaLine = transaction.execute(status -> orderItemRepository.findByOrderId(second).get(0).getId());
+		transaction.executeWithoutResult(status -> orderService.updateItemQuantity(second, teaLine, 2));
+		Long cancelled = placeOrder(Map.of(latteId, 7));
+		transaction.executeWithoutResult(status -> orderService.updateOrderStatus(cancelled, Order.OrderStatus.CANCELLED));
+		// Dòng không còn product (món đã bị xoá) không tính ở cả 2 bảng
+		transaction.executeWithoutResult(status -> orderItemRepository.save(
+				new OrderItem(orderRepository.findById(first).orElseThrow(), null, 3, new BigDecimal("10000"))));
+		analytics.flushHourly();
+
+		LocalDate today = LocalDate.now();
+		Map<Long, String> incrementalProducts = productTotals(today);
+		Map<String, String> incrementalHours = hourlyRows(today);
+
+		analytics.rebuild(today, today);
+
+		assertEquals(incrementalProducts, productTotals(today));
+		assertEquals(incrementalHours, hourlyRows(today));
+		assertEquals("5/180000.00", hourlyTotal(today));
+	}
+
+	@Test
+	void topKReturnsLargestInDescendingOrder() {
+		List<Integer> top = SalesAnalyticsService.topK(List.of(5, 1, 9, 3, 7, 2), 3, Comparator.naturalOrder());
+		assertEquals(List.of(9, 7, 5), top);
+	}
+
+	@Test
+	void topKWithFewerItemsThanKReturnsAll() {
+		List<Integer> top = SalesAnalyticsService.topK(List.of(2, 4), 10, Comparator.naturalOrder());
+		assertEquals(List.of(4, 2), top);
+	}
+
+	private Long placeOrder(Map<Long, Integer> quantities) {
+		return transaction.execute(status -> orderService.placeOrder(tableId, 1L, new LinkedHashMap<>(quantities)).getId());
+	}
+
+	private Map<Long, String> productTotals(LocalDate day) {
+		Map<Long, String> totals = new TreeMap<>();
+		for (Object[] row : dailyRepository.sumByProduct(day, day)) {
+			totals.put((Long) row[0], row[1] + "/" + ((BigDecimal) row[2]).setScale(2));
+		}
+		return totals;
+	}
+
+	private Map<String, String> hourlyRows(LocalDate day) {
+		Map<String, String> rows = new TreeMap<>();
+		for (SalesHourly row : hourlyRepository.findRange(day, day)) {
+			rows.put(row.getSalesDate() + " " + row.getHourOfDay(), row.getQuantity() + "/" + row.getRevenue().setScale(2));
+		}
+		return rows;
+	}
+
+	private String hourlyTotal(LocalDate day) {
+		long quantity = 0;
+		BigDecimal revenue = BigDecimal.ZERO;
+		for (SalesHourly row : hourlyRepository.findRange(day, day)) {
+			quantity += row.getQuantity();
+			revenue = revenue.add(row.getRevenue());
+		}
+		return quantity + "/" + revenue.setScale(2);
+	}
+
+	private static Product product(String name, String price, Category category) {
+		Product product = new Product(name, new BigDecimal(price), category);
+		product.setStockQuantity(100);
+		return product;
+	}
+}
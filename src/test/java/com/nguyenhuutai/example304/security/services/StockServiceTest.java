@@ -0,0 +1,140 @@
+package com.nguyenhuutai.example304.security.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.nguyenhuutai.example304.model.Category;
+import com.nguyenhuutai.example304.model.Product;
+import com.nguyenhuutai.example304.repository.CategoryRepository;
+import com.nguyenhuutai.example304.repository.OrderItemRepository;
+import com.nguyenhuutai.example304.repository.ProductRepository;
+
+import jakarta.persistence.EntityManager;
+
+// Nhiều till cùng trừ kho một product trên H2: mỗi lần reserve là một transaction
+// commit thật (không dùng transaction bao ngoài của @DataJpaTest)
+@DataJpaTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:stock;MODE=MySQL;DATABASE_TO_LOWER=TRUE;LOCK_TIMEOUT=10000",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.show-sql=false" })
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockServiceTest {
+
+	private static final int INITIAL_STOCK = 100;
+	private static final int THREADS = 16;
+	private static final int ATTEMPTS_PER_THREAD = 20;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private CategoryRepository categoryRepository;
+
+	@Autowired
+	private OrderItemRepository orderItemRepository;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private StockService stockService;
+	private TransactionTemplate transaction;
+	private Long productId;
+
+	@BeforeEach
+	void setUp() {
+		stockService = new StockService(productRepository, orderItemRepository, mock(MenuCacheService.class),
+				entityManager);
+		transaction = new TransactionTemplate(transactionManager);
+		Category category = categoryRepository.save(new Category("Coffee", ""));
+		Product product = new Product("Latte", new BigDecimal("45000"), category);
+		product.setStockQuantity(INITIAL_STOCK);
+		productId = productRepository.save(product).getId();
+	}
+
+	@AfterEach
+	void tearDown() {
+		productRepository.deleteAll();
+		categoryRepository.deleteAll();
+	}
+
+	@Test
+	void concurrentReservationsNeverOversell() throws Exception {
+		AtomicInteger reserved = new AtomicInteger();
+		AtomicInteger rejected = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < THREADS; t++) {
+				futures.add(pool.submit(() -> {
+					start.await();
+					for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+						try {
+							transaction.executeWithoutResult(status -> stockService.reserve(productId, 1));
+							reserved.incrementAndGet();
+						} catch (RuntimeException e) {
+							assertEquals("Insufficient stock", e.getMessage());
+							rejected.incrementAndGet();
+						}
+					}
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> future : futures) {
+				future.get(60, TimeUnit.SECONDS);
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+
+		assertEquals(INITIAL_STOCK, reserved.get());
+		assertEquals(THREADS * ATTEMPTS_PER_THREAD - INITIAL_STOCK, rejected.get());
+		assertEquals(0, productRepository.findById(productId).orElseThrow().getStockQuantity());
+	}
+
+	@Test
+	void reservationBeyondStockRollsBack() {
+		assertThrows(RuntimeException.class, () -> transaction.executeWithoutResult(
+				status -> stockService.reserve(productId, INITIAL_STOCK + 1)));
+		assertEquals(INITIAL_STOCK, productRepository.findById(productId).orElseThrow().getStockQuantity());
+	}
+
+	@Test
+	void loadedProductSeesUpdatedStock() {
+		transaction.executeWithoutResult(status -> {
+			Product product = productRepository.findById(productId).orElseThrow();
+			stockService.reserve(productId, 3);
+			assertEquals(INITIAL_STOCK - 3, product.getStockQuantity());
+			stockService.release(Map.of(productId, 1));
+			assertEquals(INITIAL_STOCK - 2, product.getStockQuantity());
+		});
+	}
+}
@@ -0,0 +1,139 @@
+package com.nguyenhuutai.example304.security.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.mock.env.MockEnvironment;
+
+import com.nguyenhuutai.example304.events.OrderChangedEvent;
+import com.nguyenhuutai.example304.events.TableStatusChangedEvent;
+import com.nguyenhuutai.example304.model.CoffeeTable;
+import com.nguyenhuutai.example304.model.Order;
+
+class WebSocketServiceTest {
+
+	private SimpMessagingTemplate template;
+	private WebSocketService service;
+
+	@BeforeEach
+	void setUp() {
+		template = mock(SimpMessagingTemplate.class);
+		// Không gọi start(): test tự flush
+		MockEnvironment environment = new MockEnvironment().withProperty("app.websocket.stations.bar", "5");
+		service = new WebSocketService(template, new StationRouter(environment), 75, 4);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void coalescesUpdatesOfSameOrderIntoOneDelta() {
+		Order order = order(7L);
+		service.onOrderChanged(OrderChangedEvent.created(order, Set.of(5L)));
+		order.setStatus(Order.OrderStatus.CONFIRMED);
+		service.onOrderChanged(OrderChangedEvent.updated(order));
+		service.flush();
+
+		ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+		verify(template).convertAndSend(eq("/topic/orders"), payload.capture());
+		verify(template, never()).convertAndSend(eq("/topic/order-updates"), any(Object.class));
+		List<WebSocketService.OrderDelta> batch = (List<WebSocketService.OrderDelta>) payload.getValue();
+		assertEquals(1, batch.size());
+		assertEquals(Order.OrderStatus.CONFIRMED, batch.get(0).getStatus());
+		assertEquals(1L, batch.get(0).getSeq());
+	}
+
+	@Test
+	void routesOrderToTableStationAndEmployeeDestinations() {
+		Order order = order(7L);
+		service.onOrderChanged(OrderChangedEvent.created(order, Set.of(5L)));
+		service.flush();
+		// Update trạng thái sau đó không mang category nhưng vẫn tới quầy đã biết
+		order.setStatus(Order.OrderStatus.SERVED);
+		service.onOrderChanged(OrderChangedEvent.updated(order));
+		service.flush();
+
+		verify(template, times(2)).convertAndSend(eq("/topic/tables.1"), any(Object.class));
+		verify(template, times(2)).convertAndSend(eq("/topic/stations.bar"), any(Object.class));
+		verify(template, times(2)).convertAndSendToUser(eq("42"), eq("/queue/orders"), any(Object.class));
+	}
+
+	@Test
+	void dropsRepeatedTableStatus() {
+		service.onTableStatusChanged(new TableStatusChangedEvent(3L, "OCCUPIED"));
+		service.flush();
+		service.onTableStatusChanged(new TableStatusChangedEvent(3L, "OCCUPIED"));
+		service.flush();
+
+		verify(template, times(1)).convertAndSend(eq("/topic/table-status"), any(Object.class));
+		assertEquals(1L, service.stats().get("tableDuplicatesDropped"));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void seqIsContiguousAcrossGlobalTopicsOnly() {
+		service.onOrderChanged(OrderChangedEvent.created(order(7L), Set.of(5L)));
+		service.onTableStatusChanged(new TableStatusChangedEvent(2L, "OCCUPIED"));
+		service.onOrderChanged(OrderChangedEvent.created(order(8L), Set.of()));
+		service.flush();
+
+		ArgumentCaptor<Object> orders = ArgumentCaptor.forClass(Object.class);
+		ArgumentCaptor<Object> tables = ArgumentCaptor.forClass(Object.class);
+		verify(template).convertAndSend(eq("/topic/orders"), orders.capture());
+		verify(template).convertAndSend(eq("/topic/table-status"), tables.capture());
+		List<WebSocketService.OrderDelta> orderBatch = (List<WebSocketService.OrderDelta>) orders.getValue();
+		List<WebSocketService.TableStatusMessage> tableBatch = (List<WebSocketService.TableStatusMessage>) tables.getValue();
+		// Hợp các topic chung: 1, 2, 3 không thiếu số nào
+		assertEquals(1L, orderBatch.get(0).getSeq());
+		assertEquals(2L, orderBatch.get(1).getSeq());
+		assertEquals(3L, tableBatch.get(0).getSeq());
+		assertEquals(2, service.replaySince(1L).size());
+
+		// Topic của quầy chỉ nhận order 7: seq không liên tục theo destination
+		ArgumentCaptor<Object> station = ArgumentCaptor.forClass(Object.class);
+		verify(template).convertAndSend(eq("/topic/stations.bar"), station.capture());
+		assertEquals(1, ((List<Object>) station.getValue()).size());
+	}
+
+	@Test
+	void replaysMissedMessagesUntilTheyFallOutOfBuffer() {
+		for (long tableId = 1; tableId <= 3; tableId++) {
+			service.onTableStatusChanged(new TableStatusChangedEvent(tableId, "OCCUPIED"));
+		}
+		service.flush();
+
+		assertEquals(3L, service.getLastSeq());
+		assertEquals(2, service.replaySince(1L).size());
+		assertTrue(service.replaySince(3L).isEmpty());
+
+		// Buffer 4 message: seq 1..3 bị đẩy ra sau 3 message mới
+		for (long tableId = 1; tableId <= 3; tableId++) {
+			service.onTableStatusChanged(new TableStatusChangedEvent(tableId, "FREE"));
+		}
+		service.flush();
+		assertNull(service.replaySince(1L));
+		assertEquals(3, service.replaySince(3L).size());
+		// seq lớn hơn hiện tại (server restart) -> cần snapshot
+		assertNull(service.replaySince(99L));
+	}
+
+	private static Order order(Long id) {
+		CoffeeTable table = new CoffeeTable("Bàn 1", 1, 4);
+		table.setId(1L);
+		Order order = new Order(table, 42L);
+		order.setId(id);
+		return order;
+	}
+}
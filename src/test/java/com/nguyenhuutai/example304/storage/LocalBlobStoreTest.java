@@ -0,0 +1,59 @@
+package com.nguyenhuutai.example304.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LocalBlobStoreTest {
+
+	private static final String KEY = "0123456789abcdef0123456789abcdef.jpg";
+
+	@TempDir
+	Path root;
+
+	@Test
+	void contentAddressedKeysAreSharded() throws Exception {
+		LocalBlobStore store = new LocalBlobStore(root);
+		Path temp = store.createTempFile();
+		Files.writeString(temp, "latte");
+
+		store.put(KEY, temp);
+
+		assertTrue(Files.isRegularFile(root.resolve("01").resolve("23").resolve(KEY)));
+		assertFalse(Files.exists(temp));
+		assertEquals(5, store.stat(KEY).orElseThrow().size());
+		try (InputStream in = store.open(KEY)) {
+			assertArrayEquals("latte".getBytes(), in.readAllBytes());
+		}
+		assertTrue(store.delete(KEY));
+		assertTrue(store.stat(KEY).isEmpty());
+	}
+
+	@Test
+	void flatFilesFromOlderLayoutStayReadable() throws Exception {
+		Files.writeString(root.resolve(KEY), "old-hash");
+		Files.writeString(root.resolve("abc_menu.jpg"), "legacy");
+		LocalBlobStore store = new LocalBlobStore(root);
+
+		assertEquals(8, store.stat(KEY).orElseThrow().size());
+		assertTrue(Files.isRegularFile(root.resolve("01").resolve("23").resolve(KEY)));
+		assertEquals(6, store.stat("abc_menu.jpg").orElseThrow().size());
+	}
+
+	@Test
+	void keysCannotEscapeTheRoot() throws Exception {
+		LocalBlobStore store = new LocalBlobStore(root);
+
+		assertThrows(IllegalArgumentException.class, () -> store.stat("../secret.txt"));
+		assertThrows(IllegalArgumentException.class, () -> store.stat(".."));
+	}
+}
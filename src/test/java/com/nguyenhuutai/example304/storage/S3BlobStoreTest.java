@@ -0,0 +1,143 @@
+package com.nguyenhuutai.example304.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+class S3BlobStoreTest {
+
+	private static final String KEY = "0123456789abcdef0123456789abcdef-thumb.jpg";
+
+	private HttpServer server;
+	private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+	private final List<String> authorizations = new CopyOnWriteArrayList<>();
+	private final List<String> ranges = new CopyOnWriteArrayList<>();
+	private S3BlobStore store;
+
+	// S3 giả trong process: chỉ GET (có Range dạng bytes=a-b)/HEAD/PUT/DELETE theo path /{bucket}/{key}
+	@BeforeEach
+	void setUp() throws Exception {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/menu-images/", this::handle);
+		server.start();
+		Clock clock = Clock.fixed(Instant.parse("2024-05-01T08:30:00Z"), ZoneOffset.UTC);
+		store = new S3BlobStore(HttpClient.newHttpClient(), "http://127.0.0.1:" + server.getAddress().getPort(),
+				"menu-images", "us-east-1", "AKIDEXAMPLE", "secret", clock);
+	}
+
+	@AfterEach
+	void tearDown() {
+		server.stop(0);
+	}
+
+	@Test
+	void putStatOpenDeleteRoundTrip() throws Exception {
+		Path temp = store.createTempFile();
+		Files.writeString(temp, "espresso");
+
+		store.put(KEY, temp);
+
+		assertFalse(Files.exists(temp));
+		assertEquals(8, store.stat(KEY).orElseThrow().size());
+		try (InputStream in = store.open(KEY)) {
+			assertArrayEquals("espresso".getBytes(), in.readAllBytes());
+		}
+		assertTrue(store.delete(KEY));
+		assertTrue(store.stat(KEY).isEmpty());
+		assertThrows(NoSuchFileException.class, () -> store.open(KEY));
+
+		assertTrue(authorizations.stream().allMatch(value -> value.startsWith(
+				"AWS4-HMAC-SHA256 Credential=AKIDEXAMPLE/20240501/us-east-1/s3/aws4_request, "
+						+ "SignedHeaders=host;x-amz-content-sha256;x-amz-date, Signature=")));
+	}
+
+	@Test
+	void rangedOpenOnlyFetchesRequestedBytes() throws Exception {
+		objects.put(KEY, "0123456789".getBytes());
+
+		try (InputStream in = store.open(KEY, 2, 3)) {
+			assertArrayEquals("234".getBytes(), in.readAllBytes());
+		}
+
+		assertEquals(List.of("bytes=2-4"), ranges);
+	}
+
+	@Test
+	void signingKeyMatchesAwsReferenceVector() {
+		byte[] key = S3BlobStore.signingKey("wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY", "20120215", "us-east-1", "iam");
+		assertEquals("f4780e2d9f65fa895f9c67b32ce1baf0b0d8a43505a000a1a9e090d414db404d", HexFormat.of().formatHex(key));
+	}
+
+	@Test
+	void keysAreUriEncoded() {
+		assertEquals("abc_menu%20%C4%91%C3%A1.jpg", S3BlobStore.encode("abc_menu đá.jpg"));
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		authorizations.add(exchange.getRequestHeaders().getFirst("Authorization"));
+		String key = exchange.getRequestURI().getPath().substring("/menu-images/".length());
+		byte[] body = objects.get(key);
+		switch (exchange.getRequestMethod()) {
+			case "PUT" -> {
+				objects.put(key, exchange.getRequestBody().readAllBytes());
+				exchange.sendResponseHeaders(200, -1);
+			}
+			case "HEAD" -> {
+				if (body == null) {
+					exchange.sendResponseHeaders(404, -1);
+				} else {
+					exchange.getResponseHeaders().add("Content-Length", String.valueOf(body.length));
+					exchange.getResponseHeaders().add("Last-Modified", "Wed, 01 May 2024 08:30:00 GMT");
+					exchange.sendResponseHeaders(200, -1);
+				}
+			}
+			case "GET" -> {
+				String range = exchange.getRequestHeaders().getFirst("Range");
+				if (body == null) {
+					exchange.sendResponseHeaders(404, -1);
+				} else if (range != null) {
+					ranges.add(range);
+					String[] bounds = range.substring("bytes=".length()).split("-");
+					int start = Integer.parseInt(bounds[0]);
+					int end = Integer.parseInt(bounds[1]);
+					exchange.sendResponseHeaders(206, end - start + 1);
+					exchange.getResponseBody().write(body, start, end - start + 1);
+				} else {
+					exchange.sendResponseHeaders(200, body.length);
+					exchange.getResponseBody().write(body);
+				}
+			}
+			case "DELETE" -> {
+				objects.remove(key);
+				exchange.sendResponseHeaders(204, -1);
+			}
+			default -> exchange.sendResponseHeaders(405, -1);
+		}
+		exchange.close();
+	}
+}